@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core.query;
+
+import com._4dconcept.springframework.data.marklogic.core.cts.CTSQuerySerializer;
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicMappingContext;
+import com._4dconcept.springframework.data.marklogic.repository.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Sort;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmark of the query construction path ({@link QueryBuilder} and {@link CTSQuerySerializer}). Run it with :
+ * <pre>
+ * ./gradlew jmh -PjmhIncludes=QueryBuilderBenchmark
+ * </pre>
+ *
+ * @author Stéphane Toussaint
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBuilderBenchmark {
+
+    private final MarklogicMappingContext mappingContext = new MarklogicMappingContext();
+    private final Example<Person> example = Example.of(new Person(null, "Me", "Bubble", 38, "Canada"));
+
+    @Benchmark
+    public String buildAndSerialize() {
+        Query query = new QueryBuilder(mappingContext)
+                .alike(example)
+                .with(Sort.by("lastname", "age"))
+                .build();
+        return new CTSQuerySerializer(query).asCtsQuery();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import com.marklogic.xcc.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmark of the Session handle dispatch, comparing a JDK dynamic proxy invoking the target through
+ * {@link Method#invoke} with a {@link DelegatingSession} subclass. Each operation sets then reads the transaction
+ * mode. Run it with :
+ * <pre>
+ * ./gradlew jmh -PjmhIncludes=DelegatingSessionBenchmark
+ * </pre>
+ *
+ * @author Stéphane Toussaint
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DelegatingSessionBenchmark {
+
+    private static final Session.TransactionMode[] MODES = {Session.TransactionMode.QUERY, Session.TransactionMode.UPDATE};
+
+    private Session proxySession;
+
+    private Session delegatingSession;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Session target = new StubSession();
+
+        proxySession = (Session) Proxy.newProxyInstance(
+                SessionProxy.class.getClassLoader(),
+                new Class<?>[] {SessionProxy.class},
+                new ReflectiveInvocationHandler(target));
+        delegatingSession = new FixedTargetSession(target);
+    }
+
+    @Benchmark
+    public Session.TransactionMode proxy() {
+        return switchTransactionMode(proxySession);
+    }
+
+    @Benchmark
+    public Session.TransactionMode delegatingSession() {
+        return switchTransactionMode(delegatingSession);
+    }
+
+    private Session.TransactionMode switchTransactionMode(Session session) {
+        session.setTransactionMode(MODES[index++ & 1]);
+        return session.getTransactionMode();
+    }
+
+    /**
+     * Target Session only supporting the transaction mode accessors.
+     */
+    private static class StubSession extends DelegatingSession {
+
+        private TransactionMode transactionMode = TransactionMode.AUTO;
+
+        @Override
+        protected Session obtainTargetSession(String operation) {
+            throw new UnsupportedOperationException("Benchmark stub does not support " + operation);
+        }
+
+        @Override
+        public Session getTargetSession() {
+            return this;
+        }
+
+        @Override
+        public void setTransactionMode(TransactionMode mode) {
+            this.transactionMode = mode;
+        }
+
+        @Override
+        public TransactionMode getTransactionMode() {
+            return transactionMode;
+        }
+    }
+
+    private static class FixedTargetSession extends DelegatingSession {
+
+        private final Session target;
+
+        FixedTargetSession(Session target) {
+            this.target = target;
+        }
+
+        @Override
+        protected Session obtainTargetSession(String operation) {
+            return target;
+        }
+
+        @Override
+        public Session getTargetSession() {
+            return target;
+        }
+    }
+
+    /**
+     * Former dispatch of the Session handles : method name switch, then reflective invocation of the target.
+     */
+    private static class ReflectiveInvocationHandler implements InvocationHandler {
+
+        private final Session target;
+
+        ReflectiveInvocationHandler(Session target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return (proxy == args[0]);
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getTargetSession":
+                    return target;
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+        }
+    }
+}
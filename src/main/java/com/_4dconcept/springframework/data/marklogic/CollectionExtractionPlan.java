@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic;
+
+import com._4dconcept.springframework.data.marklogic.core.mapping.Collection;
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentEntity;
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentProperty;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per entity class plan of the {@link Collection} bearing properties and methods used by {@link MarklogicCollectionUtils}.
+ * Plans are computed once per class and {@link MarklogicCollectionUtils} instance so that collection extraction does
+ * not scan properties, methods and annotations on every write, while each instance keeps its own annotation lookup.
+ *
+ * @author Stéphane Toussaint
+ */
+final class CollectionExtractionPlan {
+
+    private static final Map<MarklogicCollectionUtils, Map<MappingContext<?, ?>, Map<Class<?>, List<PropertyStep>>>> PROPERTY_STEPS_CACHE = new ConcurrentReferenceHashMap<>();
+    private static final Map<MarklogicCollectionUtils, Map<Class<?>, List<MethodStep>>> METHOD_STEPS_CACHE = new ConcurrentReferenceHashMap<>();
+
+    private CollectionExtractionPlan() {}
+
+    static List<String> extractFromProperties(Object entity, MappingContext<? extends MarklogicPersistentEntity<?>, MarklogicPersistentProperty> mappingContext,
+                                              MarklogicCollectionUtils collectionUtils) {
+        MarklogicPersistentEntity<?> persistentEntity = mappingContext.getPersistentEntity(entity.getClass());
+
+        if (persistentEntity == null) {
+            return Collections.emptyList();
+        }
+
+        List<PropertyStep> steps = PROPERTY_STEPS_CACHE
+                .computeIfAbsent(collectionUtils, utils -> new ConcurrentReferenceHashMap<>())
+                .computeIfAbsent(mappingContext, context -> new ConcurrentHashMap<>())
+                .computeIfAbsent(entity.getClass(), type -> buildPropertySteps(persistentEntity, collectionUtils));
+
+        if (steps.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        PersistentPropertyAccessor<Object> accessor = persistentEntity.getPropertyAccessor(entity);
+        List<String> collections = new ArrayList<>();
+
+        for (PropertyStep step : steps) {
+            Object value = accessor.getProperty(step.property);
+            if (value == null) {
+                continue;
+            }
+
+            if (step.collection != null) {
+                collections.addAll(collectionUtils.doWithCollectionValue(value, step.collection));
+            } else {
+                collections.addAll(collectionUtils.extractCollections(value, mappingContext));
+            }
+        }
+
+        return collections;
+    }
+
+    static List<String> extractFromMethods(Object entity, MarklogicCollectionUtils collectionUtils) {
+        List<MethodStep> steps = METHOD_STEPS_CACHE
+                .computeIfAbsent(collectionUtils, utils -> new ConcurrentHashMap<>())
+                .computeIfAbsent(entity.getClass(), type -> buildMethodSteps(type, collectionUtils));
+
+        if (steps.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> collections = new ArrayList<>();
+
+        for (MethodStep step : steps) {
+            Object value = step.invoke(entity);
+            if (value != null) {
+                collections.addAll(collectionUtils.doWithCollectionValue(value, step.collection));
+            }
+        }
+
+        return collections;
+    }
+
+    /**
+     * Keep only properties either annotated with {@link Collection} or referencing a nested entity.
+     */
+    private static List<PropertyStep> buildPropertySteps(MarklogicPersistentEntity<?> persistentEntity, MarklogicCollectionUtils collectionUtils) {
+        List<PropertyStep> steps = new ArrayList<>();
+
+        persistentEntity.doWithProperties((PropertyHandler<MarklogicPersistentProperty>) property -> {
+            Collection collection = collectionUtils.getCollectionAnnotation(property).orElse(null);
+            if (collection != null) {
+                steps.add(new PropertyStep(property, collection));
+            } else if (property.getReadMethod().isPresent() && property.getPersistentEntityTypes().iterator().hasNext()) {
+                steps.add(new PropertyStep(property, null));
+            }
+        });
+
+        return steps.isEmpty() ? Collections.emptyList() : steps;
+    }
+
+    private static List<MethodStep> buildMethodSteps(Class<?> type, MarklogicCollectionUtils collectionUtils) {
+        List<MethodStep> steps = new ArrayList<>();
+
+        for (Method method : type.getMethods()) {
+            if (method.getParameterCount() > 0) {
+                continue;
+            }
+
+            collectionUtils.getCollectionAnnotation(method).ifPresent(collection -> steps.add(new MethodStep(method, collection)));
+        }
+
+        return steps.isEmpty() ? Collections.emptyList() : steps;
+    }
+
+    private static class PropertyStep {
+
+        private final MarklogicPersistentProperty property;
+        private final @Nullable Collection collection;
+
+        PropertyStep(MarklogicPersistentProperty property, @Nullable Collection collection) {
+            this.property = property;
+            this.collection = collection;
+        }
+    }
+
+    private static class MethodStep {
+
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        private final Method method;
+        private final MethodHandle methodHandle;
+        private final Collection collection;
+
+        MethodStep(Method method, Collection collection) {
+            this.method = method;
+            this.collection = collection;
+
+            try {
+                ReflectionUtils.makeAccessible(method);
+                MethodHandle handle = MethodHandles.lookup().unreflect(method);
+                if (Modifier.isStatic(method.getModifiers())) {
+                    handle = MethodHandles.dropArguments(handle, 0, Object.class);
+                }
+                this.methodHandle = handle.asType(GETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new UnsupportedOperationException(String.format("Unable to read value from %s", method), e);
+            }
+        }
+
+        @Nullable
+        Object invoke(Object entity) {
+            try {
+                return (Object) methodHandle.invokeExact(entity);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UnsupportedOperationException(String.format("Unable to read value from %s", method), e);
+            }
+        }
+    }
+}
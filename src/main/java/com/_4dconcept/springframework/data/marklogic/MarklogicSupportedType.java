@@ -21,68 +21,73 @@ public enum MarklogicSupportedType {
 
     DOCUMENT(Document.class) {
         @Override
-        public Content createContentObject(String uri, Object contentToSave) {
-            return ContentFactory.newContent(uri, (Document) contentToSave, ContentCreateOptions.newXmlInstance());
+        public Content createContentObject(String uri, Object contentToSave, ContentCreateOptions options) {
+            return ContentFactory.newContent(uri, (Document) contentToSave, options);
         }
     },
     NODE(Node.class) {
         @Override
-        public Content createContentObject(String uri, Object contentToSave) {
-            return ContentFactory.newContent(uri, (Node) contentToSave, ContentCreateOptions.newXmlInstance());
+        public Content createContentObject(String uri, Object contentToSave, ContentCreateOptions options) {
+            return ContentFactory.newContent(uri, (Node) contentToSave, options);
         }
     },
     JSON_NODE(JsonNode.class) {
         @Override
-        public Content createContentObject(String uri, Object contentToSave) {
-            return ContentFactory.newJsonContent(uri, (JsonNode) contentToSave, ContentCreateOptions.newJsonInstance());
+        public Content createContentObject(String uri, Object contentToSave, ContentCreateOptions options) {
+            return ContentFactory.newJsonContent(uri, (JsonNode) contentToSave, options);
+        }
+
+        @Override
+        public ContentCreateOptions defaultCreateOptions() {
+            return ContentCreateOptions.newJsonInstance();
         }
     },
     XDM_NODE(XdmNode.class) {
         @Override
-        public Content createContentObject(String uri, Object contentToSave) {
-            return ContentFactory.newContent(uri, (XdmNode) contentToSave, ContentCreateOptions.newXmlInstance());
+        public Content createContentObject(String uri, Object contentToSave, ContentCreateOptions options) {
+            return ContentFactory.newContent(uri, (XdmNode) contentToSave, options);
         }
     },
     FILE(File.class) {
         @Override
-        public Content createContentObject(String uri, Object contentToSave) {
-            return ContentFactory.newContent(uri, (File) contentToSave, ContentCreateOptions.newXmlInstance());
+        public Content createContentObject(String uri, Object contentToSave, ContentCreateOptions options) {
+            return ContentFactory.newContent(uri, (File) contentToSave, options);
         }
     },
     RANDOMACCESSFILE(RandomAccessFile.class) {
         @Override
-        public Content createContentObject(String uri, Object contentToSave) throws IOException  {
-            return ContentFactory.newContent(uri, (RandomAccessFile) contentToSave, ContentCreateOptions.newXmlInstance());
+        public Content createContentObject(String uri, Object contentToSave, ContentCreateOptions options) throws IOException {
+            return ContentFactory.newContent(uri, (RandomAccessFile) contentToSave, options);
         }
     },
     URL(URL.class) {
         @Override
-        public Content createContentObject(String uri, Object contentToSave) throws IOException  {
-            return ContentFactory.newContent(uri, (URL) contentToSave, ContentCreateOptions.newXmlInstance());
+        public Content createContentObject(String uri, Object contentToSave, ContentCreateOptions options) throws IOException {
+            return ContentFactory.newContent(uri, (URL) contentToSave, options);
         }
     },
     URI(URI.class) {
         @Override
-        public Content createContentObject(String uri, Object contentToSave) throws IOException  {
-            return ContentFactory.newContent(uri, (URI) contentToSave, ContentCreateOptions.newXmlInstance());
+        public Content createContentObject(String uri, Object contentToSave, ContentCreateOptions options) throws IOException {
+            return ContentFactory.newContent(uri, (URI) contentToSave, options);
         }
     },
     STRING(String.class) {
         @Override
-        public Content createContentObject(String uri, Object contentToSave) {
-            return ContentFactory.newContent(uri, contentToSave.toString(), ContentCreateOptions.newXmlInstance());
+        public Content createContentObject(String uri, Object contentToSave, ContentCreateOptions options) {
+            return ContentFactory.newContent(uri, contentToSave.toString(), options);
         }
     },
     BYTE_ARRY(byte[].class) {
         @Override
-        public Content createContentObject(String uri, Object contentToSave) {
-            return ContentFactory.newContent(uri, (byte[]) contentToSave, ContentCreateOptions.newXmlInstance());
+        public Content createContentObject(String uri, Object contentToSave, ContentCreateOptions options) {
+            return ContentFactory.newContent(uri, (byte[]) contentToSave, options);
         }
     },
     INPUTSTREAM(InputStream.class) {
         @Override
-        public Content createContentObject(String uri, Object contentToSave) throws IOException {
-            return ContentFactory.newContent(uri, (InputStream) contentToSave, ContentCreateOptions.newXmlInstance());
+        public Content createContentObject(String uri, Object contentToSave, ContentCreateOptions options) throws IOException {
+            return ContentFactory.newContent(uri, (InputStream) contentToSave, options);
         }
     };
 
@@ -99,7 +104,36 @@ public enum MarklogicSupportedType {
     Class<?> getType() {
         return type;
     }
-    
-    public abstract Content createContentObject(String uri, Object contentToSave) throws IOException;
+
+    /**
+     * @return the create options used when none are explicitly provided
+     */
+    public ContentCreateOptions defaultCreateOptions() {
+        return ContentCreateOptions.newXmlInstance();
+    }
+
+    /**
+     * Create a {@link Content} using this type {@link #defaultCreateOptions() default create options}.
+     *
+     * @param uri the content uri
+     * @param contentToSave the content
+     * @return the content to insert
+     * @throws IOException if the content can not be read
+     */
+    public Content createContentObject(String uri, Object contentToSave) throws IOException {
+        return createContentObject(uri, contentToSave, defaultCreateOptions());
+    }
+
+    /**
+     * Create a {@link Content} using the given create options (ie. {@link ContentCreateOptions#newBinaryInstance()}
+     * to store bytes as a binary document).
+     *
+     * @param uri the content uri
+     * @param contentToSave the content
+     * @param options the create options
+     * @return the content to insert
+     * @throws IOException if the content can not be read
+     */
+    public abstract Content createContentObject(String uri, Object contentToSave, ContentCreateOptions options) throws IOException;
 
 }
@@ -15,6 +15,8 @@
  */
 package com._4dconcept.springframework.data.marklogic;
 
+import com._4dconcept.springframework.data.marklogic.core.mapping.ContentFormat;
+
 /**
  * Helper class featuring helper methods for working with Marklogic urls.
  * Mainly intended for internal use within the framework.
@@ -35,8 +37,19 @@ public abstract class MarklogicUrlUtils {
      * @return The preferred rul name
      */
     public static String getPreferredUrlPattern(Class<?> entityClass) {
+        return getPreferredUrlPattern(entityClass, ContentFormat.XML);
+    }
+
+    /**
+     * Obtains the uri name to use for the provided class stored with the given format
+     *
+     * @param entityClass The class to determine the preferred uri name for
+     * @param format The storage format of the entity, binary documents get a {@code .bin} extension
+     * @return The preferred rul name
+     */
+    public static String getPreferredUrlPattern(Class<?> entityClass, ContentFormat format) {
         String URL_PREFIX = "/content/";
-        String URL_SUFFIX = "/#{id}.xml";
+        String URL_SUFFIX = format == ContentFormat.BINARY ? "/#{id}.bin" : "/#{id}.xml";
         return URL_PREFIX + entityClass.getSimpleName().toLowerCase() + URL_SUFFIX;
     }
 }
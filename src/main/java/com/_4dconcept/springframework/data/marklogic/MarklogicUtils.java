@@ -2,14 +2,18 @@ package com._4dconcept.springframework.data.marklogic;
 
 import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentEntity;
 import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentProperty;
+import org.springframework.core.convert.support.DefaultConversionService;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.TypeMismatchDataAccessException;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ParserContext;
 import org.springframework.expression.common.LiteralExpression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentLruCache;
 import org.springframework.util.StringUtils;
 
 import java.util.function.Supplier;
@@ -23,7 +27,14 @@ import java.util.function.Supplier;
  */
 public final class MarklogicUtils {
 
-    private static final SpelExpressionParser PARSER = new SpelExpressionParser();
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, MarklogicUtils.class.getClassLoader()));
+
+    private static final int EXPRESSION_CACHE_SIZE = 256;
+    private static final String ID_EXPRESSION = "#{id}";
+
+    private static final ConcurrentLruCache<String, ExpressionTemplate> EXPRESSION_CACHE =
+            new ConcurrentLruCache<>(EXPRESSION_CACHE_SIZE, MarklogicUtils::parseTemplate);
 
     /**
      * Private constructor to prevent instantiation.
@@ -52,22 +63,22 @@ public final class MarklogicUtils {
      */
     @Nullable
     public static String expandsExpression(@Nullable String expression, @Nullable Class<?> entityType, @Nullable Object entity, @Nullable Supplier<Object> idSupplier) {
-        return expandsExpression(expression, new DocumentExpressionContext() {
-            @Override
-            public Class<?> getEntityClass() {
-                return entityType;
-            }
+        if (!StringUtils.hasText(expression)) {
+            return expression;
+        }
 
-            @Override
-            public Object getEntity() {
-                return entity;
-            }
+        return EXPRESSION_CACHE.get(expression).expand(new DocumentExpressionContext(entityType, entity, idSupplier));
+    }
 
-            @Override
-            public Object getId() {
-                return idSupplier != null ? idSupplier.get() : null;
-            }
-        });
+    /**
+     * Parses and caches the given expression without expanding it, so that later expansions skip the parsing step.
+     *
+     * @param expression the expression to prepare
+     */
+    public static void prepareExpression(@Nullable String expression) {
+        if (StringUtils.hasText(expression)) {
+            EXPRESSION_CACHE.get(expression);
+        }
     }
 
     @Nullable
@@ -104,46 +115,89 @@ public final class MarklogicUtils {
     }
 
     /**
-     * Expands the given expression using the provided context.
+     * Parses the given expression once. Literal expressions are detected so that they never reach SpEL and the
+     * common "prefix#{id}suffix" pattern is expanded without SpEL evaluation.
      *
-     * @param expression the collection to expand
-     * @param context the context to use during resolution
-     * @return the expanded expression. If the given expression is a literal or null, it is return as it.
+     * @param expression the expression to parse
+     * @return the template to use to expand the expression
      */
-    @Nullable
-    private static String expandsExpression(@Nullable String expression, Object context) {
-        Expression spelExpression = detectExpression(expression);
-        return spelExpression == null ? expression : spelExpression.getValue(context, String.class);
+    private static ExpressionTemplate parseTemplate(String expression) {
+        int idIndex = expression.indexOf(ID_EXPRESSION);
+        if (idIndex >= 0 && expression.indexOf("#{") == idIndex && expression.indexOf("#{", idIndex + 1) < 0) {
+            return new IdExpressionTemplate(expression.substring(0, idIndex), expression.substring(idIndex + ID_EXPRESSION.length()));
+        }
+
+        Expression spelExpression = PARSER.parseExpression(expression, ParserContext.TEMPLATE_EXPRESSION);
+
+        if (spelExpression instanceof LiteralExpression) {
+            return context -> expression;
+        }
+
+        return context -> spelExpression.getValue(context, String.class);
+    }
+
+    private interface ExpressionTemplate {
+        @Nullable
+        String expand(DocumentExpressionContext context);
     }
 
     /**
-     * Returns a SpEL {@link Expression} for the uri pattern expressed if present or {@literal null} otherwise.
-     * Will also return {@literal null} if the uri pattern {@link String} evaluates
-     * to a {@link LiteralExpression} (indicating that no subsequent evaluation is necessary).
-     *
-     * @param urlPattern can be {@literal null}
-     * @return the dynamic Expression if any or {@literal null}
+     * Expands expressions only referencing the id (ie. the default "/content/type/#{id}.xml" uri) without SpEL
+     * evaluation. Mimics SpEL template rendering : the id is converted to String and a null id renders as empty.
      */
-    @Nullable
-    private static Expression detectExpression(@Nullable String urlPattern) {
-        if (!StringUtils.hasText(urlPattern)) {
-            return null;
+    private static class IdExpressionTemplate implements ExpressionTemplate {
+
+        private final String prefix;
+        private final String suffix;
+
+        IdExpressionTemplate(String prefix, String suffix) {
+            this.prefix = prefix;
+            this.suffix = suffix;
         }
 
-        Expression expression = PARSER.parseExpression(urlPattern, ParserContext.TEMPLATE_EXPRESSION);
+        @Nullable
+        @Override
+        public String expand(DocumentExpressionContext context) {
+            Object id = context.getId();
+            String value = id == null ? null : DefaultConversionService.getSharedInstance().convert(id, String.class);
 
-        return expression instanceof LiteralExpression ? null : expression;
+            if (prefix.isEmpty() && suffix.isEmpty()) {
+                return value;
+            }
+
+            return value == null ? prefix + suffix : prefix + value + suffix;
+        }
     }
 
-    private interface DocumentExpressionContext {
+    /**
+     * Root object of uri and collection expressions. Public so that SpEL can compile expressions referencing it.
+     */
+    public static final class DocumentExpressionContext {
+
+        private final @Nullable Class<?> entityClass;
+        private final @Nullable Object entity;
+        private final @Nullable Supplier<Object> idSupplier;
+
+        DocumentExpressionContext(@Nullable Class<?> entityClass, @Nullable Object entity, @Nullable Supplier<Object> idSupplier) {
+            this.entityClass = entityClass;
+            this.entity = entity;
+            this.idSupplier = idSupplier;
+        }
+
         @Nullable
-        Class<?> getEntityClass();
+        public Class<?> getEntityClass() {
+            return entityClass;
+        }
 
         @Nullable
-        Object getEntity();
+        public Object getEntity() {
+            return entity;
+        }
 
         @Nullable
-        Object getId();
+        public Object getId() {
+            return idSupplier != null ? idSupplier.get() : null;
+        }
     }
 
 }
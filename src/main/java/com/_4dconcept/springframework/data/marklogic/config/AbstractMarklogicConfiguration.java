@@ -18,8 +18,11 @@ package com._4dconcept.springframework.data.marklogic.config;
 import com._4dconcept.springframework.data.marklogic.core.MarklogicFactoryBean;
 import com._4dconcept.springframework.data.marklogic.core.MarklogicTemplate;
 import com._4dconcept.springframework.data.marklogic.core.convert.MappingMarklogicConverter;
+import com._4dconcept.springframework.data.marklogic.core.hedge.MarklogicHedgingPolicy;
+import com._4dconcept.springframework.data.marklogic.core.id.IdGenerator;
 import com._4dconcept.springframework.data.marklogic.core.mapping.Document;
 import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicMappingContext;
+import com._4dconcept.springframework.data.marklogic.core.retry.MarklogicRetryPolicy;
 import com.marklogic.xcc.ContentSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +37,9 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -53,6 +58,20 @@ public abstract class AbstractMarklogicConfiguration {
     @Autowired(required = false)
     private GenericConversionService conversionService;
 
+    @Autowired(required = false)
+    private List<IdGenerator> idGenerators = Collections.emptyList();
+
+    @Autowired(required = false)
+    @Nullable
+    private MarklogicRetryPolicy retryPolicy;
+
+    @Autowired(required = false)
+    @Nullable
+    private MarklogicHedgingPolicy hedgingPolicy;
+
+    @Nullable
+    private Set<Class<?>> initialEntitySet;
+
     protected abstract URI getMarklogicUri();
 
     protected void beforeMarklogicTemplateCreation(ContentSource contentSource) {
@@ -67,17 +86,39 @@ public abstract class AbstractMarklogicConfiguration {
         LOGGER.info("Init marklogic connexion at {}:{}", marklogicUri.getHost(), marklogicUri.getPort());
         MarklogicFactoryBean marklogicFactoryBean = new MarklogicFactoryBean();
         marklogicFactoryBean.setUri(marklogicUri);
+        configureMarklogicFactoryBean(marklogicFactoryBean);
         return marklogicFactoryBean;
     }
 
+    /**
+     * Hook to customize the {@link MarklogicFactoryBean} before the content source creation, for instance to enable
+     * session pooling with {@link MarklogicFactoryBean#setPoolEnabled(boolean)}.
+     *
+     * @param marklogicFactoryBean the factory bean to customize
+     */
+    protected void configureMarklogicFactoryBean(MarklogicFactoryBean marklogicFactoryBean) {
+    }
+
     @Bean
     public MarklogicTemplate marklogicTemplate(ContentSource contentSource) throws ClassNotFoundException {
         beforeMarklogicTemplateCreation(contentSource);
         MarklogicTemplate marklogicTemplate = new MarklogicTemplate(contentSource, mappingMarklogicConverter());
+        idGenerators.forEach(marklogicTemplate::registerIdGenerator);
+        marklogicTemplate.setRetryPolicy(retryPolicy);
+        marklogicTemplate.setHedgingPolicy(hedgingPolicy);
+        marklogicTemplate.setDefaultTimeout(getDefaultTimeout());
         afterMarklogicTemplateCreation(marklogicTemplate);
         return marklogicTemplate;
     }
 
+    @Bean
+    public MarklogicWarmup marklogicWarmup(ContentSource contentSource, MarklogicTemplate marklogicTemplate) throws ClassNotFoundException {
+        MarklogicWarmup marklogicWarmup = new MarklogicWarmup(contentSource, marklogicTemplate, getInitialEntitySet());
+        marklogicWarmup.setEnabled(isWarmupEnabled());
+        configureWarmup(marklogicWarmup);
+        return marklogicWarmup;
+    }
+
     /**
      * Return the base package to scan for mapped {@link Document}s. Will return the package name of the configuration
      * class' (the concrete class, not this one here) by default. So if you have a {@code com.acme.AppConfig} extending
@@ -93,6 +134,59 @@ public abstract class AbstractMarklogicConfiguration {
         return mappingBasePackage == null ? null : mappingBasePackage.getName();
     }
 
+    /**
+     * Whether the build time generated {@link MarklogicEntityIndex} is read, when available, instead of scanning the
+     * mapping base package. Disabled by default as the index is only reliable when the {@link MarklogicEntityIndexProcessor}
+     * runs on full builds of the project holding the entities. Classpath scanning is still used when the index holds no
+     * entity of the mapping base package.
+     *
+     * @return true to use the entity index when available
+     * @see MarklogicEntityIndexProcessor
+     */
+    protected boolean useEntityIndex() {
+        return false;
+    }
+
+    /**
+     * Whether the metadata of the initial entities is eagerly built at startup instead of on first use. Disabled by
+     * default.
+     *
+     * @return true to enable the metadata warm-up
+     * @see MarklogicMetadataWarmup
+     */
+    protected boolean isMetadataWarmupEnabled() {
+        return false;
+    }
+
+    /**
+     * Whether the Marklogic access layer is warmed up when the application context starts. Disabled by default.
+     *
+     * @return true to enable the startup warm-up
+     * @see MarklogicWarmup
+     */
+    protected boolean isWarmupEnabled() {
+        return false;
+    }
+
+    /**
+     * Hook to customize the {@link MarklogicWarmup}, for instance to register representative reads with
+     * {@link MarklogicWarmup#addRead(com._4dconcept.springframework.data.marklogic.core.MarklogicSessionCallback)}.
+     *
+     * @param marklogicWarmup the warm-up to customize
+     */
+    protected void configureWarmup(MarklogicWarmup marklogicWarmup) {
+    }
+
+    /**
+     * Return the maximum duration of the template operations that do not declare their own timeout. None by default.
+     *
+     * @return the default operation timeout or {@literal null} for unbounded operations
+     */
+    @Nullable
+    protected Duration getDefaultTimeout() {
+        return null;
+    }
+
     /**
      * Creates a {@link MarklogicMappingContext} equipped with entity classes scanned from the mapping base package.
      *
@@ -115,26 +209,60 @@ public abstract class AbstractMarklogicConfiguration {
     public MappingMarklogicConverter mappingMarklogicConverter() throws ClassNotFoundException {
         MappingMarklogicConverter converter = new MappingMarklogicConverter(marklogicMappingContext(), conversionService);
         converter.setConverters(getConverters());
+
+        if (isMetadataWarmupEnabled()) {
+            new MarklogicMetadataWarmup(converter.getMappingContext(), converter).warmup(getInitialEntitySet());
+        }
+
         return converter;
     }
 
     private Set<Class<?>> getInitialEntitySet() throws ClassNotFoundException {
+        if (initialEntitySet != null) {
+            return initialEntitySet;
+        }
+
         String basePackage = getMappingBasePackage();
-        Set<Class<?>> initialEntitySet = new HashSet<>();
+        Set<Class<?>> entitySet = new HashSet<>();
 
         if (StringUtils.hasText(basePackage)) {
-            ClassPathScanningCandidateComponentProvider componentProvider = new ClassPathScanningCandidateComponentProvider(false);
-            componentProvider.addIncludeFilter(new AnnotationTypeFilter(Document.class));
+            long start = System.currentTimeMillis();
+            ClassLoader classLoader = AbstractMarklogicConfiguration.class.getClassLoader();
+            MarklogicEntityIndex entityIndex = useEntityIndex() ? loadEntityIndex(classLoader) : null;
+            Set<String> indexedClassNames = entityIndex != null ? entityIndex.getEntityClassNames(basePackage) : Collections.emptySet();
 
-            for (BeanDefinition candidate : componentProvider.findCandidateComponents(basePackage)) {
-                String beanClassName = candidate.getBeanClassName();
-                if (beanClassName != null) {
-                    initialEntitySet.add(ClassUtils.forName(beanClassName, AbstractMarklogicConfiguration.class.getClassLoader()));
+            if (!indexedClassNames.isEmpty()) {
+                for (String entityClassName : indexedClassNames) {
+                    entitySet.add(ClassUtils.forName(entityClassName, classLoader));
+                }
+            } else {
+                ClassPathScanningCandidateComponentProvider componentProvider = new ClassPathScanningCandidateComponentProvider(false);
+                componentProvider.addIncludeFilter(new AnnotationTypeFilter(Document.class));
+
+                for (BeanDefinition candidate : componentProvider.findCandidateComponents(basePackage)) {
+                    String beanClassName = candidate.getBeanClassName();
+                    if (beanClassName != null) {
+                        entitySet.add(ClassUtils.forName(beanClassName, classLoader));
+                    }
                 }
             }
+
+            LOGGER.info("Found {} Marklogic entities in {} ms using {}", entitySet.size(), System.currentTimeMillis() - start,
+                    !indexedClassNames.isEmpty() ? "the entity index" : "classpath scanning");
         }
 
-        return initialEntitySet;
+        initialEntitySet = entitySet;
+        return entitySet;
+    }
+
+    @Nullable
+    private MarklogicEntityIndex loadEntityIndex(ClassLoader classLoader) {
+        try {
+            return MarklogicEntityIndex.load(classLoader);
+        } catch (IOException ioe) {
+            LOGGER.warn("Unable to read the Marklogic entity index, falling back to classpath scanning", ioe);
+            return null;
+        }
     }
 
     protected List<Object> getConverters() {
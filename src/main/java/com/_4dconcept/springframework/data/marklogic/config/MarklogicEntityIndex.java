@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.config;
+
+import com._4dconcept.springframework.data.marklogic.core.mapping.Document;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Build time generated index of the {@link Document} annotated entities. Used as a replacement of classpath scanning
+ * when available.
+ *
+ * @author Stéphane Toussaint
+ * @see MarklogicEntityIndexProcessor
+ */
+public final class MarklogicEntityIndex {
+
+    /**
+     * Location of the index files. Each line holds the binary name of an entity class.
+     */
+    public static final String INDEX_LOCATION = "META-INF/spring-data-marklogic.entities";
+
+    private final Set<String> entityClassNames;
+
+    MarklogicEntityIndex(Set<String> entityClassNames) {
+        this.entityClassNames = Collections.unmodifiableSet(new TreeSet<>(entityClassNames));
+    }
+
+    /**
+     * Load and merge all the index files available to the given class loader.
+     *
+     * @param classLoader the class loader to load indexes with
+     * @return the merged index or {@literal null} if no index file is available
+     * @throws IOException if an index file can not be read
+     */
+    @Nullable
+    public static MarklogicEntityIndex load(ClassLoader classLoader) throws IOException {
+        Enumeration<URL> resources = classLoader.getResources(INDEX_LOCATION);
+        if (!resources.hasMoreElements()) {
+            return null;
+        }
+
+        Set<String> entityClassNames = new TreeSet<>();
+        while (resources.hasMoreElements()) {
+            URL resource = resources.nextElement();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+                reader.lines()
+                        .map(String::trim)
+                        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                        .forEach(entityClassNames::add);
+            }
+        }
+
+        return new MarklogicEntityIndex(entityClassNames);
+    }
+
+    /**
+     * @param basePackage the base package entities must belong to
+     * @return the names of the indexed entities located in the given package or one of its sub packages
+     */
+    public Set<String> getEntityClassNames(String basePackage) {
+        if (!StringUtils.hasText(basePackage)) {
+            return entityClassNames;
+        }
+
+        String packagePrefix = basePackage + ".";
+        return entityClassNames.stream()
+                .filter(className -> className.startsWith(packagePrefix))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.config;
+
+import com._4dconcept.springframework.data.marklogic.core.mapping.Document;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor generating the {@link MarklogicEntityIndex} of the compiled {@link Document} annotated
+ * entities. Only concrete top level or static nested classes are indexed, the same way classpath scanning would.
+ * <p>
+ * The processor is not registered as a service so that it never runs implicitly on consumer builds. Declare it
+ * explicitly on the project holding the entities, with {@code -processor} or as an {@code annotationProcessor}
+ * dependency, and enable {@link AbstractMarklogicConfiguration#useEntityIndex()}. Note that incremental compilation
+ * may produce a partial index; a full build regenerates it.
+ *
+ * @author Stéphane Toussaint
+ */
+@SupportedAnnotationTypes("com._4dconcept.springframework.data.marklogic.core.mapping.Document")
+public class MarklogicEntityIndexProcessor extends AbstractProcessor {
+
+    private final Set<String> entityClassNames = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement documentType = processingEnv.getElementUtils().getTypeElement(Document.class.getName());
+
+        if (documentType != null) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(documentType)) {
+                if (isCandidate(element)) {
+                    entityClassNames.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+                }
+            }
+        }
+
+        if (roundEnv.processingOver() && !entityClassNames.isEmpty()) {
+            writeIndex();
+        }
+
+        return false;
+    }
+
+    private boolean isCandidate(Element element) {
+        if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+
+        NestingKind nestingKind = ((TypeElement) element).getNestingKind();
+        return nestingKind == NestingKind.TOP_LEVEL
+                || (nestingKind == NestingKind.MEMBER && element.getModifiers().contains(Modifier.STATIC));
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", MarklogicEntityIndex.INDEX_LOCATION);
+            try (Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String entityClassName : entityClassNames) {
+                    writer.write(entityClassName);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException ioe) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write Marklogic entity index : " + ioe.getMessage());
+        }
+    }
+}
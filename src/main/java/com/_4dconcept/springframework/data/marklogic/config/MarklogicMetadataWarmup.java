@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.config;
+
+import com._4dconcept.springframework.data.marklogic.MarklogicUtils;
+import com._4dconcept.springframework.data.marklogic.core.convert.MappingMarklogicConverter;
+import com._4dconcept.springframework.data.marklogic.core.cts.CTSQuerySerializer;
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicMappingContext;
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentEntity;
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentProperty;
+import com._4dconcept.springframework.data.marklogic.core.query.QueryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StopWatch;
+
+import javax.xml.bind.JAXBException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Eagerly builds the metadata lazily computed on first use of each entity : persistent entities, property QNames,
+ * JAXB contexts, uri and collection expressions and query construction. Each phase is timed and reported.
+ *
+ * @author Stéphane Toussaint
+ * @see AbstractMarklogicConfiguration#isMetadataWarmupEnabled()
+ */
+public class MarklogicMetadataWarmup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MarklogicMetadataWarmup.class);
+
+    private final MarklogicMappingContext mappingContext;
+    private final MappingMarklogicConverter converter;
+
+    public MarklogicMetadataWarmup(MarklogicMappingContext mappingContext, MappingMarklogicConverter converter) {
+        this.mappingContext = mappingContext;
+        this.converter = converter;
+    }
+
+    /**
+     * Warm up the metadata of the given entity types.
+     *
+     * @param entityTypes the entity types to prepare
+     * @return the timing of each phase
+     */
+    public StopWatch warmup(Iterable<Class<?>> entityTypes) {
+        StopWatch stopWatch = new StopWatch("Marklogic metadata warm-up");
+
+        stopWatch.start("persistent entities");
+        List<MarklogicPersistentEntity<?>> entities = new ArrayList<>();
+        for (Class<?> entityType : entityTypes) {
+            entities.add(mappingContext.getRequiredPersistentEntity(entityType));
+        }
+        stopWatch.stop();
+
+        stopWatch.start("qualified names");
+        for (MarklogicPersistentEntity<?> entity : entities) {
+            entity.doWithProperties((MarklogicPersistentProperty property) -> {
+                try {
+                    property.getQName();
+                } catch (IllegalArgumentException iae) {
+                    LOGGER.debug("Unable to resolve QName of {}.{} : {}", entity.getType().getName(), property.getName(), iae.getMessage());
+                }
+            });
+        }
+        stopWatch.stop();
+
+        stopWatch.start("jaxb contexts");
+        for (MarklogicPersistentEntity<?> entity : entities) {
+            try {
+                converter.prepareConversion(entity.getType());
+            } catch (JAXBException | RuntimeException e) {
+                LOGGER.debug("Unable to prepare conversion of {} : {}", entity.getType().getName(), e.getMessage());
+            }
+        }
+        stopWatch.stop();
+
+        stopWatch.start("expressions");
+        for (MarklogicPersistentEntity<?> entity : entities) {
+            MarklogicUtils.prepareExpression(entity.getUri());
+            MarklogicUtils.prepareExpression(entity.getDefaultCollection());
+        }
+        stopWatch.stop();
+
+        stopWatch.start("query plans");
+        for (MarklogicPersistentEntity<?> entity : entities) {
+            try {
+                new CTSQuerySerializer(new QueryBuilder(mappingContext).ofType(entity.getType()).build()).asCtsQuery();
+            } catch (RuntimeException re) {
+                LOGGER.debug("Unable to prepare query of {} : {}", entity.getType().getName(), re.getMessage());
+            }
+        }
+        stopWatch.stop();
+
+        LOGGER.info("Marklogic metadata of {} entities warmed up in {} ms", entities.size(), stopWatch.getTotalTimeMillis());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(stopWatch.prettyPrint());
+        }
+
+        return stopWatch;
+    }
+}
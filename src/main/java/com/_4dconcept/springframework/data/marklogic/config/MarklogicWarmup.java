@@ -0,0 +1,304 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.config;
+
+import com._4dconcept.springframework.data.marklogic.core.MarklogicOperations;
+import com._4dconcept.springframework.data.marklogic.core.MarklogicSessionCallback;
+import com._4dconcept.springframework.data.marklogic.core.convert.MappingMarklogicConverter;
+import com._4dconcept.springframework.data.marklogic.core.query.Query;
+import com._4dconcept.springframework.data.marklogic.core.query.QueryBuilder;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Session;
+import com.marklogic.xcc.exceptions.RequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StopWatch;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Warms up the Marklogic access layer when the application context starts, before it reports itself ready :
+ * <ul>
+ *     <li>opens sessions against the {@link ContentSource} and validates them concurrently, filling a session pool if
+ *     any,</li>
+ *     <li>builds the metadata, queries and converters of the entities (see {@link MarklogicMetadataWarmup}),</li>
+ *     <li>runs synthetic reads for each entity, and the registered representative reads, several times. A failing read
+ *     does not prevent the others from running.</li>
+ * </ul>
+ * Failures are logged and do not prevent the application from starting, unless {@link #setFailOnError(boolean)} is
+ * set. As the warm-up runs during the context refresh, Spring Boot readiness probes only succeed once it completes.
+ *
+ * @author Stéphane Toussaint
+ * @see AbstractMarklogicConfiguration#isWarmupEnabled()
+ */
+@ManagedResource(description = "Marklogic warm-up")
+public class MarklogicWarmup implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MarklogicWarmup.class);
+
+    private final ContentSource contentSource;
+    private final MarklogicOperations operations;
+    private final Iterable<Class<?>> entityTypes;
+
+    private final List<MarklogicSessionCallback<?>> reads = new ArrayList<>();
+
+    private boolean enabled = true;
+    private int sessionCount = 4;
+    private String validationQuery = "fn:true()";
+    private int iterations = 10;
+    private boolean failOnError = false;
+
+    private volatile boolean running;
+    private volatile boolean ready;
+    private volatile long duration = -1;
+
+    public MarklogicWarmup(ContentSource contentSource, MarklogicOperations operations, Iterable<Class<?>> entityTypes) {
+        this.contentSource = contentSource;
+        this.operations = operations;
+        this.entityTypes = entityTypes;
+    }
+
+    /**
+     * @param enabled whether the warm-up runs at startup, true by default
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param sessionCount the number of sessions opened and validated at once, 4 by default
+     */
+    public void setSessionCount(int sessionCount) {
+        Assert.isTrue(sessionCount >= 0, "sessionCount must not be negative");
+        this.sessionCount = sessionCount;
+    }
+
+    /**
+     * @param validationQuery the query used to validate the sessions, {@code fn:true()} by default
+     */
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+
+    /**
+     * @param iterations the number of times the reads are run, 10 by default
+     */
+    public void setIterations(int iterations) {
+        Assert.isTrue(iterations >= 0, "iterations must not be negative");
+        this.iterations = iterations;
+    }
+
+    /**
+     * @param failOnError whether a warm-up failure prevents the application from starting, false by default
+     */
+    public void setFailOnError(boolean failOnError) {
+        this.failOnError = failOnError;
+    }
+
+    /**
+     * Register a representative read, run in addition to the synthetic reads of each entity.
+     *
+     * @param read the read to run
+     */
+    public void addRead(MarklogicSessionCallback<?> read) {
+        reads.add(read);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (enabled) {
+            warmup();
+        }
+        ready = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return true once the warm-up is complete (or disabled)
+     */
+    @ManagedAttribute(description = "Whether the warm-up is complete")
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the warm-up duration in milliseconds, -1 if it did not run
+     */
+    @ManagedAttribute(description = "Warm-up duration in milliseconds")
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Run the warm-up phases.
+     *
+     * @return the timing of each phase
+     */
+    public StopWatch warmup() {
+        StopWatch stopWatch = new StopWatch("Marklogic warm-up");
+
+        stopWatch.start("sessions");
+        runPhase("sessions", this::warmupSessions);
+        stopWatch.stop();
+
+        stopWatch.start("metadata");
+        runPhase("metadata", this::warmupMetadata);
+        stopWatch.stop();
+
+        stopWatch.start("reads");
+        runPhase("reads", this::warmupReads);
+        stopWatch.stop();
+
+        duration = stopWatch.getTotalTimeMillis();
+        LOGGER.info("Marklogic warm-up completed in {} ms", duration);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(stopWatch.prettyPrint());
+        }
+
+        return stopWatch;
+    }
+
+    private void runPhase(String phase, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException re) {
+            if (failOnError) {
+                throw new IllegalStateException("Marklogic warm-up failed during " + phase, re);
+            }
+            LOGGER.warn("Marklogic warm-up of {} failed : {}", phase, re.getMessage());
+        }
+    }
+
+    private void warmupSessions() {
+        if (sessionCount == 0) {
+            return;
+        }
+
+        List<Session> sessions = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(sessionCount, new CustomizableThreadFactory("marklogic-warmup-"));
+        try {
+            for (int i = 0; i < sessionCount; i++) {
+                sessions.add(contentSource.newSession());
+            }
+
+            // Validate every session at once, so that a pool has to open as many connections
+            List<Future<?>> validations = new ArrayList<>();
+            for (Session session : sessions) {
+                validations.add(executor.submit(() -> validateSession(session)));
+            }
+
+            RuntimeException failure = null;
+            for (Future<?> validation : validations) {
+                try {
+                    validation.get();
+                } catch (ExecutionException ee) {
+                    RuntimeException cause = (ee.getCause() instanceof RuntimeException)
+                            ? (RuntimeException) ee.getCause()
+                            : new IllegalStateException("Unable to validate Marklogic session", ee.getCause());
+                    if (failure == null) {
+                        failure = cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while validating Marklogic sessions", ie);
+                }
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+            sessions.forEach(Session::close);
+        }
+    }
+
+    private void validateSession(Session session) {
+        try {
+            session.submitRequest(session.newAdhocQuery(validationQuery)).close();
+        } catch (RequestException re) {
+            throw new IllegalStateException("Unable to validate Marklogic session", re);
+        }
+    }
+
+    private void warmupMetadata() {
+        if (operations.getConverter() instanceof MappingMarklogicConverter) {
+            MappingMarklogicConverter converter = (MappingMarklogicConverter) operations.getConverter();
+            new MarklogicMetadataWarmup(converter.getMappingContext(), converter).warmup(entityTypes);
+        }
+    }
+
+    private void warmupReads() {
+        Map<String, RuntimeException> failures = new LinkedHashMap<>();
+        for (int i = 0; i < iterations; i++) {
+            for (Class<?> entityType : entityTypes) {
+                runRead("entity " + entityType.getName(), failures, () -> {
+                    Query query = new QueryBuilder(operations).ofType(entityType).build();
+                    query.setLimit(1);
+                    operations.count(query);
+                    operations.find(query, entityType);
+                });
+            }
+
+            for (int j = 0; j < reads.size(); j++) {
+                MarklogicSessionCallback<?> read = reads.get(j);
+                runRead("read #" + j, failures, () -> operations.executeInSession(read));
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            Iterator<RuntimeException> iterator = failures.values().iterator();
+            IllegalStateException failure = new IllegalStateException("Reads failed for " + failures.keySet(), iterator.next());
+            iterator.forEachRemaining(failure::addSuppressed);
+            throw failure;
+        }
+    }
+
+    private void runRead(String target, Map<String, RuntimeException> failures, Runnable read) {
+        try {
+            read.run();
+        } catch (RuntimeException re) {
+            LOGGER.debug("Marklogic warm-up read of {} failed", target, re);
+            failures.putIfAbsent(target, re);
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core;
+
+import com._4dconcept.springframework.data.marklogic.core.mapping.LazyLoading;
+import org.springframework.lang.Nullable;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link List} implementation injected into {@link LazyLoading} annotated properties.
+ * Elements are retrieved on first access, optionally page by page. Any modification triggers the loading of the whole
+ * list so the entity can safely be saved back.
+ *
+ * @author Stéphane Toussaint
+ */
+public class LazyLoadingList<E> extends AbstractList<E> {
+
+    private final Loader<E> loader;
+    private final int pageSize;
+
+    private final Map<Integer, List<? extends E>> pages = new HashMap<>();
+    private int size = -1;
+
+    @Nullable
+    private List<E> delegate;
+
+    /**
+     * @param loader the loader used to retrieve elements
+     * @param pageSize the number of elements to fetch per round trip. 0 or less to fetch all elements at once
+     */
+    public LazyLoadingList(Loader<E> loader, int pageSize) {
+        this.loader = loader;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @return true if all elements have already been retrieved
+     */
+    public boolean isLoaded() {
+        return delegate != null;
+    }
+
+    @Override
+    public E get(int index) {
+        if (delegate != null || pageSize <= 0) {
+            return loadAll().get(index);
+        }
+
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+
+        int page = index / pageSize;
+        List<? extends E> elements = pages.computeIfAbsent(page, p -> loader.load(p * pageSize, pageSize));
+        return elements.get(index % pageSize);
+    }
+
+    @Override
+    public int size() {
+        if (delegate != null || pageSize <= 0) {
+            return loadAll().size();
+        }
+
+        if (size < 0) {
+            size = loader.count();
+        }
+
+        return size;
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return loadAll().set(index, element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        loadAll().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        E removed = loadAll().remove(index);
+        modCount++;
+        return removed;
+    }
+
+    private List<E> loadAll() {
+        if (delegate == null) {
+            delegate = new ArrayList<>(loader.loadAll());
+            pages.clear();
+        }
+        return delegate;
+    }
+
+    /**
+     * Retrieve the elements of a lazy loaded property.
+     */
+    public interface Loader<E> {
+
+        /**
+         * @return the total number of elements
+         */
+        int count();
+
+        /**
+         * @param offset the index of the first element to retrieve
+         * @param length the maximum number of elements to retrieve
+         * @return the requested elements
+         */
+        List<? extends E> load(int offset, int length);
+
+        /**
+         * @return all the elements
+         */
+        List<? extends E> loadAll();
+    }
+}
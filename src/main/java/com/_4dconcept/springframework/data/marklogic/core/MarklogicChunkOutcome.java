@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Outcome of one chunk of a chunked operation. The chunk covers the entities from {@link #getFirst()} (included) to
+ * {@link #getLast()} (excluded), all of them committed or, on failure, all of them rolled back.
+ *
+ * @author Stéphane Toussaint
+ */
+public class MarklogicChunkOutcome {
+
+    private final int index;
+    private final long first;
+    private final int count;
+    private final long bytes;
+    private final @Nullable Exception failure;
+
+    public MarklogicChunkOutcome(int index, long first, int count, long bytes, @Nullable Exception failure) {
+        this.index = index;
+        this.first = first;
+        this.count = count;
+        this.bytes = bytes;
+        this.failure = failure;
+    }
+
+    /**
+     * @return the chunk index within the operation
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the position of the first entity of the chunk
+     */
+    public long getFirst() {
+        return first;
+    }
+
+    /**
+     * @return the position following the last entity of the chunk
+     */
+    public long getLast() {
+        return first + count;
+    }
+
+    /**
+     * @return the number of entities of the chunk
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the size in bytes of the content inserted by the chunk, when known
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the failure that rolled the chunk back, if any
+     */
+    @Nullable
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+
+    @Override
+    public String toString() {
+        return "Chunk " + index + " [" + first + ", " + getLast() + "[ " + (isSuccessful() ? "committed" : "rolled back : " + failure);
+    }
+
+}
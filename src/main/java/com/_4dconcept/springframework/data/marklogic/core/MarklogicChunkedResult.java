@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a chunked operation, made of the outcome of each processed chunk.
+ *
+ * @author Stéphane Toussaint
+ */
+public class MarklogicChunkedResult {
+
+    private final long resumedFrom;
+    private final List<MarklogicChunkOutcome> outcomes = new ArrayList<>();
+
+    public MarklogicChunkedResult(long resumedFrom) {
+        this.resumedFrom = resumedFrom;
+    }
+
+    void addOutcome(MarklogicChunkOutcome outcome) {
+        outcomes.add(outcome);
+    }
+
+    /**
+     * @return the outcome of each processed chunk
+     */
+    public List<MarklogicChunkOutcome> getOutcomes() {
+        return Collections.unmodifiableList(outcomes);
+    }
+
+    /**
+     * @return whether every processed chunk has been committed
+     */
+    public boolean isSuccessful() {
+        return outcomes.stream().allMatch(MarklogicChunkOutcome::isSuccessful);
+    }
+
+    /**
+     * @return the number of committed entities
+     */
+    public long getCommittedCount() {
+        return outcomes.stream().filter(MarklogicChunkOutcome::isSuccessful).mapToLong(MarklogicChunkOutcome::getCount).sum();
+    }
+
+    /**
+     * Return the position up to which every entity has been committed, to be used as
+     * {@link MarklogicCommitPolicy#resumeFrom()} to resume the operation.
+     *
+     * @return the position of the first entity not yet committed
+     */
+    public long getCheckpoint() {
+        long checkpoint = resumedFrom;
+        for (MarklogicChunkOutcome outcome : outcomes) {
+            if (!outcome.isSuccessful()) {
+                break;
+            }
+            checkpoint = outcome.getLast();
+        }
+        return checkpoint;
+    }
+
+}
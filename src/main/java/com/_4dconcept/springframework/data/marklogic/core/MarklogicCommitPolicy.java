@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core;
+
+/**
+ * Commit policy of the chunked operations, such as {@link MarklogicOperations#saveAllChunked(Iterable, int, MarklogicCommitPolicy)}.
+ *
+ * @author Stéphane Toussaint
+ */
+public interface MarklogicCommitPolicy {
+
+    /**
+     * @return the size in bytes after which the current chunk is committed, whatever its number of documents. 0 for
+     * chunks bounded by their number of documents only.
+     */
+    default long maxChunkBytes() {
+        return 0;
+    }
+
+    /**
+     * @return whether the following chunks are processed after a failed one. By default, the operation stops at the
+     * first failed chunk.
+     */
+    default boolean continueOnError() {
+        return false;
+    }
+
+    /**
+     * @return the number of leading entities to skip, typically the {@link MarklogicChunkedResult#getCheckpoint()} of
+     * a previous interrupted operation
+     */
+    default long resumeFrom() {
+        return 0;
+    }
+
+    /**
+     * Called once each chunk has been committed or rolled back.
+     *
+     * @param outcome the chunk outcome
+     */
+    default void onChunk(MarklogicChunkOutcome outcome) {
+    }
+
+}
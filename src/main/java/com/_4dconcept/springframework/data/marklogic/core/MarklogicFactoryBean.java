@@ -15,22 +15,34 @@
  */
 package com._4dconcept.springframework.data.marklogic.core;
 
+import com._4dconcept.springframework.data.marklogic.datasource.PooledContentSource;
 import com.marklogic.xcc.ContentSource;
 import com.marklogic.xcc.ContentSourceFactory;
 import com.marklogic.xcc.SecurityOptions;
 import com.marklogic.xcc.Session;
 import com.marklogic.xcc.exceptions.XccConfigException;
 import org.springframework.beans.factory.config.AbstractFactoryBean;
+import org.springframework.core.io.Resource;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
 
 import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.security.cert.CertificateException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Convenient factory for configuring Marklogic ContentSource.
@@ -44,6 +56,26 @@ public class MarklogicFactoryBean extends AbstractFactoryBean<ContentSource> imp
     private URI uri;
     private PersistenceExceptionTranslator exceptionTranslator = DEFAULT_EXCEPTION_TRANSLATOR;
 
+    private boolean poolEnabled;
+    private int poolMaxTotal = 8;
+    private long poolMaxWait = 30000;
+    private long poolIdleTimeout = 600000;
+    private long poolLeakDetectionThreshold;
+    private @Nullable String poolValidationQuery;
+
+    private String sslProtocol = "TLS";
+    private @Nullable String[] sslEnabledProtocols = { "TLSv1.3", "TLSv1.2" };
+    private @Nullable String[] sslEnabledCipherSuites;
+    private int sslSessionCacheSize = 1000;
+    private int sslSessionTimeout = 86400;
+    private boolean trustAll;
+    private @Nullable Resource trustStore;
+    private String trustStoreType = KeyStore.getDefaultType();
+    private @Nullable String trustStorePassword;
+    private @Nullable Resource keyStore;
+    private String keyStoreType = KeyStore.getDefaultType();
+    private @Nullable String keyStorePassword;
+
     /**
      * @param uri the uri to set
      */
@@ -51,6 +83,138 @@ public class MarklogicFactoryBean extends AbstractFactoryBean<ContentSource> imp
         this.uri = uri;
     }
 
+    /**
+     * @param poolEnabled whether sessions are pooled with a {@link PooledContentSource}, disabled by default
+     */
+    public void setPoolEnabled(boolean poolEnabled) {
+        this.poolEnabled = poolEnabled;
+    }
+
+    /**
+     * @param poolMaxTotal the maximum number of borrowed pooled sessions
+     * @see PooledContentSource#setMaxTotal(int)
+     */
+    public void setPoolMaxTotal(int poolMaxTotal) {
+        this.poolMaxTotal = poolMaxTotal;
+    }
+
+    /**
+     * @param poolMaxWait the maximum time in milliseconds to wait for a pooled session
+     * @see PooledContentSource#setMaxWait(long)
+     */
+    public void setPoolMaxWait(long poolMaxWait) {
+        this.poolMaxWait = poolMaxWait;
+    }
+
+    /**
+     * @param poolIdleTimeout the time in milliseconds after which an idle pooled session is evicted
+     * @see PooledContentSource#setIdleTimeout(long)
+     */
+    public void setPoolIdleTimeout(long poolIdleTimeout) {
+        this.poolIdleTimeout = poolIdleTimeout;
+    }
+
+    /**
+     * @param poolLeakDetectionThreshold the time in milliseconds after which a borrowed session is reported as leaked
+     * @see PooledContentSource#setLeakDetectionThreshold(long)
+     */
+    public void setPoolLeakDetectionThreshold(long poolLeakDetectionThreshold) {
+        this.poolLeakDetectionThreshold = poolLeakDetectionThreshold;
+    }
+
+    /**
+     * @param poolValidationQuery the query used to validate idle pooled sessions
+     * @see PooledContentSource#setValidationQuery(String)
+     */
+    public void setPoolValidationQuery(@Nullable String poolValidationQuery) {
+        this.poolValidationQuery = poolValidationQuery;
+    }
+
+    /**
+     * @param sslProtocol the {@link SSLContext} protocol of {@code xccs} content sources, {@code TLS} by default
+     */
+    public void setSslProtocol(String sslProtocol) {
+        this.sslProtocol = sslProtocol;
+    }
+
+    /**
+     * @param sslEnabledProtocols the enabled TLS protocols, {@code TLSv1.3} and {@code TLSv1.2} by default,
+     *                            {@literal null} for the JVM defaults
+     */
+    public void setSslEnabledProtocols(@Nullable String... sslEnabledProtocols) {
+        this.sslEnabledProtocols = sslEnabledProtocols;
+    }
+
+    /**
+     * @param sslEnabledCipherSuites the enabled cipher suites, {@literal null} (default) for the JVM defaults
+     */
+    public void setSslEnabledCipherSuites(@Nullable String... sslEnabledCipherSuites) {
+        this.sslEnabledCipherSuites = sslEnabledCipherSuites;
+    }
+
+    /**
+     * @param sslSessionCacheSize the number of TLS sessions kept for resumption, 1000 by default, 0 for no limit
+     */
+    public void setSslSessionCacheSize(int sslSessionCacheSize) {
+        this.sslSessionCacheSize = sslSessionCacheSize;
+    }
+
+    /**
+     * @param sslSessionTimeout the time in seconds a TLS session can be resumed, 86400 by default, 0 for no limit
+     */
+    public void setSslSessionTimeout(int sslSessionTimeout) {
+        this.sslSessionTimeout = sslSessionTimeout;
+    }
+
+    /**
+     * @param trustAll whether any server certificate is trusted, disabled by default. For development only.
+     */
+    public void setTrustAll(boolean trustAll) {
+        this.trustAll = trustAll;
+    }
+
+    /**
+     * @param trustStore the trust store of the server certificates, the JVM one by default
+     */
+    public void setTrustStore(@Nullable Resource trustStore) {
+        this.trustStore = trustStore;
+    }
+
+    /**
+     * @param trustStoreType the trust store type, {@link KeyStore#getDefaultType()} by default
+     */
+    public void setTrustStoreType(String trustStoreType) {
+        this.trustStoreType = trustStoreType;
+    }
+
+    /**
+     * @param trustStorePassword the trust store password
+     */
+    public void setTrustStorePassword(@Nullable String trustStorePassword) {
+        this.trustStorePassword = trustStorePassword;
+    }
+
+    /**
+     * @param keyStore the key store of the client certificate, none by default
+     */
+    public void setKeyStore(@Nullable Resource keyStore) {
+        this.keyStore = keyStore;
+    }
+
+    /**
+     * @param keyStoreType the key store type, {@link KeyStore#getDefaultType()} by default
+     */
+    public void setKeyStoreType(String keyStoreType) {
+        this.keyStoreType = keyStoreType;
+    }
+
+    /**
+     * @param keyStorePassword the key store and key password
+     */
+    public void setKeyStorePassword(@Nullable String keyStorePassword) {
+        this.keyStorePassword = keyStorePassword;
+    }
+
     @Override
     public Class<?> getObjectType() {
         return ContentSource.class;
@@ -58,6 +222,31 @@ public class MarklogicFactoryBean extends AbstractFactoryBean<ContentSource> imp
 
     @Override
     public ContentSource createInstance() throws Exception {
+        ContentSource contentSource = createTargetInstance();
+
+        if (!poolEnabled) {
+            return contentSource;
+        }
+
+        PooledContentSource pooledContentSource = new PooledContentSource();
+        pooledContentSource.setTargetContentSource(contentSource);
+        pooledContentSource.setMaxTotal(poolMaxTotal);
+        pooledContentSource.setMaxWait(poolMaxWait);
+        pooledContentSource.setIdleTimeout(poolIdleTimeout);
+        pooledContentSource.setLeakDetectionThreshold(poolLeakDetectionThreshold);
+        pooledContentSource.setValidationQuery(poolValidationQuery);
+        pooledContentSource.afterPropertiesSet();
+        return pooledContentSource;
+    }
+
+    @Override
+    protected void destroyInstance(@Nullable ContentSource instance) {
+        if (instance instanceof PooledContentSource) {
+            ((PooledContentSource) instance).destroy();
+        }
+    }
+
+    private ContentSource createTargetInstance() throws Exception {
         if (uri.getScheme().equals("xccs")) {
             return createSecuredInstance();
         }
@@ -66,59 +255,89 @@ public class MarklogicFactoryBean extends AbstractFactoryBean<ContentSource> imp
     }
 
     /**
-     * Construct an instance that may be used to insert content.
+     * Construct an instance that may be used to insert content over TLS.
      *
      * @throws XccConfigException
      *             Thrown if a {@link Session} cannot be created. This usually indicates that the
      *             host/port or user credentials are incorrect.
      */
     private ContentSource createSecuredInstance() throws Exception {
-        TrustManager[] trustManagers;
-
-
-        // Trust anyone.
-        trustManagers = new TrustManager[] { new X509TrustManager() {
-            public void checkClientTrusted(X509Certificate[] x509Certificates, String s)
-                    throws CertificateException {
-                // nothing to do
-            }
-
-            public void checkServerTrusted(X509Certificate[] x509Certificates, String s)
-                    throws CertificateException {
-                // nothing to do
-            }
+        return ContentSourceFactory.newContentSource(uri, createSecurityOptions());
+    }
 
-            public X509Certificate[] getAcceptedIssuers() {
-                return null;
-            }
-        } };
+    /**
+     * Create the security options of an {@code xccs} content source from the TLS settings.
+     *
+     * @return the security options
+     * @throws IllegalStateException if none of the enabled SSL protocols is supported by the JVM
+     * @throws GeneralSecurityException if the SSL context cannot be initialized
+     * @throws IOException if a key or trust store cannot be read
+     */
+    protected SecurityOptions createSecurityOptions() throws GeneralSecurityException, IOException {
+        SSLContext sslContext = SSLContext.getInstance(sslProtocol);
+        sslContext.init(createKeyManagers(), createTrustManagers(), null);
 
-        String clientJKS = null;
+        // Resumed sessions skip the full handshake of the following connections to the same host
+        SSLSessionContext clientSessionContext = sslContext.getClientSessionContext();
+        clientSessionContext.setSessionCacheSize(sslSessionCacheSize);
+        clientSessionContext.setSessionTimeout(sslSessionTimeout);
 
-        String passphrase = "";
+        SecurityOptions securityOptions = new SecurityOptions(sslContext);
+        if (sslEnabledProtocols != null) {
+            // Older JVMs do not support TLSv1.3
+            List<String> supportedProtocols = Arrays.asList(sslContext.getSupportedSSLParameters().getProtocols());
+            String[] enabledProtocols = Arrays.stream(sslEnabledProtocols)
+                    .filter(supportedProtocols::contains)
+                    .toArray(String[]::new);
+            Assert.state(enabledProtocols.length > 0, () -> "None of the SSL protocols " + Arrays.toString(sslEnabledProtocols)
+                    + " is supported by the JVM, supported protocols are " + supportedProtocols);
+            securityOptions.setEnabledProtocols(enabledProtocols);
+        }
+        if (sslEnabledCipherSuites != null) {
+            securityOptions.setEnabledCipherSuites(sslEnabledCipherSuites);
+        }
 
-        KeyManager[] keyManagers;
+        return securityOptions;
+    }
 
-        keyManagers = null;
+    @Nullable
+    private KeyManager[] createKeyManagers() throws GeneralSecurityException, IOException {
+        if (keyStore == null) {
+            return null;
+        }
 
-        // Get an SSLContext that supports the desired protocol; SSLv3 or TLSv1.
-        SSLContext sslContext = SSLContext.getInstance("TLSv1");
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(loadKeyStore(keyStore, keyStoreType, keyStorePassword), toCharArray(keyStorePassword));
+        return keyManagerFactory.getKeyManagers();
+    }
 
-        // Initialize the SSL context with key and trust managers.
-        sslContext.init(keyManagers, trustManagers, null);
+    @Nullable
+    private TrustManager[] createTrustManagers() throws GeneralSecurityException, IOException {
+        if (trustAll) {
+            return new TrustManager[] { new TrustAllManager() };
+        }
 
-        // Create a security options object for use by the secure content source.
-        SecurityOptions securityOptions = new SecurityOptions(sslContext);
+        if (trustStore == null) {
+            // Default JVM trust store
+            return null;
+        }
 
-        // Limit acceptable protocols; SSLv3 and/or TLSv1 (optional)
-        securityOptions.setEnabledProtocols(new String[] { "TLSv1" });
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(loadKeyStore(trustStore, trustStoreType, trustStorePassword));
+        return trustManagerFactory.getTrustManagers();
+    }
 
-        // Limit acceptable cipher suites. (optional)
-        // See ciphers man page or TLS 1.0 / SSL 3.0 specifications.
-        securityOptions.setEnabledCipherSuites(new String[] { "TLS_DHE_RSA_WITH_AES_256_CBC_SHA",
-                "TLS_DHE_DSS_WITH_AES_256_CBC_SHA", "TLS_RSA_WITH_AES_256_CBC_SHA" });
+    private static KeyStore loadKeyStore(Resource resource, String type, @Nullable String password) throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance(type);
+        try (InputStream inputStream = resource.getInputStream()) {
+            keyStore.load(inputStream, toCharArray(password));
+        }
+        return keyStore;
+    }
 
-        return ContentSourceFactory.newContentSource(uri, securityOptions);
+    @Nullable
+    private static char[] toCharArray(@Nullable String password) {
+        return password == null ? null : password.toCharArray();
     }
 
     @Override
@@ -126,5 +345,23 @@ public class MarklogicFactoryBean extends AbstractFactoryBean<ContentSource> imp
         return exceptionTranslator.translateExceptionIfPossible(ex);
     }
 
+    private static class TrustAllManager implements X509TrustManager {
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] x509Certificates, String s) {
+            // nothing to do
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] x509Certificates, String s) {
+            // nothing to do
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+
+    }
 
 }
@@ -15,6 +15,9 @@
  */
 package com._4dconcept.springframework.data.marklogic.core;
 
+import org.springframework.lang.Nullable;
+
+import java.math.BigInteger;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -29,8 +32,56 @@ public interface MarklogicInvokeOperationOptions extends MarklogicOperationOptio
         return new HashMap<>();
     }
 
+    /**
+     * @return true to fetch the whole result before returning (cached), false to stream it from the server
+     */
     default boolean useCacheResult() {
         return true;
     }
 
+    /**
+     * @return the size in bytes of the buffer used to read the result, 0 for the XCC default
+     */
+    default int resultBufferSize() {
+        return 0;
+    }
+
+    /**
+     * @return the XQuery version of the request when not declared in the query prolog, {@literal null} for the server default
+     */
+    @Nullable
+    default String defaultXQueryVersion() {
+        return null;
+    }
+
+    /**
+     * @return the timestamp at which the request is evaluated, {@literal null} to read the latest committed state
+     */
+    @Nullable
+    default BigInteger effectivePointInTime() {
+        return null;
+    }
+
+    /**
+     * @return the number of times XCC automatically retries the request on a retryable error, -1 for the XCC default
+     */
+    default int maxAutoRetry() {
+        return -1;
+    }
+
+    /**
+     * @return true if the invocation can safely be executed again, enabling its retry on transient failures
+     */
+    default boolean idempotent() {
+        return false;
+    }
+
+    /**
+     * @return true if the invocation is a read that can be duplicated on another host when slow, outside of
+     * transactions and when a hedging policy is configured
+     */
+    default boolean hedgeable() {
+        return false;
+    }
+
 }
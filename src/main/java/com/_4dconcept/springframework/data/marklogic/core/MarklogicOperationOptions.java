@@ -17,6 +17,8 @@ package com._4dconcept.springframework.data.marklogic.core;
 
 import org.springframework.lang.Nullable;
 
+import java.time.Duration;
+
 /**
  * Definition of a generic Marklogic operation options holder
  *
@@ -38,4 +40,12 @@ public interface MarklogicOperationOptions {
         return null;
     }
 
+    /**
+     * @return the maximum duration of the operation, or {@literal null} to use the template default timeout
+     */
+    @Nullable
+    default Duration timeout() {
+        return null;
+    }
+
 }
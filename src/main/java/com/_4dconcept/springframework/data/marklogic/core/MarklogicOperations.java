@@ -20,6 +20,7 @@ import com._4dconcept.springframework.data.marklogic.core.query.Query;
 import org.springframework.lang.Nullable;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface that specifies a basic set of Marklogic operations. It offers more specifics operations than the underlying
@@ -69,6 +70,28 @@ public interface MarklogicOperations {
      */
     void save(Object objectToSave, MarklogicCreateOperationOptions options);
 
+    /**
+     * Save the given entities in chunks of {@code chunkSize} documents, each chunk being committed in its own
+     * transaction instead of a single one. An ongoing transaction is suspended during the operation.
+     *
+     * @param entities the entities to store
+     * @param chunkSize the maximum number of documents per chunk
+     * @param commitPolicy the commit policy
+     * @return the outcome of each chunk
+     */
+    MarklogicChunkedResult saveAllChunked(Iterable<?> entities, int chunkSize, MarklogicCommitPolicy commitPolicy);
+
+    /**
+     * Remove the given entities in chunks of {@code chunkSize} documents, each chunk being committed in its own
+     * transaction instead of a single one. An ongoing transaction is suspended during the operation.
+     *
+     * @param entities the entities to remove
+     * @param chunkSize the maximum number of documents per chunk
+     * @param commitPolicy the commit policy
+     * @return the outcome of each chunk
+     */
+    MarklogicChunkedResult removeAllChunked(Iterable<?> entities, int chunkSize, MarklogicCommitPolicy commitPolicy);
+
     /**
      * Remove the given Entity
      * @param entity the entity to remove
@@ -284,6 +307,29 @@ public interface MarklogicOperations {
      */
     long count(Query query);
 
+    /**
+     * Execute the given unit of work within a session scope : outside of a transaction, all its operations share a
+     * single session in auto-commit mode instead of fetching one each. Transactions started within the callback keep
+     * their usual semantics.
+     *
+     * @param callback the unit of work
+     * @param <T> the result type
+     * @return the callback result
+     */
+    @Nullable
+    <T> T executeInSession(MarklogicSessionCallback<T> callback);
+
+    /**
+     * Execute the given unit of work asynchronously, within a session scope, on the executor configured for
+     * asynchronous operations.
+     *
+     * @param callback the unit of work
+     * @param <T> the result type
+     * @return a future completed with the callback result
+     * @see #executeInSession(MarklogicSessionCallback)
+     */
+    <T> CompletableFuture<T> executeAsync(MarklogicSessionCallback<T> callback);
+
     /**
      * @return the underlying {@link MarklogicConverter}.
      */
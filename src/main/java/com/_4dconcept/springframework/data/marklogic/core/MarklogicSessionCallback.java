@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Unit of work executed by {@link MarklogicOperations#executeInSession(MarklogicSessionCallback)}, all its operations
+ * sharing a single Marklogic session.
+ *
+ * @param <T> the result type
+ * @author Stéphane Toussaint
+ */
+@FunctionalInterface
+public interface MarklogicSessionCallback<T> {
+
+    /**
+     * @param operations the operations to work with
+     * @return a result object, or {@literal null} if none
+     */
+    @Nullable
+    T doInSession(MarklogicOperations operations);
+
+}
@@ -25,6 +25,11 @@ import com._4dconcept.springframework.data.marklogic.core.convert.MarklogicConve
 import com._4dconcept.springframework.data.marklogic.core.convert.MarklogicReader;
 import com._4dconcept.springframework.data.marklogic.core.convert.MarklogicWriter;
 import com._4dconcept.springframework.data.marklogic.core.cts.CTSQuerySerializer;
+import com._4dconcept.springframework.data.marklogic.core.hedge.MarklogicHedgingPolicy;
+import com._4dconcept.springframework.data.marklogic.core.id.IdGenerator;
+import com._4dconcept.springframework.data.marklogic.core.id.RandomUuidIdGenerator;
+import com._4dconcept.springframework.data.marklogic.core.mapping.ContentFormat;
+import com._4dconcept.springframework.data.marklogic.core.mapping.Document;
 import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicIdentifier;
 import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicMappingContext;
 import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentEntity;
@@ -33,46 +38,70 @@ import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicSimpl
 import com._4dconcept.springframework.data.marklogic.core.mapping.event.*;
 import com._4dconcept.springframework.data.marklogic.core.query.Query;
 import com._4dconcept.springframework.data.marklogic.core.query.QueryBuilder;
+import com._4dconcept.springframework.data.marklogic.core.retry.MarklogicRetryPolicy;
+import com._4dconcept.springframework.data.marklogic.datasource.ContentSourceTransactionManager;
 import com._4dconcept.springframework.data.marklogic.datasource.ContentSourceUtils;
+import com._4dconcept.springframework.data.marklogic.datasource.SessionHolder;
 import com._4dconcept.springframework.data.marklogic.repository.support.MappingMarklogicEntityInformation;
 import com.marklogic.xcc.Content;
+import com.marklogic.xcc.ContentCreateOptions;
 import com.marklogic.xcc.ContentSource;
 import com.marklogic.xcc.Request;
+import com.marklogic.xcc.RequestOptions;
 import com.marklogic.xcc.ResultItem;
 import com.marklogic.xcc.ResultSequence;
 import com.marklogic.xcc.Session;
 import com.marklogic.xcc.ValueFactory;
 import com.marklogic.xcc.exceptions.RequestException;
+import com.marklogic.xcc.exceptions.XQueryException;
 import com.marklogic.xcc.types.XName;
 import com.marklogic.xcc.types.XdmValue;
 import com.marklogic.xcc.types.XdmVariable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.mapping.MappingException;
 import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.PropertyHandler;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.data.mapping.model.ConvertingPropertyAccessor;
 import org.springframework.lang.Nullable;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 
 import javax.xml.namespace.QName;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Primary implementation of {@link MarklogicOperations}.
@@ -91,9 +120,19 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
     };
 
     private static final String SUBMISSION_ERROR_MSG = "Unable to submit request";
+    private static final String TIMEOUT_ERROR_MSG = "Marklogic request timed out";
 
     private ApplicationEventPublisher eventPublisher;
 
+    private IdGenerator defaultIdGenerator = new RandomUuidIdGenerator();
+
+    private @Nullable MarklogicRetryPolicy retryPolicy;
+    private @Nullable MarklogicHedgingPolicy hedgingPolicy;
+    private @Nullable Duration defaultTimeout;
+    private Executor asyncExecutor = new SimpleAsyncTaskExecutor("marklogic-");
+    private final Map<Class<? extends IdGenerator>, IdGenerator> idGenerators = new ConcurrentHashMap<>();
+    private final Object chunkProgressKey = new Object();
+
     public MarklogicTemplate(ContentSource contentSource) {
         this(contentSource, null);
     }
@@ -110,6 +149,68 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
         return mappingMarklogicConverter;
     }
 
+    /**
+     * @param defaultIdGenerator the generator used for entities not declaring one, {@link RandomUuidIdGenerator} by default
+     */
+    public void setDefaultIdGenerator(IdGenerator defaultIdGenerator) {
+        this.defaultIdGenerator = defaultIdGenerator;
+    }
+
+    /**
+     * Register a pre-configured generator instance. It will be used for every entity declaring its type as
+     * {@link Document#idGenerator()} instead of a default instance.
+     *
+     * @param idGenerator the generator to register
+     */
+    public void registerIdGenerator(IdGenerator idGenerator) {
+        idGenerators.put(idGenerator.getClass(), idGenerator);
+    }
+
+    /**
+     * @param retryPolicy the policy used to retry idempotent operations on transient failures, none by default
+     */
+    public void setRetryPolicy(@Nullable MarklogicRetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * @param hedgingPolicy the policy used to duplicate slow reads on another host, none by default
+     * @throws IllegalStateException if the Sessions of the template ContentSource cannot be routed by the policy
+     * @see MarklogicHedgingPolicy#checkContentSource(ContentSource)
+     */
+    public void setHedgingPolicy(@Nullable MarklogicHedgingPolicy hedgingPolicy) {
+        if (hedgingPolicy != null) {
+            hedgingPolicy.checkContentSource(contentSource);
+        }
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * @param defaultTimeout the maximum duration of operations not declaring their own timeout, none by default
+     */
+    public void setDefaultTimeout(@Nullable Duration defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    /**
+     * Set the executor running {@link #executeAsync(MarklogicSessionCallback)} units of work, a new thread per unit
+     * of work by default. On Java 21 and later, {@code Executors.newVirtualThreadPerTaskExecutor()} runs each of them
+     * on a virtual thread.
+     *
+     * @param asyncExecutor the executor to use
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        Assert.notNull(asyncExecutor, "Executor must not be null");
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * @return the executor running asynchronous units of work
+     */
+    protected Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
     @Override
     public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
         this.eventPublisher = applicationEventPublisher;
@@ -122,7 +223,37 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
         Long count = invokeAdhocQuery(countQuery, Long.TYPE, new MarklogicInvokeOperationOptions() {
             @Override
             public boolean useCacheResult() {
-                return false;
+                return query.isCacheResult();
+            }
+
+            @Override
+            public String defaultXQueryVersion() {
+                return query.getDefaultXQueryVersion();
+            }
+
+            @Override
+            public boolean idempotent() {
+                return true;
+            }
+
+            @Override
+            public boolean hedgeable() {
+                return true;
+            }
+
+            @Override
+            public Duration timeout() {
+                return query.getTimeout();
+            }
+
+            @Override
+            public BigInteger effectivePointInTime() {
+                return query.getEffectivePointInTime();
+            }
+
+            @Override
+            public int maxAutoRetry() {
+                return query.getMaxAutoRetry();
             }
         });
         return count == null ? 0 : count;
@@ -152,9 +283,7 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
 
     @Override
     public void insert(Object objectToSave, MarklogicCreateOperationOptions options) {
-        assertAutoGenerableIdIfNotSet(objectToSave);
-
-        generateIdIfNecessary(objectToSave);
+        prepareId(objectToSave);
 
         doInsert(objectToSave, options, this.marklogicConverter);
     }
@@ -221,10 +350,25 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
                 public Class<?> entityClass() {
                     return options.entityClass();
                 }
+
+                @Override
+                public Duration timeout() {
+                    return options.timeout();
+                }
             }, marklogicConverter);
         }
     }
 
+    @Override
+    public MarklogicChunkedResult saveAllChunked(Iterable<?> entities, int chunkSize, MarklogicCommitPolicy commitPolicy) {
+        return doChunked(entities, chunkSize, commitPolicy, this::save);
+    }
+
+    @Override
+    public MarklogicChunkedResult removeAllChunked(Iterable<?> entities, int chunkSize, MarklogicCommitPolicy commitPolicy) {
+        return doChunked(entities, chunkSize, commitPolicy, this::doRemove);
+    }
+
     @Override
     public void remove(Object entity) {
         doRemove(entity);
@@ -242,10 +386,11 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
 
     @Override
     public <T> void remove(Object id, Class<T> entityClass, MarklogicOperationOptions options) {
-        T entity = findById(id, entityClass, options);
+        RequestDeadline deadline = RequestDeadline.of(resolveTimeout(options));
+        T entity = findById(id, entityClass, withDeadline(options, deadline));
 
         if (entity != null) {
-            doRemove(entity);
+            doRemove(entity, deadline);
         }
     }
 
@@ -267,7 +412,7 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
         String collection = MarklogicUtils.expandsExpression(options.defaultCollection(), entityClass);
 
         if (collection != null) {
-            doRemoveAll(collection);
+            doRemoveAll(collection, RequestDeadline.of(resolveTimeout(options)));
         }
     }
 
@@ -294,6 +439,11 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
             throw new InvalidDataAccessApiUsageException("Unable to retrieve expected identifier property !");
         }
 
+        MarklogicPersistentEntity<?> persistentEntity = MarklogicUtils.retrievePersistentEntity(targetEntityClass, mappingContext);
+        if (persistentEntity.getFormat() == ContentFormat.BINARY) {
+            return findBinaryById(id, entityClass, options);
+        }
+
         Query query = new QueryBuilder(this)
                 .ofType(targetEntityClass)
                 .identifiedBy(resolveMarklogicIdentifier(id, idProperty))
@@ -303,16 +453,102 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
 
         LOGGER.trace("{}", ctsQuery);
 
-        return invokeAdhocQuery(ctsQuery, entityClass, new MarklogicInvokeOperationOptions() {
+        MarklogicInvokeOperationOptions invokeOptions = new MarklogicInvokeOperationOptions() {
             @Override
             public Map<Object, Object> params() {
                 Map<Object, Object> params = new HashMap<>();
                 params.put("id", id);
                 return params;
             }
+
+            @Override
+            public boolean idempotent() {
+                return true;
+            }
+
+            @Override
+            public boolean hedgeable() {
+                return true;
+            }
+
+            @Override
+            public Duration timeout() {
+                return options.timeout();
+            }
+        };
+
+        List<MarklogicPersistentProperty> lazyProperties = retrieveLazyProperties(targetEntityClass);
+        if (!lazyProperties.isEmpty()) {
+            List<?> resultList = findExcludingLazyProperties(ctsQuery, targetEntityClass, lazyProperties, invokeOptions);
+            if (resultList.size() > 1) {
+                throw new DataRetrievalFailureException("Only one result expected for id " + id);
+            }
+            return resultList.isEmpty() ? null : entityClass.cast(resultList.get(0));
+        }
+
+        return invokeAdhocQuery(ctsQuery, entityClass, invokeOptions);
+    }
+
+    @Nullable
+    private <T> T findBinaryById(Object id, Class<T> entityClass, MarklogicOperationOptions options) {
+        Class<?> targetEntityClass = retrieveTargetEntityClass(entityClass, options);
+        MarklogicPersistentEntity<?> persistentEntity = MarklogicUtils.retrievePersistentEntity(targetEntityClass, mappingContext);
+        String uri = MarklogicUtils.expandsExpression(persistentEntity.getUri(), targetEntityClass, null, () -> id);
+
+        LOGGER.trace("fn:doc('{}')", uri);
+
+        return invokeAdhocQuery("declare variable $uri as xs:string external; fn:doc($uri)", entityClass, new MarklogicInvokeOperationOptions() {
+            @Override
+            public Map<Object, Object> params() {
+                Map<Object, Object> params = new HashMap<>();
+                params.put("uri", uri);
+                return params;
+            }
+
+            @Override
+            public Duration timeout() {
+                return options.timeout();
+            }
+
+            @Override
+            public boolean idempotent() {
+                return true;
+            }
+
+            @Override
+            public boolean hedgeable() {
+                return true;
+            }
         });
     }
 
+    /**
+     * Options of a lookup bounded by the deadline of the operation it belongs to.
+     */
+    private static MarklogicOperationOptions withDeadline(MarklogicOperationOptions options, RequestDeadline deadline) {
+        return new MarklogicOperationOptions() {
+            @Override
+            public boolean idInPropertyFragment() {
+                return options.idInPropertyFragment();
+            }
+
+            @Override
+            public String defaultCollection() {
+                return options.defaultCollection();
+            }
+
+            @Override
+            public Class<?> entityClass() {
+                return options.entityClass();
+            }
+
+            @Override
+            public Duration timeout() {
+                return deadline.remaining();
+            }
+        };
+    }
+
     private <T> Class<?> retrieveTargetEntityClass(Class<T> entityClass, MarklogicOperationOptions options) {
         Class<?> optionEntityClass = options.entityClass();
         return optionEntityClass == null ? entityClass : optionEntityClass;
@@ -326,12 +562,56 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
 
     @Override
     public <T> List<T> find(Query query, Class<T> entityClass, MarklogicOperationOptions options) {
-        return invokeAdhocQueryAsList(new CTSQuerySerializer(query).asCtsQuery(), entityClass, new MarklogicInvokeOperationOptions() {
+        String ctsQuery = new CTSQuerySerializer(query).asCtsQuery();
+        Duration timeout = options.timeout() != null ? options.timeout() : query.getTimeout();
+        MarklogicInvokeOperationOptions invokeOptions = new MarklogicInvokeOperationOptions() {
             @Override
             public boolean useCacheResult() {
-                return false;
+                return query.isCacheResult();
             }
-        });
+
+            @Override
+            public String defaultXQueryVersion() {
+                return query.getDefaultXQueryVersion();
+            }
+
+            @Override
+            public boolean idempotent() {
+                return true;
+            }
+
+            @Override
+            public boolean hedgeable() {
+                return true;
+            }
+
+            @Override
+            public Duration timeout() {
+                return timeout;
+            }
+
+            @Override
+            public int resultBufferSize() {
+                return query.getResultBufferSize();
+            }
+
+            @Override
+            public BigInteger effectivePointInTime() {
+                return query.getEffectivePointInTime();
+            }
+
+            @Override
+            public int maxAutoRetry() {
+                return query.getMaxAutoRetry();
+            }
+        };
+
+        List<MarklogicPersistentProperty> lazyProperties = retrieveLazyProperties(entityClass);
+        if (!lazyProperties.isEmpty()) {
+            return findExcludingLazyProperties(ctsQuery, entityClass, lazyProperties, invokeOptions);
+        }
+
+        return invokeAdhocQueryAsList(ctsQuery, entityClass, invokeOptions);
     }
 
     @Nullable
@@ -367,12 +647,13 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
 
     @Override
     public <T> List<T> invokeModuleAsList(String moduleName, Class<T> resultClass, MarklogicInvokeOperationOptions options) {
-        return returnInSession(session -> {
+        RequestDeadline deadline = RequestDeadline.of(resolveTimeout(options));
+        return returnInSession(options, session -> {
             try {
-                ResultSequence resultSequence = session.submitRequest(buildModuleRequest(moduleName, options, session));
+                ResultSequence resultSequence = session.submitRequest(buildModuleRequest(moduleName, options, deadline, session));
                 return prepareResultList(resultSequence, resultClass, options, marklogicConverter);
             } catch (RequestException re) {
-                throw new DataRetrievalFailureException(SUBMISSION_ERROR_MSG, re);
+                throw translateSubmissionFailure(re);
             }
         });
     }
@@ -393,26 +674,28 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
 
     @Override
     public void invokeModule(String moduleName, MarklogicInvokeOperationOptions options) {
-        doInSession(session -> {
+        RequestDeadline deadline = RequestDeadline.of(resolveTimeout(options));
+        doInSession(options.idempotent(), session -> {
             try {
-                ResultSequence resultSequence = session.submitRequest(buildModuleRequest(moduleName, options, session));
+                ResultSequence resultSequence = session.submitRequest(buildModuleRequest(moduleName, options, deadline, session));
                 if (!resultSequence.isClosed()) {
                     resultSequence.close();
                 }
             } catch (RequestException re) {
-                throw new DataRetrievalFailureException(SUBMISSION_ERROR_MSG, re);
+                throw translateSubmissionFailure(re);
             }
         });
     }
 
     @Override
     public <T> List<T> invokeAdhocQueryAsList(String query, Class<T> resultClass, MarklogicInvokeOperationOptions options) {
-        return returnInSession(session -> {
+        RequestDeadline deadline = RequestDeadline.of(resolveTimeout(options));
+        return returnInSession(options, session -> {
             try {
-                ResultSequence resultSequence = session.submitRequest(buildAdhocRequest(query, options, session));
+                ResultSequence resultSequence = session.submitRequest(buildAdhocRequest(query, options, deadline, session));
                 return prepareResultList(resultSequence, resultClass, options, this.marklogicConverter);
             } catch (RequestException re) {
-                throw new DataRetrievalFailureException(SUBMISSION_ERROR_MSG, re);
+                throw translateSubmissionFailure(re);
             }
         });
     }
@@ -432,14 +715,15 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
 
     @Override
     public void invokeAdhocQuery(String query, MarklogicInvokeOperationOptions options) {
-        doInSession(session -> {
+        RequestDeadline deadline = RequestDeadline.of(resolveTimeout(options));
+        doInSession(options.idempotent(), session -> {
             try {
-                ResultSequence resultSequence = session.submitRequest(buildAdhocRequest(query, options, session));
+                ResultSequence resultSequence = session.submitRequest(buildAdhocRequest(query, options, deadline, session));
                 if (!resultSequence.isClosed()) {
                     resultSequence.close();
                 }
             } catch (RequestException re) {
-                throw new DataRetrievalFailureException(SUBMISSION_ERROR_MSG, re);
+                throw translateSubmissionFailure(re);
             }
         });
     }
@@ -452,6 +736,22 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
         return MarklogicUtils.expandsExpression(defaultCollection, entity.getClass(), entity, () -> MarklogicUtils.retrieveIdentifier(entity, mappingContext));
     }
 
+    @Nullable
+    @Override
+    public <T> T executeInSession(MarklogicSessionCallback<T> callback) {
+        SessionHolder sessionHolder = ContentSourceUtils.openSessionScope(contentSource);
+        try {
+            return callback.doInSession(this);
+        } finally {
+            ContentSourceUtils.closeSessionScope(contentSource, sessionHolder);
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> executeAsync(MarklogicSessionCallback<T> callback) {
+        return CompletableFuture.supplyAsync(() -> executeInSession(callback), asyncExecutor);
+    }
+
     @Nullable
     @Override
     public <T> Object resolveContentIdentifier(T entity) {
@@ -468,41 +768,52 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
     ## PRIVATE IMPLEMENTATIONS ##
     #############################
     */
-    private void doRemoveAll(String collection) {
+    private void doRemoveAll(String collection, RequestDeadline deadline) {
         LOGGER.debug("Remove all entities stored in '{}' default collection", collection);
 
         String query = "xdmp:collection-delete(\"" + collection + "\")";
 
-        doInSession(session -> {
+        ContentSourceUtils.doAsWrite(() -> doInSession(session -> {
             Request request = session.newAdhocQuery(query);
+            applyDeadline(request.getOptions(), deadline);
             try {
                 ResultSequence resultSequence = session.submitRequest(request);
                 if (!resultSequence.isClosed()) {
                     resultSequence.close();
                 }
             } catch (RequestException re) {
-                throw new DataRetrievalFailureException("Unable to query uri", re);
+                throw isTimeout(re) ? new QueryTimeoutException(TIMEOUT_ERROR_MSG, re) : new DataRetrievalFailureException("Unable to query uri", re);
             }
-        });
+        }));
     }
 
     private void doRemove(Object entity) {
+        doRemove(entity, RequestDeadline.of(defaultTimeout));
+    }
+
+    private void doRemove(Object entity, RequestDeadline deadline) {
         String uri = retrieveUri(entity);
         LOGGER.debug("Remove '{}' from '{}'", entity, uri);
 
         Object id = resolveMarklogicIdentifier(entity).value();
 
         maybeEmitEvent(new BeforeDeleteEvent<>(entity, id, uri));
-        invokeAdhocQuery("xdmp:document-delete('" + uri .replace("'", "''") + "')", new MarklogicInvokeOperationOptions() {
+        ContentSourceUtils.doAsWrite(() -> invokeAdhocQuery("xdmp:document-delete('" + uri .replace("'", "''") + "')", new MarklogicInvokeOperationOptions() {
             @Override
             public boolean useCacheResult() {
                 return false;
             }
-        });
+
+            @Override
+            public Duration timeout() {
+                return deadline.remaining();
+            }
+        }));
         maybeEmitEvent(new AfterDeleteEvent<>(entity, id, uri));
     }
 
     private void doInsert(Object objectToSave, MarklogicCreateOperationOptions options, MarklogicWriter<Object> writer) {
+        RequestDeadline deadline = RequestDeadline.of(resolveTimeout(options));
         Supplier<Object> supplier = () -> MarklogicUtils.retrieveIdentifier(objectToSave, mappingContext);
         String uri = MarklogicUtils.expandsExpression(options.uri(), objectToSave.getClass(), objectToSave, supplier);
         String collection = MarklogicUtils.expandsExpression(options.defaultCollection(), objectToSave.getClass(), objectToSave, supplier);
@@ -517,7 +828,7 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
 
         maybeEmitEvent(new BeforeSaveEvent<>(objectToSave, content, uri));
 
-        doInsertContent(content);
+        doInsertContent(content, deadline);
 
         doPostInsert(uri, objectToSave);
 
@@ -530,6 +841,16 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
         }
     }
 
+    /**
+     * Populates the id property of an object about to be inserted, failing if it can not be generated.
+     *
+     * @param objectToSave The object currently saved
+     */
+    void prepareId(Object objectToSave) {
+        assertAutoGenerableIdIfNotSet(objectToSave);
+        generateIdIfNecessary(objectToSave);
+    }
+
     /**
      * Populates the id property of the saved object, if it's not set already.
      *
@@ -551,7 +872,16 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
 
         ConversionService conversionService = marklogicConverter.getConversionService();
         ConvertingPropertyAccessor<Object> propertyAccessor = new ConvertingPropertyAccessor<>(accessor, conversionService);
-        propertyAccessor.setProperty(property, UUID.randomUUID());
+        propertyAccessor.setProperty(property, retrieveIdGenerator(entity).generate(entity));
+    }
+
+    private IdGenerator retrieveIdGenerator(MarklogicPersistentEntity<?> entity) {
+        Class<? extends IdGenerator> idGeneratorType = entity.getIdGeneratorType();
+        if (idGeneratorType == null) {
+            return defaultIdGenerator;
+        }
+
+        return idGenerators.computeIfAbsent(idGeneratorType, type -> BeanUtils.instantiateClass(type));
     }
 
     private boolean isUnidentifiedObject(Object objectToSave) {
@@ -568,6 +898,13 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
     private String retrieveUri(Object objectToSave) {
         MarklogicPersistentEntity<?> persistentEntity = MarklogicUtils.retrievePersistentEntity(objectToSave.getClass(), mappingContext);
 
+        if (persistentEntity.getFormat() == ContentFormat.BINARY) {
+            // Binary content can not be searched. Its uri is only derived from the uri pattern.
+            String uri = MarklogicUtils.expandsExpression(persistentEntity.getUri(), objectToSave.getClass(), objectToSave, () -> MarklogicUtils.retrieveIdentifier(objectToSave, mappingContext));
+            Assert.notNull(uri, "A uri should be computable for binary entity");
+            return uri;
+        }
+
         MappingMarklogicEntityInformation<?, ?> informations = new MappingMarklogicEntityInformation<>(persistentEntity);
 
         Query query = new QueryBuilder(this)
@@ -607,6 +944,115 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
         }
     }
 
+    /**
+     * Run the given task, retrying it on transient failures when it is idempotent, a retry policy is configured and
+     * no transaction is ongoing.
+     */
+    private <T> T returnInSession(boolean idempotent, Function<Session, T> sessionTask) {
+        if (!idempotent || retryPolicy == null || isTransactionActive()) {
+            return returnInSession(sessionTask);
+        }
+
+        return retryPolicy.execute(() -> returnInSession(sessionTask));
+    }
+
+    /**
+     * Run the given read, duplicating it on another host when slow if it is hedgeable, a hedging policy is configured
+     * and no session is bound to the current thread.
+     */
+    private <T> T returnInSession(MarklogicInvokeOperationOptions options, Function<Session, T> sessionTask) {
+        if (!options.hedgeable() || hedgingPolicy == null || TransactionSynchronizationManager.hasResource(contentSource)) {
+            return returnInSession(options.idempotent(), sessionTask);
+        }
+
+        MarklogicHedgingPolicy policy = hedgingPolicy;
+        if (!options.idempotent() || retryPolicy == null) {
+            return policy.execute(contentSource, sessionTask);
+        }
+
+        return retryPolicy.execute(() -> policy.execute(contentSource, sessionTask));
+    }
+
+    private void doInSession(boolean idempotent, Consumer<Session> sessionTask) {
+        returnInSession(idempotent, session -> {
+            sessionTask.accept(session);
+            return null;
+        });
+    }
+
+    private MarklogicChunkedResult doChunked(Iterable<?> entities, int chunkSize, MarklogicCommitPolicy commitPolicy, Consumer<Object> operation) {
+        Assert.isTrue(chunkSize > 0, "The chunk size should be positive");
+
+        MarklogicChunkedResult result = new MarklogicChunkedResult(commitPolicy.resumeFrom());
+        Iterator<?> iterator = entities.iterator();
+        long position = 0;
+        while (position < commitPolicy.resumeFrom() && iterator.hasNext()) {
+            iterator.next();
+            position++;
+        }
+
+        // Each chunk runs in a new transaction, the ongoing one is suspended meanwhile
+        TransactionTemplate chunkTransaction = new TransactionTemplate(new ContentSourceTransactionManager(contentSource));
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        int index = 0;
+        while (iterator.hasNext()) {
+            MarklogicChunkOutcome outcome = doChunk(chunkTransaction, iterator, index++, position, chunkSize, commitPolicy.maxChunkBytes(), operation);
+            position = outcome.getLast();
+            result.addOutcome(outcome);
+            commitPolicy.onChunk(outcome);
+
+            if (!outcome.isSuccessful() && !commitPolicy.continueOnError()) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    private MarklogicChunkOutcome doChunk(TransactionTemplate chunkTransaction, Iterator<?> iterator, int index, long first, int chunkSize, long maxChunkBytes, Consumer<Object> operation) {
+        ChunkProgress progress = new ChunkProgress();
+        try {
+            chunkTransaction.execute(status -> {
+                TransactionSynchronizationManager.bindResource(chunkProgressKey, progress);
+                try {
+                    while (progress.count < chunkSize && (maxChunkBytes <= 0 || progress.size < maxChunkBytes) && iterator.hasNext()) {
+                        progress.count++;
+                        operation.accept(iterator.next());
+                    }
+                } finally {
+                    TransactionSynchronizationManager.unbindResource(chunkProgressKey);
+                }
+                return null;
+            });
+            LOGGER.debug("Chunk {} of {} entities committed", index, progress.count);
+            return new MarklogicChunkOutcome(index, first, progress.count, progress.size, null);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Chunk {} rolled back : {}", index, e.getMessage());
+            return new MarklogicChunkOutcome(index, first, progress.count, progress.size, e);
+        }
+    }
+
+    /**
+     * Add the size of the given content to the chunk being written on the current thread, if any.
+     */
+    private void recordChunkContent(Content content) {
+        ChunkProgress progress = (ChunkProgress) TransactionSynchronizationManager.getResource(chunkProgressKey);
+        if (progress != null) {
+            progress.size += Math.max(content.size(), 0);
+        }
+    }
+
+    private boolean isTransactionActive() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return true;
+        }
+
+        // A session scope binds a holder as well, without any transaction
+        SessionHolder sessionHolder = (SessionHolder) TransactionSynchronizationManager.getResource(contentSource);
+        return sessionHolder != null && sessionHolder.isSynchronizedWithTransaction();
+    }
+
     private Content toContentObject(String uri, Object entity, @Nullable String collection, MarklogicWriter<Object> writer) {
         Content content;
         boolean supportedClass = MarklogicTypeUtils.isSupportedType(entity.getClass());
@@ -626,10 +1072,15 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
         }
 
         try {
-            content = MarklogicSupportedType
+            MarklogicSupportedType supportedType = MarklogicSupportedType
                     .fromClass(contentToSave.getClass())
-                    .orElseThrow(() -> new MappingException("Unexpected content type " + entity.getClass()))
-                    .createContentObject(uri, contentToSave);
+                    .orElseThrow(() -> new MappingException("Unexpected content type " + entity.getClass()));
+
+            if (!supportedClass && isBinaryEntity(entity)) {
+                content = supportedType.createContentObject(uri, contentToSave, ContentCreateOptions.newBinaryInstance());
+            } else {
+                content = supportedType.createContentObject(uri, contentToSave);
+            }
         } catch (IOException ioe) {
             throw new MappingException("Unable to convert entity into a Marklogic Content", ioe);
         }
@@ -642,20 +1093,58 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
         return content;
     }
 
+    private boolean isBinaryEntity(Object entity) {
+        return MarklogicUtils.retrievePersistentEntity(entity.getClass(), mappingContext).getFormat() == ContentFormat.BINARY;
+    }
+
     private <T> List<String> extractCollections(T entity) {
         return marklogicCollectionUtils.extractCollections(entity, mappingContext);
     }
 
-    private void doInsertContent(Content content) {
-        doInSession(session -> {
+    private void doInsertContent(Content content, RequestDeadline deadline) {
+        AtomicBoolean firstAttempt = new AtomicBoolean(true);
+        doInSession(content.isRewindable(), session -> {
             try {
-                session.insertContent(content);
+                if (!firstAttempt.getAndSet(false)) {
+                    content.rewind();
+                }
+                insertContent(session, content, deadline);
             } catch (RequestException re) {
-                throw new DataAccessResourceFailureException("Unable to execute request", re);
+                throw isTimeout(re) ? new QueryTimeoutException(TIMEOUT_ERROR_MSG, re) : new DataAccessResourceFailureException("Unable to execute request", re);
+            } catch (IOException ioe) {
+                throw new DataAccessResourceFailureException("Unable to rewind content", ioe);
             }
         });
     }
 
+    /**
+     * Content insertions have no request options of their own : the deadline temporarily bounds the default request
+     * options of the session, restored once the content is inserted.
+     */
+    private void insertContent(Session session, Content content, RequestDeadline deadline) throws RequestException {
+        if (deadline.isUnbounded()) {
+            session.insertContent(content);
+            recordChunkContent(content);
+            return;
+        }
+
+        RequestOptions defaultOptions = session.getDefaultRequestOptions();
+        RequestOptions requestOptions = defaultOptions != null ? defaultOptions : new RequestOptions();
+        int previousTimeoutMillis = requestOptions.getTimeoutMillis();
+        int previousRequestTimeLimit = requestOptions.getRequestTimeLimit();
+
+        applyDeadline(requestOptions, deadline);
+        session.setDefaultRequestOptions(requestOptions);
+        try {
+            session.insertContent(content);
+            recordChunkContent(content);
+        } finally {
+            requestOptions.setTimeoutMillis(previousTimeoutMillis);
+            requestOptions.setRequestTimeLimit(previousRequestTimeLimit);
+            session.setDefaultRequestOptions(defaultOptions);
+        }
+    }
+
     private void assertAutoGenerableIdIfNotSet(Object entity) {
         MarklogicPersistentEntity<?> persistentEntity = MarklogicUtils.retrievePersistentEntity(entity.getClass(), mappingContext);
         MarklogicPersistentProperty idProperty = persistentEntity.getIdProperty();
@@ -677,19 +1166,79 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
         return MarklogicUtils.retrievePersistentEntity(entityClass, mappingContext).getDefaultCollection();
     }
 
-    private Request buildAdhocRequest(String query, MarklogicInvokeOperationOptions options, Session session) {
+    private Request buildAdhocRequest(String query, MarklogicInvokeOperationOptions options, RequestDeadline deadline, Session session) {
         Request request = session.newAdhocQuery(query);
-        request.getOptions().setCacheResult(options.useCacheResult());
+        applyRequestOptions(request.getOptions(), options, deadline);
         addVariablesToRequest(options.params(), request);
         return request;
     }
 
-    private Request buildModuleRequest(String moduleName, MarklogicInvokeOperationOptions options, Session session) {
+    private Request buildModuleRequest(String moduleName, MarklogicInvokeOperationOptions options, RequestDeadline deadline, Session session) {
         Request request = session.newModuleInvoke(moduleName);
+        applyRequestOptions(request.getOptions(), options, deadline);
         addVariablesToRequest(options.params(), request);
         return request;
     }
 
+    private void applyRequestOptions(RequestOptions requestOptions, MarklogicInvokeOperationOptions options, RequestDeadline deadline) {
+        requestOptions.setCacheResult(options.useCacheResult());
+
+        if (options.resultBufferSize() > 0) {
+            requestOptions.setResultBufferSize(options.resultBufferSize());
+        }
+
+        if (options.defaultXQueryVersion() != null) {
+            requestOptions.setDefaultXQueryVersion(options.defaultXQueryVersion());
+        }
+
+        if (options.effectivePointInTime() != null) {
+            requestOptions.setEffectivePointInTime(options.effectivePointInTime());
+        }
+
+        if (options.maxAutoRetry() >= 0) {
+            requestOptions.setMaxAutoRetry(options.maxAutoRetry());
+        }
+
+        applyDeadline(requestOptions, deadline);
+    }
+
+    @Nullable
+    private Duration resolveTimeout(MarklogicOperationOptions options) {
+        return options.timeout() != null ? options.timeout() : defaultTimeout;
+    }
+
+    /**
+     * Bound both the client socket timeout and the server request time limit to the time left before the deadline, so
+     * that an expired request is cancelled by the server instead of holding its session.
+     */
+    private void applyDeadline(RequestOptions requestOptions, RequestDeadline deadline) {
+        if (deadline.isUnbounded()) {
+            return;
+        }
+
+        long remainingMillis = deadline.remainingMillis();
+        if (remainingMillis <= 0) {
+            throw new QueryTimeoutException("Marklogic operation deadline expired before the request was submitted");
+        }
+
+        requestOptions.setTimeoutMillis((int) Math.min(Integer.MAX_VALUE, remainingMillis));
+        requestOptions.setRequestTimeLimit((int) Math.min(Integer.MAX_VALUE, TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999)));
+    }
+
+    private DataAccessException translateSubmissionFailure(RequestException re) {
+        return isTimeout(re) ? new QueryTimeoutException(TIMEOUT_ERROR_MSG, re) : new DataRetrievalFailureException(SUBMISSION_ERROR_MSG, re);
+    }
+
+    private boolean isTimeout(RequestException re) {
+        for (Throwable cause = re; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException
+                    || (cause instanceof XQueryException && "XDMP-EXTIME".equals(((XQueryException) cause).getCode()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void addVariablesToRequest(Map<Object, Object> params, Request request) {
         for (Map.Entry<Object, Object> entry : params.entrySet()) {
             request.setVariable(buildVariable(entry.getKey(), entry.getValue()));
@@ -734,11 +1283,15 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
     }
 
     private <T> T prepareResultItem(ResultItem resultItem, Class<T> returnType, MarklogicInvokeOperationOptions options, MarklogicReader<Object> reader) {
+        return prepareResultItem(resultItem, resultItem.getDocumentURI(), returnType, options, reader);
+    }
+
+    private <T> T prepareResultItem(ResultItem resultItem, @Nullable String uri, Class<T> returnType, MarklogicInvokeOperationOptions options, MarklogicReader<Object> reader) {
         MarklogicContentHolder holder = new MarklogicContentHolder();
         holder.setContent(resultItem);
 
         T item = reader.read(returnType, holder);
-        AfterRetrieveEvent<T> event = new AfterRetrieveEvent<>(item, resultItem.getDocumentURI());
+        AfterRetrieveEvent<T> event = new AfterRetrieveEvent<>(item, uri);
         event.setParams(options.params());
         maybeEmitEvent(event);
         return item;
@@ -789,6 +1342,11 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
                             params.put("identifier", buildIdentifier(identifier));
                             return params;
                         }
+
+                        @Override
+                        public boolean idempotent() {
+                            return true;
+                        }
                     });
         }
     }
@@ -801,6 +1359,181 @@ public class MarklogicTemplate implements MarklogicOperations, ApplicationEventP
         }
     }
 
+    private List<MarklogicPersistentProperty> retrieveLazyProperties(Class<?> entityClass) {
+        if (MarklogicTypeUtils.isSimpleType(entityClass) || MarklogicTypeUtils.isSupportedType(entityClass)) {
+            return Collections.emptyList();
+        }
+
+        MarklogicPersistentEntity<?> persistentEntity = mappingContext.getPersistentEntity(entityClass);
+        if (persistentEntity == null) {
+            return Collections.emptyList();
+        }
+
+        List<MarklogicPersistentProperty> lazyProperties = new ArrayList<>();
+        persistentEntity.doWithProperties((PropertyHandler<MarklogicPersistentProperty>) property -> {
+            if (property.isLazy()) {
+                lazyProperties.add(property);
+            }
+        });
+        return lazyProperties;
+    }
+
+    /**
+     * Run the given search excluding lazy properties subtrees from the returned documents.
+     * Each document is returned as a (uri, root element) pair so that lazy properties can be loaded later on.
+     */
+    private <T> List<T> findExcludingLazyProperties(String ctsQuery, Class<T> entityClass, List<MarklogicPersistentProperty> lazyProperties, MarklogicInvokeOperationOptions options) {
+        String excludedNames = lazyProperties.stream()
+                .map(property -> serializeQName(property.getQName()))
+                .collect(Collectors.joining(", "));
+
+        String query = String.format("for $d in %s return (xdmp:node-uri($d), " +
+                "element { fn:node-name($d/*) } { $d/*/@*, $d/*/node()[fn:not(fn:node-name(.) = (%s))] })", ctsQuery, excludedNames);
+
+        LOGGER.trace("{}", query);
+
+        RequestDeadline deadline = RequestDeadline.of(resolveTimeout(options));
+        return returnInSession(options, session -> {
+            try {
+                ResultSequence resultSequence = session.submitRequest(buildAdhocRequest(query, options, deadline, session));
+                List<T> resultList = new ArrayList<>();
+                try {
+                    while (resultSequence.hasNext()) {
+                        String uri = resultSequence.next().asString();
+                        if (!resultSequence.hasNext()) {
+                            break;
+                        }
+
+                        T item = prepareResultItem(resultSequence.next(), uri, entityClass, options, marklogicConverter);
+                        injectLazyProperties(item, uri);
+                        resultList.add(item);
+                    }
+                } finally {
+                    if (!resultSequence.isClosed()) {
+                        resultSequence.close();
+                    }
+                }
+                return resultList;
+            } catch (RequestException re) {
+                throw translateSubmissionFailure(re);
+            }
+        });
+    }
+
+    private void injectLazyProperties(Object entity, String uri) {
+        MarklogicPersistentEntity<?> persistentEntity = MarklogicUtils.retrievePersistentEntity(entity.getClass(), mappingContext);
+        PersistentPropertyAccessor<Object> accessor = persistentEntity.getPropertyAccessor(entity);
+
+        for (MarklogicPersistentProperty property : retrieveLazyProperties(entity.getClass())) {
+            accessor.setProperty(property, new LazyLoadingList<>(new LazyPropertyLoader(uri, property), property.getLazyPageSize()));
+        }
+    }
+
+    private static String serializeQName(QName qname) {
+        return String.format("fn:QName('%s', '%s')", qname.getNamespaceURI(), qname.getLocalPart());
+    }
+
+    /**
+     * Retrieve a lazy property elements from its document.
+     */
+    private class LazyPropertyLoader implements LazyLoadingList.Loader<Object> {
+
+        private final String uri;
+        private final String elementsPath;
+        private final Class<?> elementType;
+        private final boolean simpleElementType;
+
+        LazyPropertyLoader(String uri, MarklogicPersistentProperty property) {
+            this.uri = uri;
+            this.elementsPath = String.format("fn:doc($uri)/*/*[fn:node-name(.) eq %s]", serializeQName(property.getQName()));
+            this.elementType = property.getActualType();
+            this.simpleElementType = MarklogicTypeUtils.isSimpleType(elementType);
+        }
+
+        @Override
+        public int count() {
+            Long count = invokeAdhocQuery(declareUri() + "fn:count(" + elementsPath + ")", Long.TYPE, options());
+            return count == null ? 0 : count.intValue();
+        }
+
+        @Override
+        public List<?> load(int offset, int length) {
+            return doLoad(String.format("(%s)[%d to %d]", elementsPath, offset + 1, offset + length));
+        }
+
+        @Override
+        public List<?> loadAll() {
+            return doLoad(elementsPath);
+        }
+
+        private List<?> doLoad(String elements) {
+            String query = declareUri() + (simpleElementType ? "(" + elements + ")/fn:string(.)" : elements);
+            LOGGER.trace("{}", query);
+            return invokeAdhocQueryAsList(query, elementType, options());
+        }
+
+        private String declareUri() {
+            return "declare variable $uri as xs:string external; ";
+        }
+
+        private MarklogicInvokeOperationOptions options() {
+            return new MarklogicInvokeOperationOptions() {
+                @Override
+                public Map<Object, Object> params() {
+                    Map<Object, Object> params = new HashMap<>();
+                    params.put("uri", uri);
+                    return params;
+                }
+
+                @Override
+                public boolean idempotent() {
+                    return true;
+                }
+            };
+        }
+    }
+
+    /**
+     * Entities and content bytes written by the chunk running on the current thread.
+     */
+    private static final class ChunkProgress {
+
+        private int count;
+        private long size;
+
+    }
+
+    /**
+     * Client side deadline of an operation, shared by all its attempts.
+     */
+    private static final class RequestDeadline {
+
+        private static final RequestDeadline UNBOUNDED = new RequestDeadline(0);
+
+        private final long expiresAt;
+
+        private RequestDeadline(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        static RequestDeadline of(@Nullable Duration timeout) {
+            return timeout == null ? UNBOUNDED : new RequestDeadline(System.nanoTime() + timeout.toNanos());
+        }
+
+        boolean isUnbounded() {
+            return this == UNBOUNDED;
+        }
+
+        long remainingMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(expiresAt - System.nanoTime());
+        }
+
+        @Nullable
+        Duration remaining() {
+            return isUnbounded() ? null : Duration.ofNanos(Math.max(0, expiresAt - System.nanoTime()));
+        }
+    }
+
     void setMarklogicCollectionUtils(MarklogicCollectionUtils marklogicCollectionUtils) {
         this.marklogicCollectionUtils = marklogicCollectionUtils;
     }
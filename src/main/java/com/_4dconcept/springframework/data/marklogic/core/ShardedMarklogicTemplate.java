@@ -0,0 +1,508 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core;
+
+import com._4dconcept.springframework.data.marklogic.MarklogicUtils;
+import com._4dconcept.springframework.data.marklogic.core.convert.MarklogicConverter;
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentEntity;
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentProperty;
+import com._4dconcept.springframework.data.marklogic.core.mapping.ShardKey;
+import com._4dconcept.springframework.data.marklogic.core.query.Query;
+import com._4dconcept.springframework.data.marklogic.core.query.SortCriteria;
+import com._4dconcept.springframework.data.marklogic.datasource.SessionHolder;
+import com._4dconcept.springframework.data.marklogic.datasource.lookup.ShardedContentSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import javax.xml.namespace.QName;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * {@link MarklogicTemplate} working on a {@link ShardedContentSource}.
+ * <ul>
+ *     <li>Operations on a single entity or identifier are routed to the shard of its {@link ShardKey} or identifier.</li>
+ *     <li>Queries, counts and removals by type are run in parallel on every shard, on a bounded
+ *     {@link #setScatterExecutor scatter executor}. Query results are merged in the order of their {@link SortCriteria}
+ *     before the global skip and limit are applied. String values are merged with the
+ *     {@link #setStringCollation collation} of the range indexes, the Marklogic root collation by default.</li>
+ *     <li>Within {@link ShardedContentSource#doWithShard(String, Supplier)}, every operation runs on the bound shard
+ *     only, including module and adhoc query invocations which can not be routed otherwise.</li>
+ *     <li>A transaction, or a session scope, works on the shard of its session : an entity or identifier of another
+ *     shard is rejected with an {@link InvalidDataAccessApiUsageException}, and so are the operations run on every
+ *     shard within a transaction.</li>
+ * </ul>
+ *
+ * @author Stéphane Toussaint
+ */
+public class ShardedMarklogicTemplate extends MarklogicTemplate implements DisposableBean {
+
+    /**
+     * The default collation of Marklogic string range indexes.
+     */
+    public static final String ROOT_COLLATION = "http://marklogic.com/collation/";
+
+    /**
+     * The Unicode codepoint collation.
+     */
+    public static final String CODEPOINT_COLLATION = "http://marklogic.com/collation/codepoint";
+
+    private final ShardedContentSource shardedContentSource;
+    private final MappingContext<? extends MarklogicPersistentEntity<?>, MarklogicPersistentProperty> mappingContext;
+
+    private Comparator<String> stringComparator = collationComparator(ROOT_COLLATION);
+    @Nullable
+    private ExecutorService defaultScatterExecutor;
+    private Executor scatterExecutor;
+
+    public ShardedMarklogicTemplate(ShardedContentSource contentSource) {
+        this(contentSource, null);
+    }
+
+    public ShardedMarklogicTemplate(ShardedContentSource contentSource, @Nullable MarklogicConverter marklogicConverter) {
+        super(contentSource, marklogicConverter);
+        this.shardedContentSource = contentSource;
+        this.mappingContext = getConverter().getMappingContext();
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("marklogic-shard-");
+        threadFactory.setDaemon(true);
+        int threads = Math.max(4, 2 * contentSource.getShardNames().size());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        this.defaultScatterExecutor = executor;
+        this.scatterExecutor = executor;
+    }
+
+    /**
+     * @param scatterExecutor the executor running the per shard queries, a pool of twice as many threads as shards
+     *                        by default
+     */
+    public void setScatterExecutor(Executor scatterExecutor) {
+        Assert.notNull(scatterExecutor, "Executor must not be null");
+        if (defaultScatterExecutor != null) {
+            defaultScatterExecutor.shutdown();
+            defaultScatterExecutor = null;
+        }
+        this.scatterExecutor = scatterExecutor;
+    }
+
+    /**
+     * Set the collation of the string range indexes used to sort queries, so that shard results are merged in the
+     * order Marklogic returned them. {@link #CODEPOINT_COLLATION} and the {@code http://marklogic.com/collation/}
+     * collations with an optional language tag, such as {@code http://marklogic.com/collation/fr}, are supported.
+     *
+     * @param collation the collation URI, {@link #ROOT_COLLATION} by default
+     */
+    public void setStringCollation(String collation) {
+        this.stringComparator = collationComparator(collation);
+    }
+
+    @Override
+    public void destroy() {
+        if (defaultScatterExecutor != null) {
+            defaultScatterExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void insert(Object objectToSave, MarklogicCreateOperationOptions options) {
+        doWithEntityShard(objectToSave, true, () -> {
+            super.insert(objectToSave, options);
+            return null;
+        });
+    }
+
+    @Override
+    public void save(Object objectToSave) {
+        doWithEntityShard(objectToSave, true, () -> {
+            super.save(objectToSave);
+            return null;
+        });
+    }
+
+    @Override
+    public void save(Object objectToSave, MarklogicCreateOperationOptions options) {
+        doWithEntityShard(objectToSave, true, () -> {
+            super.save(objectToSave, options);
+            return null;
+        });
+    }
+
+    @Override
+    public void remove(Object entity) {
+        doWithEntityShard(entity, false, () -> {
+            super.remove(entity);
+            return null;
+        });
+    }
+
+    @Override
+    public <T> void remove(Object id, Class<T> entityClass, MarklogicOperationOptions options) {
+        // The lookup and the deletion run together on the shard, within the deadline of the removal
+        Supplier<Object> removal = () -> {
+            super.remove(id, entityClass, options);
+            return null;
+        };
+
+        if (shardedContentSource.isShardBound()) {
+            removal.get();
+        } else if (isShardedById(entityClass)) {
+            String sessionShard = getSessionShard();
+            if (sessionShard != null) {
+                doWithSessionShard(sessionShard, id, removal);
+            } else {
+                shardedContentSource.doWithShardKey(() -> id, removal);
+            }
+        } else {
+            scatter(removal);
+        }
+    }
+
+    @Override
+    public <T> void removeAll(Class<T> entityClass, MarklogicOperationOptions options) {
+        scatter(() -> {
+            super.removeAll(entityClass, options);
+            return null;
+        });
+    }
+
+    @Nullable
+    @Override
+    public <T> T findById(Object id, Class<T> entityClass, MarklogicOperationOptions options) {
+        if (shardedContentSource.isShardBound()) {
+            return super.findById(id, entityClass, options);
+        }
+
+        if (isShardedById(entityClass)) {
+            String sessionShard = getSessionShard();
+            if (sessionShard != null) {
+                return doWithSessionShard(sessionShard, id, () -> super.findById(id, entityClass, options));
+            }
+            return shardedContentSource.doWithShardKey(() -> id, () -> super.findById(id, entityClass, options));
+        }
+
+        return scatter(() -> super.findById(id, entityClass, options)).stream()
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public <T> List<T> find(Query query, Class<T> entityClass, MarklogicOperationOptions options) {
+        if (shardedContentSource.isShardBound()) {
+            return super.find(query, entityClass, options);
+        }
+
+        Query shardQuery = toShardQuery(query);
+        List<List<T>> shardResults = scatter(() -> super.find(shardQuery, entityClass, options));
+        return merge(shardResults, query, entityClass);
+    }
+
+    @Override
+    public long count(Query query) {
+        if (shardedContentSource.isShardBound()) {
+            return super.count(query);
+        }
+
+        return scatter(() -> super.count(query)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public MarklogicChunkedResult saveAllChunked(Iterable<?> entities, int chunkSize, MarklogicCommitPolicy commitPolicy) {
+        assertShardBound("Chunked operations");
+        return super.saveAllChunked(entities, chunkSize, commitPolicy);
+    }
+
+    @Override
+    public MarklogicChunkedResult removeAllChunked(Iterable<?> entities, int chunkSize, MarklogicCommitPolicy commitPolicy) {
+        assertShardBound("Chunked operations");
+        return super.removeAllChunked(entities, chunkSize, commitPolicy);
+    }
+
+    /**
+     * Outside of {@link ShardedContentSource#doWithShard(String, Supplier)}, the operations of the unit of work are
+     * routed on their own and do not share a session.
+     */
+    @Nullable
+    @Override
+    public <T> T executeInSession(MarklogicSessionCallback<T> callback) {
+        if (shardedContentSource.isShardBound()) {
+            return super.executeInSession(callback);
+        }
+
+        return callback.doInSession(this);
+    }
+
+    private <T> T doWithEntityShard(Object entity, boolean insertable, Supplier<T> action) {
+        if (shardedContentSource.isShardBound()) {
+            return action.get();
+        }
+
+        String sessionShard = getSessionShard();
+        if (sessionShard != null) {
+            // The bound session is not fetched again : the key of new entities is checked once their identifier is set
+            if (insertable) {
+                prepareId(entity);
+            }
+            return doWithSessionShard(sessionShard, resolveShardKey(entity), action);
+        }
+
+        // The key is resolved once the session is fetched, after the identifier generation of new entities
+        return shardedContentSource.doWithShardKey(() -> resolveShardKey(entity), action);
+    }
+
+    /**
+     * A transaction, or a session scope, keeps working on the shard of its session : fail rather than writing or
+     * looking up the key on that shard when it belongs to another one.
+     */
+    private <T> T doWithSessionShard(String sessionShard, @Nullable Object key, Supplier<T> action) {
+        Assert.state(key != null, "Unable to route to a shard without shard key");
+        String shard = shardedContentSource.shardFor(key);
+        if (!shard.equals(sessionShard)) {
+            throw new InvalidDataAccessApiUsageException(String.format("Shard key %s belongs to shard %s while the session bound to the current thread works on shard %s",
+                    key, shard, sessionShard));
+        }
+        return shardedContentSource.doWithShard(shard, action);
+    }
+
+    /**
+     * @return the shard of the session bound to the current thread by a transaction or a session scope, if any
+     */
+    @Nullable
+    private String getSessionShard() {
+        Object resource = TransactionSynchronizationManager.getResource(shardedContentSource);
+        if (resource instanceof SessionHolder && ((SessionHolder) resource).getSessionHandle() != null) {
+            return shardedContentSource.getShard(((SessionHolder) resource).getSession());
+        }
+        return null;
+    }
+
+    @Nullable
+    private Object resolveShardKey(Object entity) {
+        MarklogicPersistentEntity<?> persistentEntity = MarklogicUtils.retrievePersistentEntity(entity.getClass(), mappingContext);
+        MarklogicPersistentProperty shardKeyProperty = persistentEntity.getPersistentProperty(ShardKey.class);
+        MarklogicPersistentProperty keyProperty = shardKeyProperty != null ? shardKeyProperty : persistentEntity.getIdProperty();
+
+        if (keyProperty == null) {
+            throw new InvalidDataAccessApiUsageException("No shard key nor identifier for entity of type " + entity.getClass().getName());
+        }
+
+        return persistentEntity.getPropertyAccessor(entity).getProperty(keyProperty);
+    }
+
+    private boolean isShardedById(Class<?> entityClass) {
+        MarklogicPersistentEntity<?> persistentEntity = mappingContext.getPersistentEntity(entityClass);
+        if (persistentEntity == null) {
+            return false;
+        }
+
+        MarklogicPersistentProperty shardKeyProperty = persistentEntity.getPersistentProperty(ShardKey.class);
+        return shardKeyProperty == null || shardKeyProperty.isIdProperty();
+    }
+
+    private void assertShardBound(String operation) {
+        if (!shardedContentSource.isShardBound()) {
+            throw new InvalidDataAccessApiUsageException(operation + " should be run on a single shard, see ShardedContentSource#doWithShard");
+        }
+    }
+
+    /**
+     * The shards are queried on the scatter executor, outside of the transaction of the current thread : a transaction
+     * works on a single shard and would not see its own changes.
+     */
+    private <T> List<T> scatter(Supplier<T> shardTask) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new InvalidDataAccessApiUsageException("Operations on every shard can not run within a transaction, see ShardedContentSource#doWithShard");
+        }
+
+        List<CompletableFuture<T>> futures = shardedContentSource.getShardNames().stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> shardedContentSource.doWithShard(shard, shardTask), scatterExecutor))
+                .collect(Collectors.toList());
+
+        try {
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException ce) {
+            if (ce.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ce.getCause();
+            }
+            throw new DataRetrievalFailureException("Unable to query every shard", ce.getCause());
+        }
+    }
+
+    /**
+     * Each shard returns its own first {@code skip + limit} results, the global page is taken from the merged ones.
+     */
+    private static Query toShardQuery(Query query) {
+        Query shardQuery = new Query();
+        shardQuery.setCollection(query.getCollection());
+        if (query.getCriteria() != null) {
+            shardQuery.setCriteria(query.getCriteria());
+        }
+        shardQuery.setSortCriteria(query.getSortCriteria());
+        shardQuery.setTimeout(query.getTimeout());
+        shardQuery.setResultBufferSize(query.getResultBufferSize());
+        shardQuery.setMaxAutoRetry(query.getMaxAutoRetry());
+        shardQuery.setEffectivePointInTime(query.getEffectivePointInTime());
+        shardQuery.setCacheResult(query.isCacheResult());
+        shardQuery.setDefaultXQueryVersion(query.getDefaultXQueryVersion());
+        if (query.getLimit() > 0) {
+            shardQuery.setLimit((int) Math.min(Integer.MAX_VALUE, query.getSkip() + query.getLimit()));
+        }
+        return shardQuery;
+    }
+
+    private <T> List<T> merge(List<List<T>> shardResults, Query query, Class<T> entityClass) {
+        List<T> merged = new ArrayList<>();
+
+        if (query.getSortCriteria().isEmpty()) {
+            shardResults.forEach(merged::addAll);
+        } else {
+            Comparator<T> comparator = sortComparator(query.getSortCriteria(), entityClass);
+            PriorityQueue<PeekingIterator<T>> heads = new PriorityQueue<>((first, second) -> comparator.compare(first.peek(), second.peek()));
+            for (List<T> shardResult : shardResults) {
+                if (!shardResult.isEmpty()) {
+                    heads.add(new PeekingIterator<>(shardResult.iterator()));
+                }
+            }
+
+            while (!heads.isEmpty()) {
+                PeekingIterator<T> head = heads.poll();
+                merged.add(head.next());
+                if (head.hasNext()) {
+                    heads.add(head);
+                }
+            }
+        }
+
+        int fromIndex = (int) Math.min(query.getSkip(), merged.size());
+        int toIndex = query.getLimit() > 0 ? Math.min(fromIndex + query.getLimit(), merged.size()) : merged.size();
+        return new ArrayList<>(merged.subList(fromIndex, toIndex));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private <T> Comparator<T> sortComparator(List<SortCriteria> sortCriteria, Class<T> entityClass) {
+        MarklogicPersistentEntity<?> persistentEntity = MarklogicUtils.retrievePersistentEntity(entityClass, mappingContext);
+
+        Comparator<T> comparator = (first, second) -> 0;
+        for (SortCriteria criteria : sortCriteria) {
+            MarklogicPersistentProperty property = findProperty(persistentEntity, criteria.getQname());
+            Comparator<Object> valueComparator = Comparator.nullsLast((first, second) -> first instanceof String && second instanceof String
+                    ? stringComparator.compare((String) first, (String) second)
+                    : ((Comparable) first).compareTo(second));
+            Comparator<T> propertyComparator = (first, second) -> valueComparator.compare(
+                    propertyValue(persistentEntity, first, property),
+                    propertyValue(persistentEntity, second, property));
+            comparator = comparator.thenComparing(criteria.isDescending() ? propertyComparator.reversed() : propertyComparator);
+        }
+        return comparator;
+    }
+
+    private static Comparator<String> collationComparator(String collation) {
+        if (CODEPOINT_COLLATION.equals(collation)) {
+            return ShardedMarklogicTemplate::compareCodepoints;
+        }
+        if (!collation.startsWith(ROOT_COLLATION)) {
+            throw new IllegalArgumentException("Unsupported collation " + collation);
+        }
+
+        String languageTag = collation.substring(ROOT_COLLATION.length());
+        Collator collator = Collator.getInstance(languageTag.isEmpty() ? Locale.ROOT : Locale.forLanguageTag(languageTag));
+        return collator::compare;
+    }
+
+    private static int compareCodepoints(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length() && j < second.length()) {
+            int firstCodepoint = first.codePointAt(i);
+            int secondCodepoint = second.codePointAt(j);
+            if (firstCodepoint != secondCodepoint) {
+                return Integer.compare(firstCodepoint, secondCodepoint);
+            }
+            i += Character.charCount(firstCodepoint);
+            j += Character.charCount(secondCodepoint);
+        }
+        return Integer.compare(first.length() - i, second.length() - j);
+    }
+
+    private static MarklogicPersistentProperty findProperty(MarklogicPersistentEntity<?> persistentEntity, QName qname) {
+        for (MarklogicPersistentProperty property : persistentEntity) {
+            if (qname.equals(property.getQName())) {
+                return property;
+            }
+        }
+        throw new InvalidDataAccessApiUsageException("Unable to merge shard results sorted on " + qname + ", no matching property");
+    }
+
+    @Nullable
+    private static Object propertyValue(MarklogicPersistentEntity<?> persistentEntity, Object entity, MarklogicPersistentProperty property) {
+        PersistentPropertyAccessor<?> accessor = persistentEntity.getPropertyAccessor(entity);
+        return accessor.getProperty(property);
+    }
+
+    private static final class PeekingIterator<T> {
+
+        private final Iterator<T> iterator;
+        private T head;
+        private boolean hasHead = true;
+
+        private PeekingIterator(Iterator<T> iterator) {
+            this.iterator = iterator;
+            this.head = iterator.next();
+        }
+
+        private T peek() {
+            return head;
+        }
+
+        private T next() {
+            T current = head;
+            hasHead = iterator.hasNext();
+            if (hasHead) {
+                head = iterator.next();
+            }
+            return current;
+        }
+
+        private boolean hasNext() {
+            return hasHead;
+        }
+
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core.convert;
+
+import com._4dconcept.springframework.data.marklogic.core.mapping.ContentFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Strategy used to encode/decode entities stored with the {@link ContentFormat#BINARY} format.
+ * Implementations must be thread safe and provide a public no-arg constructor.
+ *
+ * @author Stéphane Toussaint
+ */
+public interface BinaryCodec {
+
+    /**
+     * @param source the entity to encode
+     * @return the binary representation of the entity
+     * @throws IOException if the entity can not be encoded
+     */
+    byte[] encode(Object source) throws IOException;
+
+    /**
+     * @param content the binary representation of the entity
+     * @param type the expected entity type
+     * @param <T> the expected entity type
+     * @return the decoded entity
+     * @throws IOException if the content can not be decoded
+     */
+    <T> T decode(InputStream content, Class<T> type) throws IOException;
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core.convert;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link BinaryCodec} backed by a Jackson {@link ObjectMapper}.
+ * The default constructor produces plain JSON bytes. Subclass and provide an {@link ObjectMapper} built on top of a
+ * binary factory (Smile, CBOR...) to get a more compact and faster encoding.
+ *
+ * @author Stéphane Toussaint
+ */
+public class JacksonBinaryCodec implements BinaryCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public JacksonBinaryCodec() {
+        this(new ObjectMapper());
+    }
+
+    public JacksonBinaryCodec(ObjectMapper objectMapper) {
+        Assert.notNull(objectMapper, "ObjectMapper must not be null");
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte[] encode(Object source) throws IOException {
+        return objectMapper.writeValueAsBytes(source);
+    }
+
+    @Override
+    public <T> T decode(InputStream content, Class<T> type) throws IOException {
+        return objectMapper.readValue(content, type);
+    }
+}
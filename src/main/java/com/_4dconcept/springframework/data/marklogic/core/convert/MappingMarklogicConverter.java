@@ -16,8 +16,12 @@
 package com._4dconcept.springframework.data.marklogic.core.convert;
 
 import com._4dconcept.springframework.data.marklogic.MarklogicTypeUtils;
+import com._4dconcept.springframework.data.marklogic.core.mapping.ContentFormat;
+import com._4dconcept.springframework.data.marklogic.core.mapping.Document;
 import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicMappingContext;
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentEntity;
 import com.marklogic.xcc.ResultItem;
+import org.springframework.beans.BeanUtils;
 import org.springframework.core.convert.ConversionFailedException;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.convert.ConverterNotFoundException;
@@ -26,6 +30,13 @@ import org.springframework.core.convert.support.GenericConversionService;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.lang.Nullable;
 
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * {@link MarklogicConverter} that uses a {@link MappingContext} to compute extra
  * information such as uri or defaultCollection.
@@ -36,6 +47,8 @@ public class MappingMarklogicConverter extends AbstractMarklogicConverter  {
 
     protected final MarklogicMappingContext mappingContext;
 
+    private final Map<Class<? extends BinaryCodec>, BinaryCodec> binaryCodecs = new ConcurrentHashMap<>();
+
     public MappingMarklogicConverter(MarklogicMappingContext mappingContext) {
         this(mappingContext, null);
     }
@@ -61,6 +74,15 @@ public class MappingMarklogicConverter extends AbstractMarklogicConverter  {
             return result;
         }
 
+        BinaryCodec binaryCodec = findBinaryCodec(returnType);
+        if (binaryCodec != null) {
+            try {
+                return binaryCodec.decode(resultItem.asInputStream(), returnType);
+            } catch (IOException ioe) {
+                throw new ConversionFailedException(TypeDescriptor.forObject(resultItem), TypeDescriptor.valueOf(returnType), resultItem, ioe);
+            }
+        }
+
         ConversionService conversionService = getConversionService();
 
         if (conversionService.canConvert(resultItem.getClass(), returnType)) {
@@ -79,6 +101,16 @@ public class MappingMarklogicConverter extends AbstractMarklogicConverter  {
 
     @Override
     public void write(Object source, MarklogicContentHolder holder) {
+        BinaryCodec binaryCodec = findBinaryCodec(source.getClass());
+        if (binaryCodec != null) {
+            try {
+                holder.setContent(binaryCodec.encode(source));
+                return;
+            } catch (IOException ioe) {
+                throw new ConversionFailedException(TypeDescriptor.forObject(source), TypeDescriptor.valueOf(byte[].class), source, ioe);
+            }
+        }
+
         TypeDescriptor sourceDescriptor = TypeDescriptor.forObject(source);
         TypeDescriptor targetDescriptor = TypeDescriptor.valueOf(String.class);
 
@@ -95,6 +127,43 @@ public class MappingMarklogicConverter extends AbstractMarklogicConverter  {
         }
     }
 
+    /**
+     * Register a pre-configured codec instance. It will be used for every entity declaring its type as
+     * {@link Document#codec()} instead of a default instance.
+     *
+     * @param binaryCodec the codec to register
+     */
+    public void registerBinaryCodec(BinaryCodec binaryCodec) {
+        binaryCodecs.put(binaryCodec.getClass(), binaryCodec);
+    }
+
+    /**
+     * Eagerly prepare the resources needed to convert the given entity type : the JAXB context of XML entities or the
+     * codec of binary ones.
+     *
+     * @param type the entity type
+     * @throws JAXBException if the JAXB context of the entity can not be created
+     */
+    public void prepareConversion(Class<?> type) throws JAXBException {
+        if (findBinaryCodec(type) == null && (type.isAnnotationPresent(XmlRootElement.class) || type.isAnnotationPresent(XmlType.class))) {
+            MarklogicConverters.prepareJAXBContext(type);
+        }
+    }
+
+    @Nullable
+    private BinaryCodec findBinaryCodec(Class<?> type) {
+        if (!type.isAnnotationPresent(Document.class)) {
+            return null;
+        }
+
+        MarklogicPersistentEntity<?> persistentEntity = mappingContext.getRequiredPersistentEntity(type);
+        if (persistentEntity.getFormat() != ContentFormat.BINARY) {
+            return null;
+        }
+
+        return binaryCodecs.computeIfAbsent(persistentEntity.getCodecType(), codecType -> BeanUtils.instantiateClass(codecType));
+    }
+
     /*
 	 * (non-Javadoc)
 	 * @see org.springframework.data.convert.EntityConverter#getMappingContext()
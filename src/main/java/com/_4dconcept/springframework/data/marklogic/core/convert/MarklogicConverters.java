@@ -17,6 +17,7 @@ package com._4dconcept.springframework.data.marklogic.core.convert;
 
 import com.marklogic.xcc.ResultItem;
 import com.marklogic.xcc.ValueFactory;
+import com.marklogic.xcc.types.XdmItem;
 import com.marklogic.xcc.types.XdmValue;
 import org.springframework.core.convert.ConversionFailedException;
 import org.springframework.core.convert.ConverterNotFoundException;
@@ -27,11 +28,13 @@ import org.springframework.core.convert.support.GenericConversionService;
 import org.springframework.data.convert.ReadingConverter;
 import org.springframework.data.convert.WritingConverter;
 import org.springframework.lang.Nullable;
-import org.springframework.util.CollectionUtils;
+import org.w3c.dom.Document;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import java.io.InputStream;
@@ -39,11 +42,11 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Wrapper class to contain useful converters for the usage with Marklogic
@@ -52,7 +55,7 @@ import java.util.stream.Collectors;
  */
 abstract class MarklogicConverters {
 
-    private static Map<Class<?>, JAXBContext> cachedJAXBContext = new HashMap<>();
+    private static final Map<Class<?>, JAXBContext> cachedJAXBContext = new ConcurrentHashMap<>();
 
     private MarklogicConverters() {
     }
@@ -105,6 +108,7 @@ abstract class MarklogicConverters {
 
     /**
      * Convert a {@link ResultItem} content (using it's {@link InputStream}) to the target entity object if annotated with {@link XmlRootElement}
+     * or {@link XmlType} (ie. nested element of a lazy loaded property)
      */
     @ReadingConverter
     enum ResultItemToEntityJAXBConverter implements ConditionalGenericConverter {
@@ -117,7 +121,8 @@ abstract class MarklogicConverters {
 
         @Override
         public boolean matches(TypeDescriptor sourceType, TypeDescriptor targetType) {
-            return targetType.getObjectType().isAnnotationPresent(XmlRootElement.class);
+            Class<?> objectType = targetType.getObjectType();
+            return objectType.isAnnotationPresent(XmlRootElement.class) || objectType.isAnnotationPresent(XmlType.class);
         }
 
         @Override
@@ -130,6 +135,9 @@ abstract class MarklogicConverters {
             InputStream inputStream = resultItem.asInputStream();
 
             try {
+                if (!targetType.getObjectType().isAnnotationPresent(XmlRootElement.class)) {
+                    return initJAXBContext(targetType).createUnmarshaller().unmarshal(new StreamSource(inputStream), targetType.getObjectType()).getValue();
+                }
                 return initJAXBContext(targetType).createUnmarshaller().unmarshal(new StreamSource(inputStream));
             } catch (JAXBException jaxbe) {
                 throw new ConversionFailedException(sourceType, targetType, source, jaxbe);
@@ -138,50 +146,36 @@ abstract class MarklogicConverters {
     }
 
     /**
-     * Return empty collection as empty string
-     * Return collection of primitive as string separated by comma : test1,test2,test3
-     * Return collection of object as serialized xml fragment within a wrapper element : <wrapper><article id="1"></article><article id="2"></article></wrapper>
+     * Return collection as a sequence of items. Null elements are skipped.
+     * Simple values are bound as typed atomic values (see {@link GenericXdmValueConverter}) : ("test1", "test2", "test3")
+     * Objects annotated with {@link XmlRootElement} are bound as element nodes : (<article id="1"/>, <article id="2"/>)
      */
     enum CollectionToXdmValueConverter implements Converter<Collection<?>, XdmValue> {
         INSTANCE;
 
         @Override
         public XdmValue convert(Collection<?> source) {
+            XdmItem[] items = source.stream()
+                    .filter(Objects::nonNull)
+                    .map(this::convertCollectionItem)
+                    .toArray(XdmItem[]::new);
 
-            if (CollectionUtils.isEmpty(source))
-                return ValueFactory.newXSString("");
-
-            Object item = source.toArray()[0];
-            final boolean isPrimitiveCollection = item.getClass().isPrimitive() || item.getClass().equals(String.class);
-
-            String sequenceAsString = source.stream()
-                    .map(this::serializeCollectionItem)
-                    .collect(
-                            Collectors.joining(
-                                    isPrimitiveCollection ? "," : "",
-                                    isPrimitiveCollection ? "" : "<wrapper>",
-                                    isPrimitiveCollection ? "" : "</wrapper>"
-                            )
-                    );
-
-            return ValueFactory.newXSString(sequenceAsString);
+            return ValueFactory.newSequence(items);
         }
 
-        private String serializeCollectionItem(@Nullable Object item) {
-            if (item == null) {
-                return "";
+        private XdmItem convertCollectionItem(Object item) {
+            if (item.getClass().isAnnotationPresent(XmlRootElement.class)) {
+                TypeDescriptor sourceType = TypeDescriptor.forObject(item);
+                try {
+                    DOMResult result = new DOMResult();
+                    initJAXBContext(sourceType).createMarshaller().marshal(item, result);
+                    return ValueFactory.newElement(((Document) result.getNode()).getDocumentElement());
+                } catch (JAXBException jaxbe) {
+                    throw new ConversionFailedException(sourceType, TypeDescriptor.valueOf(XdmItem.class), item, jaxbe);
+                }
             }
 
-            if (item.getClass().isPrimitive() || item.getClass().equals(String.class)) {
-                return item.toString();
-            }
-
-            if (conversionService.canConvert(item.getClass(), String.class)) {
-                String convert = conversionService.convert(item, String.class);
-                return convert == null ? "" : convert.replaceAll("^<\\?xml.*?\\?>", ""); // Remove xml prologue
-            } else {
-                return "--Unknown-type--" + item.getClass();
-            }
+            return convertToAtomicValue(item);
         }
     }
 
@@ -190,38 +184,54 @@ abstract class MarklogicConverters {
 
         @Override
         public XdmValue convert(Object source) {
-            if (source instanceof String) {
-                return ValueFactory.newXSString((String) source);
-            }
+            return convertToAtomicValue(source);
+        }
+    }
 
-            if (source instanceof Boolean) {
-                return ValueFactory.newXSBoolean((Boolean) source);
-            }
+    private static XdmItem convertToAtomicValue(Object source) {
+        if (source instanceof String) {
+            return ValueFactory.newXSString((String) source);
+        }
 
-            if (source instanceof Integer) {
-                return ValueFactory.newXSInteger((Integer) source);
-            }
+        if (source instanceof Boolean) {
+            return ValueFactory.newXSBoolean((Boolean) source);
+        }
 
-            if (source instanceof Long) {
-                return ValueFactory.newXSInteger((Long) source);
-            }
+        if (source instanceof Integer) {
+            return ValueFactory.newXSInteger((Integer) source);
+        }
 
-            if (conversionService.canConvert(TypeDescriptor.forObject(source), TypeDescriptor.valueOf(String.class))) {
-                return ValueFactory.newXSString(conversionService.convert(source, String.class));
-            } else {
-                throw new ConverterNotFoundException(TypeDescriptor.forObject(source), TypeDescriptor.valueOf(XdmValue.class));
-            }
+        if (source instanceof Long) {
+            return ValueFactory.newXSInteger((Long) source);
+        }
+
+        if (conversionService.canConvert(TypeDescriptor.forObject(source), TypeDescriptor.valueOf(String.class))) {
+            return ValueFactory.newXSString(conversionService.convert(source, String.class));
+        } else {
+            throw new ConverterNotFoundException(TypeDescriptor.forObject(source), TypeDescriptor.valueOf(XdmValue.class));
         }
     }
 
+    /**
+     * Eagerly create and cache the JAXB context of the given type.
+     *
+     * @param type the JAXB bound type
+     * @throws JAXBException if the context can not be created
+     */
+    static void prepareJAXBContext(Class<?> type) throws JAXBException {
+        initJAXBContext(TypeDescriptor.valueOf(type));
+    }
+
     private static JAXBContext initJAXBContext(TypeDescriptor type) throws JAXBException {
         final Class<?> typeClass = type.getType();
-        if (cachedJAXBContext.containsKey(typeClass)) {
-            return cachedJAXBContext.get(typeClass);
-        } else {
-            final JAXBContext jaxbContext = JAXBContext.newInstance(typeClass);
-            cachedJAXBContext.put(typeClass, jaxbContext);
-            return jaxbContext;
+        JAXBContext jaxbContext = cachedJAXBContext.get(typeClass);
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(typeClass);
+            JAXBContext existing = cachedJAXBContext.putIfAbsent(typeClass, jaxbContext);
+            if (existing != null) {
+                jaxbContext = existing;
+            }
         }
+        return jaxbContext;
     }
 }
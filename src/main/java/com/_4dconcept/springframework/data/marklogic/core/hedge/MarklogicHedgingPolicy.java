@@ -0,0 +1,511 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core.hedge;
+
+import com._4dconcept.springframework.data.marklogic.datasource.ContentSourceUtils;
+import com._4dconcept.springframework.data.marklogic.datasource.DelegatingContentSource;
+import com._4dconcept.springframework.data.marklogic.datasource.PooledContentSource;
+import com._4dconcept.springframework.data.marklogic.datasource.lookup.AbstractRoutingContentSource;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Hedging policy applied to the read-only operations of the template, outside of transactions : when a read has not
+ * completed within a delay derived from the observed latencies, a duplicate is sent to another target of an
+ * {@link AbstractRoutingContentSource}, typically another host of a
+ * {@link com._4dconcept.springframework.data.marklogic.datasource.lookup.LoadBalancingContentSource}. The first
+ * response is returned and the other attempt is cancelled : its thread is interrupted, and it releases its Session once
+ * its read returns.
+ * <p>
+ * The read runs on the calling thread, only the duplicate runs on the {@link #setExecutor executor}. Both attempts
+ * fetch their Session from the ContentSource of the template, with the lookup key of their target bound on the routing
+ * ContentSource while the Session and its proxied targets are obtained. A pooled Session may have been created for
+ * another target : the routing ContentSource must therefore sit below any Session pool of the chain, as
+ * {@link #checkContentSource} enforces.
+ * <p>
+ * The hedge delay is the {@link #setDelayPercentile configured percentile} of the latencies of the last reads,
+ * bounded by {@link #setMinDelay minDelay} and {@link #setMaxDelay maxDelay}. Hedges are limited by a budget, refilled
+ * by a fraction of each read, so that hedging never adds more than that fraction of extra load.
+ *
+ * @author Stéphane Toussaint
+ */
+@ManagedResource(description = "Marklogic hedging policy")
+public class MarklogicHedgingPolicy implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MarklogicHedgingPolicy.class);
+
+    private static final long TOKEN_UNIT = 1000;
+
+    private final AbstractRoutingContentSource routingContentSource;
+
+    private double delayPercentile = 0.95;
+    private long minDelay = 5;
+    private long maxDelay = 1000;
+    private int minSamples = 100;
+    private double hedgeBudgetRatio = 0.05;
+    private int hedgeBudgetCapacity = 10;
+
+    private final ScheduledThreadPoolExecutor timer;
+    @Nullable
+    private ExecutorService defaultExecutor;
+    private Executor executor;
+
+    private AtomicLongArray latencies = new AtomicLongArray(1000);
+    private final AtomicLong sampleCount = new AtomicLong();
+    private volatile long hedgeDelay = maxDelay;
+
+    private final AtomicLong hedgeTokens = new AtomicLong(hedgeBudgetCapacity * TOKEN_UNIT);
+
+    private final AtomicLong executionCount = new AtomicLong();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+    private final AtomicLong budgetRejectionCount = new AtomicLong();
+
+    /**
+     * @param routingContentSource the routing ContentSource whose targets receive the duplicate reads
+     */
+    public MarklogicHedgingPolicy(AbstractRoutingContentSource routingContentSource) {
+        this.routingContentSource = routingContentSource;
+
+        CustomizableThreadFactory timerThreadFactory = new CustomizableThreadFactory("marklogic-hedge-timer-");
+        timerThreadFactory.setDaemon(true);
+        this.timer = new ScheduledThreadPoolExecutor(1, timerThreadFactory);
+        this.timer.setRemoveOnCancelPolicy(true);
+
+        CustomizableThreadFactory hedgeThreadFactory = new CustomizableThreadFactory("marklogic-hedge-");
+        hedgeThreadFactory.setDaemon(true);
+        ExecutorService hedgeExecutor = new ThreadPoolExecutor(0, 16, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), hedgeThreadFactory);
+        this.defaultExecutor = hedgeExecutor;
+        this.executor = hedgeExecutor;
+    }
+
+    /**
+     * @param delayPercentile the percentile of the read latencies after which a read is hedged, 0.95 by default
+     */
+    public void setDelayPercentile(double delayPercentile) {
+        Assert.isTrue(delayPercentile > 0 && delayPercentile < 1, "delayPercentile must be between 0 and 1");
+        this.delayPercentile = delayPercentile;
+    }
+
+    /**
+     * @param minDelay the minimum hedge delay in milliseconds, 5ms by default
+     */
+    public void setMinDelay(long minDelay) {
+        this.minDelay = minDelay;
+    }
+
+    /**
+     * @param maxDelay the maximum hedge delay in milliseconds, also used until enough latencies are observed, 1s by
+     *                 default
+     */
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+        this.hedgeDelay = maxDelay;
+    }
+
+    /**
+     * @param sampleWindow the number of latest read latencies the delay is computed from, 1000 by default
+     */
+    public void setSampleWindow(int sampleWindow) {
+        Assert.isTrue(sampleWindow > 0, "sampleWindow must be greater than 0");
+        this.latencies = new AtomicLongArray(sampleWindow);
+        this.minSamples = Math.min(minSamples, sampleWindow);
+    }
+
+    /**
+     * @param hedgeBudgetRatio the fraction of a hedge earned by each read, 0.05 by default
+     */
+    public void setHedgeBudgetRatio(double hedgeBudgetRatio) {
+        this.hedgeBudgetRatio = hedgeBudgetRatio;
+    }
+
+    /**
+     * @param hedgeBudgetCapacity the maximum number of hedges that can be saved in the budget, 10 by default
+     */
+    public void setHedgeBudgetCapacity(int hedgeBudgetCapacity) {
+        this.hedgeBudgetCapacity = hedgeBudgetCapacity;
+        this.hedgeTokens.set(hedgeBudgetCapacity * TOKEN_UNIT);
+    }
+
+    /**
+     * @param executor the executor running the duplicate reads, at most 16 threads by default. A duplicate rejected by
+     *                 the executor is not sent.
+     */
+    public void setExecutor(Executor executor) {
+        Assert.notNull(executor, "Executor must not be null");
+        if (defaultExecutor != null) {
+            defaultExecutor.shutdown();
+            defaultExecutor = null;
+        }
+        this.executor = executor;
+    }
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+        if (defaultExecutor != null) {
+            defaultExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Execute the given read on a Session of the routing ContentSource, hedging it on another target if it is slow.
+     *
+     * @param read the read-only operation to execute
+     * @param <T> the operation result type
+     * @return the first result
+     */
+    public <T> T execute(Function<Session, T> read) {
+        return execute(routingContentSource, read);
+    }
+
+    /**
+     * Execute the given read on a Session of the given ContentSource, hedging it on another target of the routing
+     * ContentSource if it is slow.
+     *
+     * @param contentSource the ContentSource to fetch the Sessions from, wrapping the routing ContentSource
+     * @param read the read-only operation to execute
+     * @param <T> the operation result type
+     * @return the first result
+     */
+    public <T> T execute(ContentSource contentSource, Function<Session, T> read) {
+        executionCount.incrementAndGet();
+        depositHedgeToken();
+
+        List<Object> candidates = routingContentSource.getCandidateLookupKeys();
+        if (candidates.size() < 2) {
+            // Nothing to hedge on
+            Session session = contentSource.newSession();
+            try {
+                return read.apply(session);
+            } finally {
+                ContentSourceUtils.releaseSession(session, contentSource);
+            }
+        }
+
+        long start = System.nanoTime();
+        T result = new HedgedRead<>(contentSource, candidates.get(0), candidates.get(1), read).run();
+        recordLatency(start);
+        return result;
+    }
+
+    /**
+     * Check that the Sessions of the given ContentSource can be routed to a given target : the ContentSource must wrap
+     * the routing ContentSource, without any Session pool in between.
+     *
+     * @param contentSource the ContentSource the reads fetch their Sessions from
+     * @throws IllegalStateException if the Sessions of the ContentSource cannot be routed
+     */
+    public void checkContentSource(ContentSource contentSource) {
+        ContentSource current = contentSource;
+        while (current != routingContentSource) {
+            Assert.state(!(current instanceof PooledContentSource),
+                    "Session pools must be declared below the routing ContentSource of the hedging policy");
+            Assert.state(current instanceof DelegatingContentSource,
+                    "ContentSource [" + contentSource + "] does not wrap the routing ContentSource of the hedging policy");
+            current = ((DelegatingContentSource) current).getTargetContentSource();
+        }
+    }
+
+    @ManagedAttribute(description = "Current hedge delay in milliseconds")
+    public long getHedgeDelay() {
+        return hedgeDelay;
+    }
+
+    @ManagedAttribute(description = "Total number of hedged read executions")
+    public long getExecutionCount() {
+        return executionCount.get();
+    }
+
+    @ManagedAttribute(description = "Total number of duplicate reads sent")
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    @ManagedAttribute(description = "Total number of duplicate reads answering first")
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    @ManagedAttribute(description = "Total number of hedges rejected by the hedge budget")
+    public long getBudgetRejectionCount() {
+        return budgetRejectionCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of hedges currently available in the budget")
+    public double getAvailableHedges() {
+        return (double) hedgeTokens.get() / TOKEN_UNIT;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ce) {
+            throw propagate(ce.getCause());
+        }
+    }
+
+    private static RuntimeException propagate(@Nullable Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        if (failure instanceof RuntimeException) {
+            return (RuntimeException) failure;
+        }
+        return new DataRetrievalFailureException("Marklogic read failed", failure);
+    }
+
+    private void recordLatency(long start) {
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        AtomicLongArray window = latencies;
+        long count = sampleCount.incrementAndGet();
+        window.set((int) ((count - 1) % window.length()), latency);
+
+        // Refresh the delay every tenth of the window rather than on each read
+        if (count >= minSamples && count % Math.max(1, window.length() / 10) == 0) {
+            hedgeDelay = computeDelay(window, (int) Math.min(count, window.length()));
+        }
+    }
+
+    private long computeDelay(AtomicLongArray window, int size) {
+        long[] samples = new long[size];
+        for (int i = 0; i < size; i++) {
+            samples[i] = window.get(i);
+        }
+        Arrays.sort(samples);
+        long percentile = samples[Math.min(size - 1, (int) Math.ceil(delayPercentile * size) - 1)];
+        return Math.max(minDelay, Math.min(maxDelay, percentile));
+    }
+
+    private void depositHedgeToken() {
+        long capacity = hedgeBudgetCapacity * TOKEN_UNIT;
+        long deposit = (long) (hedgeBudgetRatio * TOKEN_UNIT);
+        hedgeTokens.accumulateAndGet(deposit, (current, added) -> Math.min(capacity, current + added));
+    }
+
+    private boolean withdrawHedgeToken() {
+        long current;
+        do {
+            current = hedgeTokens.get();
+            if (current < TOKEN_UNIT) {
+                return false;
+            }
+        } while (!hedgeTokens.compareAndSet(current, current - TOKEN_UNIT));
+        return true;
+    }
+
+    /**
+     * A read running on the calling thread, duplicated on the executor once the hedge delay has elapsed. The first
+     * successful attempt completes the read and cancels the other one.
+     */
+    private final class HedgedRead<T> {
+
+        private final ContentSource contentSource;
+        private final Object primaryKey;
+        private final Object hedgeKey;
+        private final Function<Session, T> read;
+        private final CompletableFuture<T> first = new CompletableFuture<>();
+
+        // Attempts state, guarded by the lock
+        private final Object lock = new Object();
+        @Nullable
+        private Thread primaryThread;
+        private boolean primaryRunning;
+        private boolean primaryCancelled;
+        private boolean hedgeStarted;
+        @Nullable
+        private Thread hedgeThread;
+        private boolean hedgeCancelled;
+        private int failures;
+
+        private HedgedRead(ContentSource contentSource, Object primaryKey, Object hedgeKey, Function<Session, T> read) {
+            this.contentSource = contentSource;
+            this.primaryKey = primaryKey;
+            this.hedgeKey = hedgeKey;
+            this.read = read;
+        }
+
+        private T run() {
+            synchronized (lock) {
+                primaryThread = Thread.currentThread();
+                primaryRunning = true;
+            }
+            ScheduledFuture<?> hedgeTimer = timer.schedule(this::startHedge, hedgeDelay, TimeUnit.MILLISECONDS);
+
+            RuntimeException failure = null;
+            Session session = null;
+            try {
+                session = newSession(primaryKey);
+                if (first.complete(read.apply(session))) {
+                    cancelHedge();
+                }
+            } catch (RuntimeException ex) {
+                failure = ex;
+            } finally {
+                hedgeTimer.cancel(false);
+                synchronized (lock) {
+                    primaryRunning = false;
+                    if (primaryCancelled) {
+                        // Clear the cancellation interrupt
+                        Thread.interrupted();
+                    }
+                }
+                release(session);
+            }
+
+            if (failure != null) {
+                onFailure(failure);
+            }
+            return join(first);
+        }
+
+        private void startHedge() {
+            synchronized (lock) {
+                if (!primaryRunning) {
+                    return;
+                }
+                if (!withdrawHedgeToken()) {
+                    budgetRejectionCount.incrementAndGet();
+                    return;
+                }
+                hedgeStarted = true;
+            }
+
+            LOGGER.debug("Hedging read on {} after {} ms", hedgeKey, hedgeDelay);
+            hedgeCount.incrementAndGet();
+            try {
+                executor.execute(this::runHedge);
+            } catch (RejectedExecutionException ex) {
+                onFailure(ex);
+            }
+        }
+
+        private void runHedge() {
+            synchronized (lock) {
+                if (first.isDone()) {
+                    return;
+                }
+                hedgeThread = Thread.currentThread();
+            }
+
+            Session session = null;
+            try {
+                session = newSession(hedgeKey);
+                if (first.complete(read.apply(session))) {
+                    hedgeWinCount.incrementAndGet();
+                    cancelPrimary();
+                }
+            } catch (RuntimeException ex) {
+                onFailure(ex);
+            } finally {
+                synchronized (lock) {
+                    hedgeThread = null;
+                    if (hedgeCancelled) {
+                        Thread.interrupted();
+                    }
+                }
+                release(session);
+            }
+        }
+
+        /**
+         * Open a Session routed to the given target. Session proxies are resolved while the lookup key is bound, so
+         * that a lazy Session does not fetch its target from whatever the routing ContentSource returns later on.
+         */
+        private Session newSession(Object lookupKey) {
+            return routingContentSource.doWithLookupKey(lookupKey, () -> {
+                Session session = contentSource.newSession();
+                try {
+                    ContentSourceUtils.getTargetSession(session);
+                } catch (RuntimeException ex) {
+                    release(session);
+                    throw ex;
+                }
+                return session;
+            });
+        }
+
+        private void onFailure(RuntimeException failure) {
+            synchronized (lock) {
+                // The read fails once every started attempt has failed
+                failures++;
+                if (!primaryRunning && failures == (hedgeStarted ? 2 : 1)) {
+                    first.completeExceptionally(failure);
+                }
+            }
+        }
+
+        /*
+         * Cancelling an attempt only interrupts its thread : Sessions are not thread-safe, the attempt releases its
+         * own Session once its read returns.
+         */
+        private void cancelPrimary() {
+            synchronized (lock) {
+                if (primaryRunning && primaryThread != null) {
+                    primaryCancelled = true;
+                    primaryThread.interrupt();
+                }
+            }
+        }
+
+        private void cancelHedge() {
+            synchronized (lock) {
+                if (hedgeThread != null) {
+                    hedgeCancelled = true;
+                    hedgeThread.interrupt();
+                }
+            }
+        }
+
+        private void release(@Nullable Session session) {
+            if (session == null) {
+                return;
+            }
+            try {
+                ContentSourceUtils.releaseSession(session, contentSource);
+            } catch (RuntimeException ex) {
+                LOGGER.debug("Unable to close read Session", ex);
+            }
+        }
+
+    }
+
+}
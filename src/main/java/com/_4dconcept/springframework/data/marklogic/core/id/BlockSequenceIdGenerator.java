@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core.id;
+
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentEntity;
+import com.marklogic.xcc.AdhocQuery;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.ResultSequence;
+import com.marklogic.xcc.Session;
+import com.marklogic.xcc.exceptions.RequestException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link IdGenerator} producing increasing {@link Long} identifiers from a server side counter document per entity
+ * type. Identifiers are reserved by blocks so that a single request is issued every {@code blockSize} identifiers.
+ * <p>
+ * Blocks are reserved with a dedicated session, outside of any ongoing transaction, so that a rollback never gives
+ * back reserved identifiers. Identifiers left in a block when the application stops are lost, leaving gaps in the
+ * sequence.
+ *
+ * @author Stéphane Toussaint
+ */
+public class BlockSequenceIdGenerator implements IdGenerator {
+
+    private static final String DEFAULT_COUNTER_URI_PREFIX = "/spring-data-marklogic/sequences/";
+
+    private static final String RESERVE_BLOCK_QUERY = "declare variable $uri as xs:string external;\n" +
+            "declare variable $size as xs:integer external;\n" +
+            "xdmp:lock-for-update($uri),\n" +
+            "let $current := fn:head((fn:doc($uri)/sequence/xs:long(.), 0))\n" +
+            "let $next := $current + $size\n" +
+            "return (xdmp:document-insert($uri, <sequence>{$next}</sequence>), $next)";
+
+    private final ContentSource contentSource;
+    private final int blockSize;
+    private final Map<Class<?>, Sequence> sequences = new ConcurrentHashMap<>();
+
+    private String counterUriPrefix = DEFAULT_COUNTER_URI_PREFIX;
+
+    public BlockSequenceIdGenerator(ContentSource contentSource, int blockSize) {
+        Assert.isTrue(blockSize > 0, "The block size must be greater than 0");
+        this.contentSource = contentSource;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @param counterUriPrefix the prefix of the counter documents uri, the entity type name being appended to it
+     */
+    public void setCounterUriPrefix(String counterUriPrefix) {
+        this.counterUriPrefix = counterUriPrefix;
+    }
+
+    @Override
+    public Object generate(MarklogicPersistentEntity<?> entity) {
+        return sequences.computeIfAbsent(entity.getType(), type -> new Sequence(counterUriPrefix + type.getName() + ".xml")).next();
+    }
+
+    /**
+     * Reserve the next block of the given counter.
+     *
+     * @param counterUri the uri of the counter document
+     * @return the last identifier of the reserved block
+     */
+    protected long reserveBlock(String counterUri) {
+        Session session = contentSource.newSession();
+        try {
+            AdhocQuery query = session.newAdhocQuery(RESERVE_BLOCK_QUERY);
+            query.setNewStringVariable("uri", counterUri);
+            query.setNewIntegerVariable("size", blockSize);
+            ResultSequence resultSequence = session.submitRequest(query);
+            return Long.parseLong(resultSequence.asString());
+        } catch (RequestException re) {
+            throw new DataAccessResourceFailureException("Unable to reserve an identifier block from " + counterUri, re);
+        } finally {
+            session.close();
+        }
+    }
+
+    private final class Sequence {
+
+        private final String counterUri;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Block block = new Block(1, 0);
+
+        private Sequence(String counterUri) {
+            this.counterUri = counterUri;
+        }
+
+        private long next() {
+            Block current = block;
+            long value = current.next.getAndIncrement();
+            if (value <= current.last) {
+                return value;
+            }
+
+            lock.lock();
+            try {
+                while (true) {
+                    current = block;
+                    value = current.next.getAndIncrement();
+                    if (value <= current.last) {
+                        return value;
+                    }
+
+                    long last = reserveBlock(counterUri);
+                    block = new Block(last - blockSize + 1, last);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+        private final long last;
+
+        private Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+
+}
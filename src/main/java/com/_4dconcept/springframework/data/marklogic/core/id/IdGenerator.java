@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core.id;
+
+import com._4dconcept.springframework.data.marklogic.core.mapping.Document;
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentEntity;
+
+/**
+ * Strategy generating the identifier of entities inserted without one. The generated value is converted to the type
+ * of the id property.
+ *
+ * @author Stéphane Toussaint
+ * @see Document#idGenerator()
+ */
+public interface IdGenerator {
+
+    /**
+     * @param entity the persistent entity of the object to identify
+     * @return a new identifier
+     */
+    Object generate(MarklogicPersistentEntity<?> entity);
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core.id;
+
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentEntity;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link IdGenerator} producing version 4 UUIDs from {@link ThreadLocalRandom}. Unlike {@link UUID#randomUUID()} it
+ * does not share a {@link java.security.SecureRandom} between threads, at the cost of non cryptographic randomness.
+ *
+ * @author Stéphane Toussaint
+ */
+public class ThreadLocalRandomUuidIdGenerator implements IdGenerator {
+
+    @Override
+    public Object generate(MarklogicPersistentEntity<?> entity) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+}
@@ -0,0 +1,2 @@
+@org.springframework.lang.NonNullApi
+package com._4dconcept.springframework.data.marklogic.core.id;
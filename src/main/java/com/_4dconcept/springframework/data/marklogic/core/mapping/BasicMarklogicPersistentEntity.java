@@ -16,6 +16,9 @@
 package com._4dconcept.springframework.data.marklogic.core.mapping;
 
 import com._4dconcept.springframework.data.marklogic.MarklogicUrlUtils;
+import com._4dconcept.springframework.data.marklogic.core.convert.BinaryCodec;
+import com._4dconcept.springframework.data.marklogic.core.convert.JacksonBinaryCodec;
+import com._4dconcept.springframework.data.marklogic.core.id.IdGenerator;
 import org.springframework.data.mapping.MappingException;
 import org.springframework.data.mapping.model.BasicPersistentEntity;
 import org.springframework.data.util.TypeInformation;
@@ -26,7 +29,7 @@ import java.util.Comparator;
 
 /**
  * Specialized value object to capture information of {@link MarklogicPersistentEntity}s.
- * It provide access to entity 'uri', 'defaultCollection'
+ * It provide access to entity 'uri', 'defaultCollection' and storage 'format'
  *
  * @author Stéphane Toussaint
  */
@@ -35,6 +38,9 @@ public class BasicMarklogicPersistentEntity<T> extends BasicPersistentEntity<T,
     private final String uri;
     private @Nullable final String defaultCollection;
     private final boolean idInPropertyFragment;
+    private final ContentFormat format;
+    private final Class<? extends BinaryCodec> codecType;
+    private @Nullable final Class<? extends IdGenerator> idGeneratorType;
 
     BasicMarklogicPersistentEntity(TypeInformation<T> information) {
         this(information, null);
@@ -44,17 +50,22 @@ public class BasicMarklogicPersistentEntity<T> extends BasicPersistentEntity<T,
         super(information, comparator);
 
         Class<T> rawType = getTypeInformation().getType();
-        String fallback = MarklogicUrlUtils.getPreferredUrlPattern(rawType);
 
         Document document = this.findAnnotation(Document.class);
         Collection collection = this.findAnnotation(Collection.class);
 
         if (document != null) {
-            this.uri = StringUtils.hasText(document.uri()) ? document.uri() : fallback;
+            this.format = document.format();
+            this.uri = StringUtils.hasText(document.uri()) ? document.uri() : MarklogicUrlUtils.getPreferredUrlPattern(rawType, this.format);
             this.idInPropertyFragment = document.idInPropertyFragment();
+            this.codecType = document.codec();
+            this.idGeneratorType = document.idGenerator() == IdGenerator.class ? null : document.idGenerator();
         } else {
-            this.uri = fallback;
+            this.format = ContentFormat.XML;
+            this.uri = MarklogicUrlUtils.getPreferredUrlPattern(rawType, this.format);
             this.idInPropertyFragment = false;
+            this.codecType = JacksonBinaryCodec.class;
+            this.idGeneratorType = null;
         }
 
         if (collection != null) {
@@ -98,6 +109,22 @@ public class BasicMarklogicPersistentEntity<T> extends BasicPersistentEntity<T,
         return idInPropertyFragment;
     }
 
+    @Override
+    public ContentFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public Class<? extends BinaryCodec> getCodecType() {
+        return codecType;
+    }
+
+    @Nullable
+    @Override
+    public Class<? extends IdGenerator> getIdGeneratorType() {
+        return idGeneratorType;
+    }
+
     @Override
     protected MarklogicPersistentProperty returnPropertyIfBetterIdPropertyCandidateOrNull(MarklogicPersistentProperty property) {
         if (!property.isIdProperty()) {
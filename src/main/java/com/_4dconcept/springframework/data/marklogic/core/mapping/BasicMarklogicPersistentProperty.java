@@ -17,15 +17,18 @@ package com._4dconcept.springframework.data.marklogic.core.mapping;
 
 import com._4dconcept.springframework.data.marklogic.MarklogicTypeUtils;
 import org.springframework.data.mapping.Association;
+import org.springframework.data.mapping.MappingException;
 import org.springframework.data.mapping.model.AnnotationBasedPersistentProperty;
 import org.springframework.data.mapping.model.Property;
 import org.springframework.data.mapping.model.SimpleTypeHolder;
+import org.springframework.data.util.Lazy;
 import org.springframework.lang.Nullable;
 
 import javax.xml.bind.annotation.*;
 import javax.xml.namespace.QName;
 import java.lang.reflect.Method;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -45,8 +48,19 @@ public class BasicMarklogicPersistentProperty extends AnnotationBasedPersistentP
 
     private static final String XML_DEFAULT = "##default";
 
+    private final @Nullable LazyLoading lazyLoading;
+    private final Lazy<QName> qName;
+
     BasicMarklogicPersistentProperty(Property property, MarklogicPersistentEntity<?> owner, SimpleTypeHolder simpleTypeHolder) {
         super(property, owner, simpleTypeHolder);
+
+        this.lazyLoading = this.findAnnotation(LazyLoading.class);
+        this.qName = Lazy.of(this::resolveQName);
+
+        if (lazyLoading != null && !getType().isAssignableFrom(List.class)) {
+            throw new MappingException(String.format("Lazy loading is only supported on List properties. Property %s of %s is a %s",
+                    getName(), owner.getType().getName(), getType().getName()));
+        }
     }
 
     /*
@@ -63,8 +77,15 @@ public class BasicMarklogicPersistentProperty extends AnnotationBasedPersistentP
         return super.isIdProperty(); // Consider an explicit Id if annotation present.
     }
 
+    /**
+     * @return the full qualified name of the property, resolved once and then reused
+     */
     @Override
     public QName getQName() {
+        return qName.get();
+    }
+
+    private QName resolveQName() {
         String namespaceUri = null;
         String localName = null;
 
@@ -87,6 +108,16 @@ public class BasicMarklogicPersistentProperty extends AnnotationBasedPersistentP
         return new QName(namespaceUri, localName);
     }
 
+    @Override
+    public boolean isLazy() {
+        return lazyLoading != null;
+    }
+
+    @Override
+    public int getLazyPageSize() {
+        return lazyLoading == null ? 0 : Math.max(lazyLoading.pageSize(), 0);
+    }
+
     @Override
     protected Association<MarklogicPersistentProperty> createAssociation() {
         return new Association<>(this, null);
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core.mapping;
+
+/**
+ * Storage format of a {@link Document} annotated entity.
+ *
+ * @author Stéphane Toussaint
+ */
+public enum ContentFormat {
+
+    /**
+     * Entity is marshalled to XML and stored as an XML document. Content can be queried.
+     */
+    XML,
+
+    /**
+     * Entity is encoded by a {@link com._4dconcept.springframework.data.marklogic.core.convert.BinaryCodec} and
+     * stored as a binary document. Content is opaque to the server and can only be fetched by uri.
+     */
+    BINARY
+
+}
@@ -15,6 +15,9 @@
  */
 package com._4dconcept.springframework.data.marklogic.core.mapping;
 
+import com._4dconcept.springframework.data.marklogic.core.convert.BinaryCodec;
+import com._4dconcept.springframework.data.marklogic.core.convert.JacksonBinaryCodec;
+import com._4dconcept.springframework.data.marklogic.core.id.IdGenerator;
 import org.springframework.core.annotation.AliasFor;
 import org.springframework.data.annotation.Persistent;
 
@@ -40,6 +43,22 @@ public @interface Document {
 
     boolean idInPropertyFragment() default false;
 
+    /**
+     * @return the format the entity is stored with
+     */
+    ContentFormat format() default ContentFormat.XML;
+
+    /**
+     * @return the codec used to encode/decode the entity when stored with the {@link ContentFormat#BINARY} format
+     */
+    Class<? extends BinaryCodec> codec() default JacksonBinaryCodec.class;
+
+    /**
+     * @return the generator of the entity identifier. {@link IdGenerator} itself, the default, selects the template
+     * default generator
+     */
+    Class<? extends IdGenerator> idGenerator() default IdGenerator.class;
+
     /**
      * @deprecated This annotation attribute will be removed in future version, replaced by {@link Collection#prefix()}
      * @return the primary collection prefix
@@ -15,7 +15,10 @@
  */
 package com._4dconcept.springframework.data.marklogic.core.mapping;
 
+import com._4dconcept.springframework.data.marklogic.core.convert.BinaryCodec;
+import com._4dconcept.springframework.data.marklogic.core.id.IdGenerator;
 import org.springframework.data.mapping.PersistentEntity;
+import org.springframework.lang.Nullable;
 
 /**
  * Marklogic specific {@link PersistentEntity} abstraction.
@@ -39,4 +42,20 @@ public interface MarklogicPersistentEntity<T> extends PersistentEntity<T, Marklo
      */
     boolean idInPropertyFragment();
 
+    /**
+     * @return the format the entity is stored with
+     */
+    ContentFormat getFormat();
+
+    /**
+     * @return the codec used for the {@link ContentFormat#BINARY} format
+     */
+    Class<? extends BinaryCodec> getCodecType();
+
+    /**
+     * @return the generator of the entity identifier or {@literal null} to use the default one
+     */
+    @Nullable
+    Class<? extends IdGenerator> getIdGeneratorType();
+
 }
@@ -41,4 +41,14 @@ public interface MarklogicPersistentProperty extends PersistentProperty<Marklogi
 
     Optional<Method> getReadMethod();
 
+    /**
+     * @return true if the property is annotated with {@link LazyLoading}
+     */
+    boolean isLazy();
+
+    /**
+     * @return the number of elements to fetch per round trip when lazily loaded. 0 to fetch them all at once
+     */
+    int getLazyPageSize();
+
 }
\ No newline at end of file
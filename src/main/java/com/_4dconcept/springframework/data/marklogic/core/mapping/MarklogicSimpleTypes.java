@@ -19,6 +19,7 @@ import java.math.BigInteger;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * Simple constant holder.
@@ -33,6 +34,8 @@ public abstract class MarklogicSimpleTypes {
         Set<Class<?>> classes = new HashSet<>();
         classes.add(String.class);
         classes.add(BigInteger.class);
+        classes.add(Long.class);
+        classes.add(UUID.class);
         AUTOGENERATED_ID_TYPES = Collections.unmodifiableSet(classes);
     }
 
@@ -17,6 +17,8 @@ package com._4dconcept.springframework.data.marklogic.core.query;
 
 import org.springframework.lang.Nullable;
 
+import java.math.BigInteger;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 
@@ -33,6 +35,12 @@ public class Query {
     private @Nullable String collection;
     private @Nullable Criteria criteria;
     private List<SortCriteria> sortCriteria;
+    private @Nullable Duration timeout;
+    private int resultBufferSize;
+    private int maxAutoRetry = -1;
+    private @Nullable BigInteger effectivePointInTime;
+    private boolean cacheResult;
+    private @Nullable String defaultXQueryVersion;
 
     public Query() {
     }
@@ -112,4 +120,91 @@ public class Query {
     public void setSortCriteria(List<SortCriteria> sortCriteria) {
         this.sortCriteria = sortCriteria;
     }
+
+    /**
+     * @return the timeout
+     */
+    @Nullable
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param timeout the timeout to set
+     */
+    public void setTimeout(@Nullable Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return the result buffer size, 0 for the XCC default
+     */
+    public int getResultBufferSize() {
+        return resultBufferSize;
+    }
+
+    /**
+     * @param resultBufferSize the result buffer size to set
+     */
+    public void setResultBufferSize(int resultBufferSize) {
+        this.resultBufferSize = resultBufferSize;
+    }
+
+    /**
+     * @return the max auto retry, -1 for the XCC default
+     */
+    public int getMaxAutoRetry() {
+        return maxAutoRetry;
+    }
+
+    /**
+     * @param maxAutoRetry the max auto retry to set
+     */
+    public void setMaxAutoRetry(int maxAutoRetry) {
+        this.maxAutoRetry = maxAutoRetry;
+    }
+
+    /**
+     * @return the effective point in time
+     */
+    @Nullable
+    public BigInteger getEffectivePointInTime() {
+        return effectivePointInTime;
+    }
+
+    /**
+     * @param effectivePointInTime the effective point in time to set
+     */
+    public void setEffectivePointInTime(@Nullable BigInteger effectivePointInTime) {
+        this.effectivePointInTime = effectivePointInTime;
+    }
+
+    /**
+     * @return true to fetch the whole result before returning, false (default) to stream it from the server
+     */
+    public boolean isCacheResult() {
+        return cacheResult;
+    }
+
+    /**
+     * @param cacheResult the cache result flag to set
+     */
+    public void setCacheResult(boolean cacheResult) {
+        this.cacheResult = cacheResult;
+    }
+
+    /**
+     * @return the default XQuery version, {@literal null} for the server default
+     */
+    @Nullable
+    public String getDefaultXQueryVersion() {
+        return defaultXQueryVersion;
+    }
+
+    /**
+     * @param defaultXQueryVersion the default XQuery version to set
+     */
+    public void setDefaultXQueryVersion(@Nullable String defaultXQueryVersion) {
+        this.defaultXQueryVersion = defaultXQueryVersion;
+    }
 }
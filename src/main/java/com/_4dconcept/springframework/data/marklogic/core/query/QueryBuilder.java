@@ -129,6 +129,7 @@ public class QueryBuilder {
 
     public Query build() {
         Query query = new Query();
+        query.setTimeout(options.timeout());
 
         setCollectionIfDefined(query);
 
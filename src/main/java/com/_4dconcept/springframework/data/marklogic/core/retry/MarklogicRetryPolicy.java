@@ -0,0 +1,285 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core.retry;
+
+import com.marklogic.xcc.exceptions.RetryableXQueryException;
+import com.marklogic.xcc.exceptions.ServerConnectionException;
+import com.marklogic.xcc.exceptions.XQueryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Retry policy applied to idempotent operations failing with a transient error : connection failures,
+ * {@link RetryableXQueryException} or {@link XQueryException} with a {@link #setRetryableErrorCodes retryable code}.
+ * <p>
+ * Attempts are separated by an exponential backoff with full jitter. Retries are limited by a retry budget, refilled
+ * by a fraction of each execution, so that retries never amplify an outage. A circuit breaker rejects every operation
+ * for a while once too many consecutive transient failures occurred.
+ *
+ * @author Stéphane Toussaint
+ */
+@ManagedResource(description = "Marklogic retry policy")
+public class MarklogicRetryPolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MarklogicRetryPolicy.class);
+
+    private static final long TOKEN_UNIT = 1000;
+
+    private int maxAttempts = 3;
+    private long initialBackoff = 50;
+    private long maxBackoff = 2000;
+    private double backoffMultiplier = 2;
+    private double retryBudgetRatio = 0.1;
+    private int retryBudgetCapacity = 10;
+    private int circuitBreakerThreshold = 5;
+    private long circuitBreakerOpenDuration = 30000;
+    private Set<String> retryableErrorCodes = new HashSet<>(Arrays.asList("XDMP-DEADLOCK", "XDMP-FORESTNOTOPEN", "XDMP-XDQPNOSESSION"));
+
+    private final AtomicLong retryTokens = new AtomicLong(retryBudgetCapacity * TOKEN_UNIT);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long circuitOpenUntil;
+
+    private final AtomicLong executionCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong recoveryCount = new AtomicLong();
+    private final AtomicLong exhaustedCount = new AtomicLong();
+    private final AtomicLong budgetRejectionCount = new AtomicLong();
+    private final AtomicLong circuitRejectionCount = new AtomicLong();
+
+    /**
+     * @param maxAttempts the maximum number of attempts, including the first one, 3 by default
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        Assert.isTrue(maxAttempts > 0, "maxAttempts must be greater than 0");
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * @param initialBackoff the maximum delay in milliseconds before the first retry, 50ms by default
+     */
+    public void setInitialBackoff(long initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    /**
+     * @param maxBackoff the upper bound in milliseconds of the delay between two attempts, 2s by default
+     */
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * @param backoffMultiplier the factor applied to the delay after each attempt, 2 by default
+     */
+    public void setBackoffMultiplier(double backoffMultiplier) {
+        this.backoffMultiplier = backoffMultiplier;
+    }
+
+    /**
+     * @param retryBudgetRatio the fraction of a retry earned by each execution, 0.1 by default
+     */
+    public void setRetryBudgetRatio(double retryBudgetRatio) {
+        this.retryBudgetRatio = retryBudgetRatio;
+    }
+
+    /**
+     * @param retryBudgetCapacity the maximum number of retries that can be saved in the budget, 10 by default
+     */
+    public void setRetryBudgetCapacity(int retryBudgetCapacity) {
+        this.retryBudgetCapacity = retryBudgetCapacity;
+        this.retryTokens.set(retryBudgetCapacity * TOKEN_UNIT);
+    }
+
+    /**
+     * @param circuitBreakerThreshold the number of consecutive transient failures opening the circuit, 5 by default
+     */
+    public void setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+
+    /**
+     * @param circuitBreakerOpenDuration the time in milliseconds the circuit stays open, 30s by default
+     */
+    public void setCircuitBreakerOpenDuration(long circuitBreakerOpenDuration) {
+        this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+    }
+
+    /**
+     * @param retryableErrorCodes the {@link XQueryException} codes considered as transient
+     */
+    public void setRetryableErrorCodes(Set<String> retryableErrorCodes) {
+        this.retryableErrorCodes = new HashSet<>(retryableErrorCodes);
+    }
+
+    /**
+     * Execute the given idempotent operation, retrying it on transient failures.
+     *
+     * @param operation the operation to execute
+     * @param <T> the operation result type
+     * @return the operation result
+     */
+    public <T> T execute(Supplier<T> operation) {
+        if (System.currentTimeMillis() < circuitOpenUntil) {
+            circuitRejectionCount.incrementAndGet();
+            throw new CircuitBreakerOpenException("Marklogic circuit breaker is open after " + consecutiveFailures.get() + " consecutive failures");
+        }
+
+        executionCount.incrementAndGet();
+        depositRetryToken();
+
+        long backoff = initialBackoff;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = operation.get();
+                consecutiveFailures.set(0);
+                if (attempt > 1) {
+                    recoveryCount.incrementAndGet();
+                }
+                return result;
+            } catch (RuntimeException ex) {
+                if (!isTransient(ex)) {
+                    throw ex;
+                }
+
+                if (consecutiveFailures.incrementAndGet() >= circuitBreakerThreshold) {
+                    circuitOpenUntil = System.currentTimeMillis() + circuitBreakerOpenDuration;
+                    LOGGER.warn("Opening Marklogic circuit breaker for {} ms after {} consecutive failures", circuitBreakerOpenDuration, consecutiveFailures.get());
+                    throw ex;
+                }
+
+                if (attempt >= maxAttempts) {
+                    exhaustedCount.incrementAndGet();
+                    throw ex;
+                }
+
+                if (!withdrawRetryToken()) {
+                    budgetRejectionCount.incrementAndGet();
+                    throw ex;
+                }
+
+                long delay = backoff > 0 ? ThreadLocalRandom.current().nextLong(backoff + 1) : 0;
+                LOGGER.debug("Retrying operation in {} ms after transient failure (attempt {}/{}) : {}", delay, attempt, maxAttempts, ex.getMessage());
+                retryCount.incrementAndGet();
+
+                try {
+                    sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+
+                backoff = Math.min(maxBackoff, (long) (backoff * backoffMultiplier));
+            }
+        }
+    }
+
+    /**
+     * @param ex the failure to check
+     * @return whether the failure, or one of its causes, is transient
+     */
+    public boolean isTransient(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryTimeoutException) {
+                // The operation deadline is spent, another attempt would time out as well
+                return false;
+            }
+            if (cause instanceof ServerConnectionException || cause instanceof RetryableXQueryException) {
+                return true;
+            }
+            if (cause instanceof XQueryException && retryableErrorCodes.contains(((XQueryException) cause).getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wait before the next attempt. Overridable for testing purpose.
+     *
+     * @param millis the time to wait in milliseconds
+     * @throws InterruptedException if interrupted while waiting
+     */
+    protected void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    @ManagedAttribute(description = "Number of executed operations")
+    public long getExecutionCount() {
+        return executionCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of retried attempts")
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of operations succeeding after a retry")
+    public long getRecoveryCount() {
+        return recoveryCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of operations failing after the last attempt")
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of retries rejected by the retry budget")
+    public long getBudgetRejectionCount() {
+        return budgetRejectionCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of operations rejected by the open circuit breaker")
+    public long getCircuitRejectionCount() {
+        return circuitRejectionCount.get();
+    }
+
+    @ManagedAttribute(description = "Whether the circuit breaker is open")
+    public boolean isCircuitOpen() {
+        return System.currentTimeMillis() < circuitOpenUntil;
+    }
+
+    private void depositRetryToken() {
+        long deposit = (long) (retryBudgetRatio * TOKEN_UNIT);
+        long capacity = retryBudgetCapacity * TOKEN_UNIT;
+        retryTokens.getAndUpdate(tokens -> Math.min(capacity, tokens + deposit));
+    }
+
+    private boolean withdrawRetryToken() {
+        long tokens;
+        do {
+            tokens = retryTokens.get();
+            if (tokens < TOKEN_UNIT) {
+                return false;
+            }
+        } while (!retryTokens.compareAndSet(tokens, tokens - TOKEN_UNIT));
+        return true;
+    }
+
+}
@@ -35,4 +35,12 @@ class CannotGetXdbcSessionException extends DataAccessResourceFailureException {
     CannotGetXdbcSessionException(String msg, XccException ex) {
         super(msg, ex);
     }
+
+    /**
+     * Constructor for CannotGetXdbcSessionException.
+     * @param msg the detail message
+     */
+    CannotGetXdbcSessionException(String msg) {
+        super(msg);
+    }
 }
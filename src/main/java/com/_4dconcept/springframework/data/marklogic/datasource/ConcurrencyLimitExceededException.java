@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import org.springframework.dao.TransientDataAccessResourceException;
+
+/**
+ * Exception thrown when a request is rejected by a {@link ConcurrencyLimitingContentSource} because its concurrency
+ * limit is reached and it could not be queued, or waited too long in the queue.
+ *
+ * @author Stéphane Toussaint
+ */
+@SuppressWarnings("serial")
+public class ConcurrencyLimitExceededException extends TransientDataAccessResourceException {
+
+    public ConcurrencyLimitExceededException(String msg) {
+        super(msg);
+    }
+
+}
@@ -0,0 +1,614 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import com.marklogic.xcc.Content;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Request;
+import com.marklogic.xcc.ResultSequence;
+import com.marklogic.xcc.Session;
+import com.marklogic.xcc.exceptions.RequestException;
+import com.marklogic.xcc.exceptions.ServerConnectionException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ContentSource} bounding the number of concurrent requests sent to the target ContentSource, so that a slow
+ * Marklogic server is not overloaded further by every application thread.
+ *
+ * <p>Reads and writes have their own limit. Each limit adapts to the observed latency : it grows while the request
+ * latency stays close to its long term average, and shrinks when the latency rises above it
+ * ({@link #setRttTolerance rttTolerance}) or, multiplicatively, when the server can not be reached. Requests beyond
+ * the limit wait in a bounded queue for at most {@link #setMaxWait maxWait}, others are rejected right away with a
+ * {@link ConcurrencyLimitExceededException}.
+ *
+ * <p>Content insertions, requests of read-write transactions or {@code UPDATE} Sessions, and requests submitted within
+ * {@link ContentSourceUtils#doAsWrite(Runnable)} are writes, any other request is a read. The permit of a request
+ * returning a streamed, non cached, {@code ResultSequence} is held until the result is fully read, cached or closed,
+ * or until its Session is closed. Override {@link #isWrite(Session, boolean)} to classify requests differently.
+ *
+ * @author Stéphane Toussaint
+ */
+@ManagedResource(description = "Marklogic concurrency limiter")
+public class ConcurrencyLimitingContentSource extends DelegatingContentSource {
+
+    private static final Log logger = LogFactory.getLog(ConcurrencyLimitingContentSource.class);
+
+    // Methods of a streamed ResultSequence reading it to the end
+    private static final Set<String> STREAM_ENDING_METHODS = new HashSet<>(Arrays.asList(
+            "close", "toCached", "asString", "asStrings", "toArrayOfStrings", "toArray", "toResultItemArray"));
+
+    private int initialReadLimit = 20;
+    private int maxReadLimit = 200;
+    private int initialWriteLimit = 10;
+    private int maxWriteLimit = 100;
+    private int minLimit = 1;
+    private int maxQueueSize = 100;
+    private long maxWait = 1000;
+    private double rttTolerance = 1.5;
+    private double smoothing = 0.2;
+    private double backoffRatio = 0.9;
+
+    @Nullable
+    private AdaptiveLimit readLimit;
+
+    @Nullable
+    private AdaptiveLimit writeLimit;
+
+    /**
+     * Create a new ConcurrencyLimitingContentSource.
+     * @see #setTargetContentSource
+     */
+    public ConcurrencyLimitingContentSource() {
+    }
+
+    /**
+     * Create a new ConcurrencyLimitingContentSource.
+     * @param targetContentSource the target ContentSource
+     */
+    public ConcurrencyLimitingContentSource(ContentSource targetContentSource) {
+        super(targetContentSource);
+    }
+
+    /**
+     * @param initialReadLimit the initial number of concurrent reads, 20 by default
+     */
+    public void setInitialReadLimit(int initialReadLimit) {
+        this.initialReadLimit = initialReadLimit;
+    }
+
+    /**
+     * @param maxReadLimit the maximum number of concurrent reads, 200 by default
+     */
+    public void setMaxReadLimit(int maxReadLimit) {
+        this.maxReadLimit = maxReadLimit;
+    }
+
+    /**
+     * @param initialWriteLimit the initial number of concurrent writes, 10 by default
+     */
+    public void setInitialWriteLimit(int initialWriteLimit) {
+        this.initialWriteLimit = initialWriteLimit;
+    }
+
+    /**
+     * @param maxWriteLimit the maximum number of concurrent writes, 100 by default
+     */
+    public void setMaxWriteLimit(int maxWriteLimit) {
+        this.maxWriteLimit = maxWriteLimit;
+    }
+
+    /**
+     * @param minLimit the minimum number of concurrent reads or writes, 1 by default
+     */
+    public void setMinLimit(int minLimit) {
+        Assert.isTrue(minLimit > 0, "minLimit must be greater than 0");
+        this.minLimit = minLimit;
+    }
+
+    /**
+     * @param maxQueueSize the maximum number of reads or writes waiting for the limit, 100 by default. 0 rejects
+     *                     the requests beyond the limit right away
+     */
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    /**
+     * @param maxWait the maximum time in milliseconds a request waits in the queue, 1s by default
+     */
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * @param rttTolerance the ratio of the recent latency to the long term latency above which the limit shrinks,
+     *                     1.5 by default
+     */
+    public void setRttTolerance(double rttTolerance) {
+        Assert.isTrue(rttTolerance >= 1, "rttTolerance must be greater than or equal to 1");
+        this.rttTolerance = rttTolerance;
+    }
+
+    /**
+     * @param smoothing the weight of each limit update, between 0 and 1, 0.2 by default
+     */
+    public void setSmoothing(double smoothing) {
+        Assert.isTrue(smoothing > 0 && smoothing <= 1, "smoothing must be between 0 and 1");
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * @param backoffRatio the ratio applied to the limit when the server can not be reached, 0.9 by default
+     */
+    public void setBackoffRatio(double backoffRatio) {
+        Assert.isTrue(backoffRatio > 0 && backoffRatio < 1, "backoffRatio must be between 0 and 1");
+        this.backoffRatio = backoffRatio;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        this.readLimit = new AdaptiveLimit("read", initialReadLimit, maxReadLimit);
+        this.writeLimit = new AdaptiveLimit("write", initialWriteLimit, maxWriteLimit);
+    }
+
+    @Override
+    public Session newSession() {
+        return wrapSession(getTargetContentSource().newSession());
+    }
+
+    @Override
+    public Session newSession(String contentbaseId) {
+        return wrapSession(getTargetContentSource().newSession(contentbaseId));
+    }
+
+    @Override
+    @Deprecated
+    public Session newSession(String username, String password) {
+        return wrapSession(getTargetContentSource().newSession(username, password));
+    }
+
+    @Override
+    public Session newSession(String username, char[] password) {
+        return wrapSession(getTargetContentSource().newSession(username, password));
+    }
+
+    @Override
+    public Session newSession(String username, char[] password, String contentbaseId) {
+        return wrapSession(getTargetContentSource().newSession(username, password, contentbaseId));
+    }
+
+    @Override
+    @Deprecated
+    public Session newSession(String username, String password, String contentbaseId) {
+        return wrapSession(getTargetContentSource().newSession(username, password, contentbaseId));
+    }
+
+    /**
+     * Determine whether a request is a write, limited by the write limit, or a read.
+     * @param session the target Session of the request
+     * @param contentInsertion true for a content insertion, false for a submitted request
+     * @return true for a write
+     */
+    protected boolean isWrite(Session session, boolean contentInsertion) {
+        if (contentInsertion || ContentSourceUtils.isWriteRequested()) {
+            return true;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        }
+        return session.getTransactionMode() == Session.TransactionMode.UPDATE;
+    }
+
+    @ManagedAttribute(description = "Current number of concurrent reads allowed")
+    public int getReadLimit() {
+        return obtainReadLimit().getLimit();
+    }
+
+    @ManagedAttribute(description = "Number of reads in flight")
+    public int getReadInFlight() {
+        return obtainReadLimit().getInFlight();
+    }
+
+    @ManagedAttribute(description = "Number of reads waiting for the limit")
+    public int getReadQueued() {
+        return obtainReadLimit().getQueued();
+    }
+
+    @ManagedAttribute(description = "Total number of rejected reads")
+    public long getReadRejectedCount() {
+        return obtainReadLimit().rejectedCount.get();
+    }
+
+    @ManagedAttribute(description = "Current number of concurrent writes allowed")
+    public int getWriteLimit() {
+        return obtainWriteLimit().getLimit();
+    }
+
+    @ManagedAttribute(description = "Number of writes in flight")
+    public int getWriteInFlight() {
+        return obtainWriteLimit().getInFlight();
+    }
+
+    @ManagedAttribute(description = "Number of writes waiting for the limit")
+    public int getWriteQueued() {
+        return obtainWriteLimit().getQueued();
+    }
+
+    @ManagedAttribute(description = "Total number of rejected writes")
+    public long getWriteRejectedCount() {
+        return obtainWriteLimit().rejectedCount.get();
+    }
+
+    private AdaptiveLimit obtainReadLimit() {
+        Assert.state(readLimit != null, "ConcurrencyLimitingContentSource not initialized");
+        return readLimit;
+    }
+
+    private AdaptiveLimit obtainWriteLimit() {
+        Assert.state(writeLimit != null, "ConcurrencyLimitingContentSource not initialized");
+        return writeLimit;
+    }
+
+    private Session wrapSession(Session target) {
+        return new LimitedSession(target);
+    }
+
+    /**
+     * Concurrency limit adapting to the latency of the requests, with a bounded queue of waiting requests.
+     */
+    private final class AdaptiveLimit {
+
+        private final String name;
+
+        private final int maxLimit;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition available = lock.newCondition();
+
+        private final AtomicLong rejectedCount = new AtomicLong();
+
+        private double limit;
+
+        private int inFlight;
+
+        private int queued;
+
+        // Short and long term averages of the request latency, in nanoseconds
+        private double shortRtt;
+
+        private double longRtt;
+
+        AdaptiveLimit(String name, int initialLimit, int maxLimit) {
+            this.name = name;
+            this.maxLimit = Math.max(minLimit, maxLimit);
+            this.limit = Math.max(minLimit, Math.min(this.maxLimit, initialLimit));
+        }
+
+        void acquire() {
+            lock.lock();
+            try {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    return;
+                }
+
+                if (queued >= maxQueueSize) {
+                    throw reject(String.format("Concurrency limit of %d %ss reached, %d already queued", (int) limit, name, queued));
+                }
+
+                queued++;
+                try {
+                    long remaining = TimeUnit.MILLISECONDS.toNanos(maxWait);
+                    while (inFlight >= (int) limit) {
+                        if (remaining <= 0) {
+                            throw reject(String.format("Timeout waiting %d ms for the concurrency limit of %d %ss", maxWait, (int) limit, name));
+                        }
+                        remaining = available.awaitNanos(remaining);
+                    }
+                    inFlight++;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new ConcurrencyLimitExceededException("Interrupted while waiting for the concurrency limit of " + name + "s");
+                } finally {
+                    queued--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(long rtt, boolean dropped) {
+            lock.lock();
+            try {
+                int previousInFlight = inFlight--;
+                if (dropped) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Connection failure, " + name + " limit decreased to " + (int) limit);
+                    }
+                } else if (rtt > 0) {
+                    update(rtt, previousInFlight);
+                }
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void update(long rtt, int previousInFlight) {
+            shortRtt = shortRtt == 0 ? rtt : shortRtt + (rtt - shortRtt) / 10;
+            longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / 100;
+
+            // Recover faster from a past overload that raised the long term latency
+            if (longRtt / shortRtt > 2) {
+                longRtt *= 0.95;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+
+            // The limit only grows when it is actually used
+            if (gradient >= 1.0 && previousInFlight < limit / 2) {
+                return;
+            }
+
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + newLimit * smoothing));
+        }
+
+        private ConcurrencyLimitExceededException reject(String msg) {
+            rejectedCount.incrementAndGet();
+            return new ConcurrencyLimitExceededException(msg);
+        }
+
+        int getLimit() {
+            lock.lock();
+            try {
+                return (int) limit;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int getInFlight() {
+            lock.lock();
+            try {
+                return inFlight;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int getQueued() {
+            lock.lock();
+            try {
+                return queued;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Read or write permit, held from the start of a request until its result is consumed.
+     */
+    private static final class Permit {
+
+        private final AdaptiveLimit adaptiveLimit;
+
+        private final long start;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(AdaptiveLimit adaptiveLimit) {
+            adaptiveLimit.acquire();
+            this.adaptiveLimit = adaptiveLimit;
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Release the permit, measuring the request latency up to now.
+         */
+        void complete() {
+            if (released.compareAndSet(false, true)) {
+                adaptiveLimit.release(System.nanoTime() - start, false);
+            }
+        }
+
+        /**
+         * Release the permit of a failed request, without measuring its latency.
+         * @param dropped true when the server could not be reached
+         */
+        void fail(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                adaptiveLimit.release(-1, dropped);
+            }
+        }
+    }
+
+    /**
+     * Callback of a content insertion.
+     */
+    @FunctionalInterface
+    private interface InsertionCallback<T> {
+
+        @Nullable
+        T doInsert() throws RequestException;
+    }
+
+    /**
+     * Session holding a read or write permit while a request is running. The permit of a streamed result is held until
+     * the result is consumed or closed, as the request keeps running on the server until then.
+     */
+    private class LimitedSession extends DelegatingSession {
+
+        private final Session target;
+
+        private final Set<Permit> streamingPermits = ConcurrentHashMap.newKeySet();
+
+        LimitedSession(Session target) {
+            this.target = target;
+        }
+
+        @Override
+        protected Session obtainTargetSession(String operation) {
+            return target;
+        }
+
+        @Override
+        public Session getTargetSession() {
+            return target;
+        }
+
+        @Override
+        public String toString() {
+            return "Concurrency limited Session proxy for target Session [" + target + "]";
+        }
+
+        @Override
+        @Nullable
+        public ResultSequence submitRequest(Request request) throws RequestException {
+            Permit permit = new Permit(isWrite(target, false) ? obtainWriteLimit() : obtainReadLimit());
+            boolean streaming = false;
+            boolean dropped = false;
+            try {
+                ResultSequence result = target.submitRequest(request);
+                if (result == null || result.isCached()) {
+                    permit.complete();
+                    return result;
+                }
+                streaming = true;
+                streamingPermits.add(permit);
+                return streamingResult(result, permit);
+            } catch (ServerConnectionException ex) {
+                dropped = true;
+                throw ex;
+            } finally {
+                if (!streaming) {
+                    permit.fail(dropped);
+                }
+            }
+        }
+
+        @Override
+        public void insertContent(Content content) throws RequestException {
+            limitInsertion(() -> {
+                target.insertContent(content);
+                return null;
+            });
+        }
+
+        @Override
+        public void insertContent(Content[] content) throws RequestException {
+            limitInsertion(() -> {
+                target.insertContent(content);
+                return null;
+            });
+        }
+
+        @Override
+        @Nullable
+        public List<RequestException> insertContentCollectErrors(Content[] content) throws RequestException {
+            return limitInsertion(() -> target.insertContentCollectErrors(content));
+        }
+
+        @Override
+        public void close() {
+            try {
+                target.close();
+            } finally {
+                // Closing the Session ends the streamed requests
+                for (Permit permit : streamingPermits) {
+                    permit.complete();
+                }
+                streamingPermits.clear();
+            }
+        }
+
+        @Nullable
+        private <T> T limitInsertion(InsertionCallback<T> callback) throws RequestException {
+            Permit permit = new Permit(isWrite(target, true) ? obtainWriteLimit() : obtainReadLimit());
+            boolean dropped = false;
+            try {
+                T result = callback.doInsert();
+                permit.complete();
+                return result;
+            } catch (ServerConnectionException ex) {
+                dropped = true;
+                throw ex;
+            } finally {
+                permit.fail(dropped);
+            }
+        }
+
+        private ResultSequence streamingResult(ResultSequence result, Permit permit) {
+            // A JDK proxy keeps the wrapper independent of the XCC version, only the methods ending the stream are
+            // intercepted
+            return (ResultSequence) Proxy.newProxyInstance(
+                    ResultSequence.class.getClassLoader(),
+                    new Class<?>[] {ResultSequence.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "equals":
+                                return (proxy == args[0]);
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "toString":
+                                return "Concurrency limited ResultSequence proxy for target ResultSequence [" + result + "]";
+                        }
+
+                        Object value;
+                        try {
+                            value = method.invoke(result, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getTargetException();
+                        }
+
+                        String name = method.getName();
+                        if (STREAM_ENDING_METHODS.contains(name) || (name.equals("hasNext") && Boolean.FALSE.equals(value))) {
+                            completeStreaming(permit);
+                        }
+                        return value;
+                    });
+        }
+
+        private void completeStreaming(Permit permit) {
+            permit.complete();
+            streamingPermits.remove(permit);
+        }
+    }
+
+}
@@ -205,6 +205,11 @@ public class ContentSourceTransactionManager extends AbstractPlatformTransaction
             txObject.getSessionHolder().setSynchronizedWithTransaction(true);
             ses = txObject.getSessionHolder().getSession();
 
+            // A Session adopted from a session scope goes back to its own transaction mode afterwards
+            if (!txObject.isNewSessionHolder()) {
+                txObject.setPreviousTransactionMode(ses.getTransactionMode());
+            }
+
             Integer previousIsolationLevel = ContentSourceUtils.prepareSessionForTransaction(ses, definition);
             txObject.setPreviousIsolationLevel(previousIsolationLevel);
 
@@ -294,6 +299,9 @@ public class ContentSourceTransactionManager extends AbstractPlatformTransaction
         Session ses = txObject.getSessionHolder().getSession();
         try {
             ContentSourceUtils.resetSessionAfterTransaction(ses, txObject.getPreviousIsolationLevel());
+            if (txObject.getPreviousTransactionMode() != null) {
+                ses.setTransactionMode(txObject.getPreviousTransactionMode());
+            }
         } catch (Throwable ex) {
             logger.debug("Could not reset XDBC Session after transaction", ex);
         }
@@ -319,6 +327,9 @@ public class ContentSourceTransactionManager extends AbstractPlatformTransaction
 
         private boolean mustRestoreAutoCommit;
 
+        @Nullable
+        private Session.TransactionMode previousTransactionMode;
+
         public void setSessionHolder(SessionHolder sessionHolder, boolean newSessionHolder) {
             super.setSessionHolder(sessionHolder);
             this.newSessionHolder = newSessionHolder;
@@ -336,6 +347,15 @@ public class ContentSourceTransactionManager extends AbstractPlatformTransaction
             this.mustRestoreAutoCommit = mustRestoreAutoCommit;
         }
 
+        @Nullable
+        public Session.TransactionMode getPreviousTransactionMode() {
+            return this.previousTransactionMode;
+        }
+
+        public void setPreviousTransactionMode(@Nullable Session.TransactionMode previousTransactionMode) {
+            this.previousTransactionMode = previousTransactionMode;
+        }
+
         public void setRollbackOnly() {
             getSessionHolder().setRollbackOnly();
         }
@@ -20,6 +20,7 @@ import com.marklogic.xcc.Session;
 import com.marklogic.xcc.exceptions.XccException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.support.TransactionSynchronization;
@@ -51,6 +52,8 @@ public abstract class ContentSourceUtils {
 
     private static final Log logger = LogFactory.getLog(ContentSourceUtils.class);
 
+    private static final ThreadLocal<Boolean> writeRequested = new NamedThreadLocal<>("Marklogic write request");
+
 
     /**
      * Obtain a Session from the given ContentSource. Translates XCCExceptions into
@@ -125,6 +128,52 @@ public abstract class ContentSourceUtils {
         return ses;
     }
 
+    /**
+     * Open a non-transactional session scope : bind a SessionHolder to the current thread so that every
+     * {@link #getSession} call until {@link #closeSessionScope} reuses the same Session, in auto-commit mode.
+     * <p>The Session is fetched when the scope opens : wrap the ContentSource in a
+     * {@link LazySessionContentSourceProxy} to defer it until first use.
+     * <p>Transactions started within the scope run on the scoped Session and keep their usual semantics :
+     * the Session is switched back to auto-commit mode once they complete.
+     * @param contentSource the ContentSource to bind a Session for
+     * @return the bound SessionHolder, or {@code null} if a Session is already bound to the thread
+     * (enclosing scope or transaction)
+     * @see #closeSessionScope
+     */
+    @Nullable
+    public static SessionHolder openSessionScope(ContentSource contentSource) {
+        Assert.notNull(contentSource, "No ContentSource specified");
+
+        if (TransactionSynchronizationManager.hasResource(contentSource) || TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+
+        logger.debug("Fetching scoped XDBC Session from ContentSource");
+        SessionHolder sesHolder = new SessionHolder(contentSource.newSession());
+        TransactionSynchronizationManager.bindResource(contentSource, sesHolder);
+        return sesHolder;
+    }
+
+    /**
+     * Close a session scope opened with {@link #openSessionScope}, unbinding its SessionHolder
+     * and closing the scoped Session.
+     * @param contentSource the ContentSource the scope was opened for
+     * @param sesHolder the SessionHolder returned by {@link #openSessionScope}
+     * (if this is {@code null}, the call will be ignored)
+     */
+    public static void closeSessionScope(ContentSource contentSource, @Nullable SessionHolder sesHolder) {
+        if (sesHolder == null) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.getResource(contentSource) == sesHolder) {
+            TransactionSynchronizationManager.unbindResource(contentSource);
+        }
+
+        logger.debug("Closing scoped XDBC Session");
+        doCloseSession(sesHolder.getSessionHandle().getSession(), contentSource);
+    }
+
     /**
      * Prepare the given Session with the given transaction semantics.
      * @param ses the Session to prepare
@@ -332,6 +381,35 @@ public abstract class ContentSourceUtils {
         return conToUse;
     }
 
+    /**
+     * Run the given action with the requests it submits marked as writes, for the
+     * updates submitted outside of a read-write transaction or {@code UPDATE} Session,
+     * such as an ad hoc {@code xdmp:document-delete}.
+     * @param action the action submitting the write requests
+     * @see #isWriteRequested()
+     */
+    public static void doAsWrite(Runnable action) {
+        Boolean previous = writeRequested.get();
+        writeRequested.set(Boolean.TRUE);
+        try {
+            action.run();
+        } finally {
+            if (previous == null) {
+                writeRequested.remove();
+            } else {
+                writeRequested.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Return whether the requests submitted by the current thread are marked as writes.
+     * @return true within {@link #doAsWrite(Runnable)}
+     */
+    public static boolean isWriteRequested() {
+        return Boolean.TRUE.equals(writeRequested.get());
+    }
+
     /**
      * Determine the session synchronization order to use for the given
      * ContentSource. Decreased for every level of nesting that a ContentSource
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import com.marklogic.xcc.AdhocQuery;
+import com.marklogic.xcc.Content;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.ContentbaseMetaData;
+import com.marklogic.xcc.ModuleInvoke;
+import com.marklogic.xcc.ModuleSpawn;
+import com.marklogic.xcc.Request;
+import com.marklogic.xcc.RequestOptions;
+import com.marklogic.xcc.ResultSequence;
+import com.marklogic.xcc.Session;
+import com.marklogic.xcc.UserCredentials;
+import com.marklogic.xcc.exceptions.RequestException;
+
+import javax.transaction.xa.XAResource;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Base class for {@link SessionProxy} implementations, delegating every {@link Session} method to the
+ * Session returned by {@link #obtainTargetSession(String)} through a plain virtual call.
+ *
+ * <p>Subclasses decide how the target Session is obtained and released, and override the methods
+ * they need to intercept (typically {@code close} and the transaction demarcation methods).
+ * {@code equals} and {@code hashCode} are based on the identity of the proxy, so that they never
+ * require a target Session.
+ *
+ * @author Stéphane Toussaint
+ */
+public abstract class DelegatingSession implements SessionProxy {
+
+    /**
+     * Obtain the target Session for the given operation.
+     *
+     * @param operation the name of the invoked Session method
+     * @return the target Session (never {@code null})
+     */
+    protected abstract Session obtainTargetSession(String operation);
+
+    /**
+     * Release a target Session after an operation. The default implementation does nothing,
+     * keeping the target Session for the next operations.
+     *
+     * @param target the target Session obtained for the operation
+     */
+    protected void releaseTargetSession(Session target) {
+    }
+
+    @Override
+    public ContentSource getContentSource() {
+        Session target = obtainTargetSession("getContentSource");
+        try {
+            return target.getContentSource();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public UserCredentials getUserCredentials() {
+        Session target = obtainTargetSession("getUserCredentials");
+        try {
+            return target.getUserCredentials();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public String getContentBaseName() {
+        Session target = obtainTargetSession("getContentBaseName");
+        try {
+            return target.getContentBaseName();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public void setTransactionMode(TransactionMode mode) {
+        Session target = obtainTargetSession("setTransactionMode");
+        try {
+            target.setTransactionMode(mode);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public TransactionMode getTransactionMode() {
+        Session target = obtainTargetSession("getTransactionMode");
+        try {
+            return target.getTransactionMode();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) {
+        Session target = obtainTargetSession("setAutoCommit");
+        try {
+            target.setAutoCommit(autoCommit);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public boolean getAutoCommit() {
+        Session target = obtainTargetSession("getAutoCommit");
+        try {
+            return target.getAutoCommit();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public void setUpdate(Update update) {
+        Session target = obtainTargetSession("setUpdate");
+        try {
+            target.setUpdate(update);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public Update getUpdate() {
+        Session target = obtainTargetSession("getUpdate");
+        try {
+            return target.getUpdate();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public void setTransactionTimeout(int seconds) throws RequestException {
+        Session target = obtainTargetSession("setTransactionTimeout");
+        try {
+            target.setTransactionTimeout(seconds);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public int getTransactionTimeout() throws RequestException {
+        Session target = obtainTargetSession("getTransactionTimeout");
+        try {
+            return target.getTransactionTimeout();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public int getCachedTransactionTimeout() {
+        Session target = obtainTargetSession("getCachedTransactionTimeout");
+        try {
+            return target.getCachedTransactionTimeout();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public void commit() throws RequestException {
+        Session target = obtainTargetSession("commit");
+        try {
+            target.commit();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public void rollback() throws RequestException {
+        Session target = obtainTargetSession("rollback");
+        try {
+            target.rollback();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public XAResource getXAResource() {
+        Session target = obtainTargetSession("getXAResource");
+        try {
+            return target.getXAResource();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public void close() {
+        Session target = obtainTargetSession("close");
+        try {
+            target.close();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        Session target = obtainTargetSession("isClosed");
+        try {
+            return target.isClosed();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public ResultSequence submitRequest(Request request) throws RequestException {
+        Session target = obtainTargetSession("submitRequest");
+        try {
+            return target.submitRequest(request);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public AdhocQuery newAdhocQuery(String queryText) {
+        Session target = obtainTargetSession("newAdhocQuery");
+        try {
+            return target.newAdhocQuery(queryText);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public AdhocQuery newAdhocQuery(String queryText, RequestOptions options) {
+        Session target = obtainTargetSession("newAdhocQuery");
+        try {
+            return target.newAdhocQuery(queryText, options);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public ModuleInvoke newModuleInvoke(String moduleUri) {
+        Session target = obtainTargetSession("newModuleInvoke");
+        try {
+            return target.newModuleInvoke(moduleUri);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public ModuleInvoke newModuleInvoke(String moduleUri, RequestOptions options) {
+        Session target = obtainTargetSession("newModuleInvoke");
+        try {
+            return target.newModuleInvoke(moduleUri, options);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public ModuleSpawn newModuleSpawn(String moduleUri) {
+        Session target = obtainTargetSession("newModuleSpawn");
+        try {
+            return target.newModuleSpawn(moduleUri);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public ModuleSpawn newModuleSpawn(String moduleUri, RequestOptions options) {
+        Session target = obtainTargetSession("newModuleSpawn");
+        try {
+            return target.newModuleSpawn(moduleUri, options);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public void insertContent(Content content) throws RequestException {
+        Session target = obtainTargetSession("insertContent");
+        try {
+            target.insertContent(content);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public void insertContent(Content[] content) throws RequestException {
+        Session target = obtainTargetSession("insertContent");
+        try {
+            target.insertContent(content);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public List<RequestException> insertContentCollectErrors(Content[] content) throws RequestException {
+        Session target = obtainTargetSession("insertContentCollectErrors");
+        try {
+            return target.insertContentCollectErrors(content);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public ContentbaseMetaData getContentbaseMetaData() {
+        Session target = obtainTargetSession("getContentbaseMetaData");
+        try {
+            return target.getContentbaseMetaData();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public void setDefaultRequestOptions(RequestOptions options) {
+        Session target = obtainTargetSession("setDefaultRequestOptions");
+        try {
+            target.setDefaultRequestOptions(options);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public RequestOptions getDefaultRequestOptions() {
+        Session target = obtainTargetSession("getDefaultRequestOptions");
+        try {
+            return target.getDefaultRequestOptions();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public RequestOptions getEffectiveRequestOptions() {
+        Session target = obtainTargetSession("getEffectiveRequestOptions");
+        try {
+            return target.getEffectiveRequestOptions();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public BigInteger getCurrentServerPointInTime() throws RequestException {
+        Session target = obtainTargetSession("getCurrentServerPointInTime");
+        try {
+            return target.getCurrentServerPointInTime();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public URI getConnectionUri() {
+        Session target = obtainTargetSession("getConnectionUri");
+        try {
+            return target.getConnectionUri();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public Logger getLogger() {
+        Session target = obtainTargetSession("getLogger");
+        try {
+            return target.getLogger();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public void setLogger(Logger logger) {
+        Session target = obtainTargetSession("setLogger");
+        try {
+            target.setLogger(logger);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public Object getUserObject() {
+        Session target = obtainTargetSession("getUserObject");
+        try {
+            return target.getUserObject();
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+    @Override
+    public void setUserObject(Object userObject) {
+        Session target = obtainTargetSession("setUserObject");
+        try {
+            target.setUserObject(userObject);
+        } finally {
+            releaseTargetSession(target);
+        }
+    }
+
+}
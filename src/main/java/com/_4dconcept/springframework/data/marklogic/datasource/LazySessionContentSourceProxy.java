@@ -17,15 +17,9 @@ package com._4dconcept.springframework.data.marklogic.datasource;
 
 import com.marklogic.xcc.ContentSource;
 import com.marklogic.xcc.Session;
-import com.marklogic.xcc.exceptions.XccException;
+import com.marklogic.xcc.exceptions.RequestException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.springframework.lang.Nullable;
-
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 
 /**
  * Proxy for a target ContentSource, fetching actual XDBC Sessions lazily,
@@ -74,7 +68,7 @@ public class LazySessionContentSourceProxy extends DelegatingContentSource {
     /** Constants instance for TransactionDefinition */
     private static final Log logger = LogFactory.getLog(LazySessionContentSourceProxy.class);
 
-    private String defaultTransactionMode;
+    private volatile String defaultTransactionMode;
 
     /**
      * Create a new LazySessionContentSourceProxy.
@@ -118,7 +112,8 @@ public class LazySessionContentSourceProxy extends DelegatingContentSource {
      * down), we'll lazily retrieve those settings.
      * @param ses the Session to use for checking
      */
-    protected synchronized void checkDefaultSessionProperties(Session ses) {
+    protected void checkDefaultSessionProperties(Session ses) {
+        // No lock : concurrent checks store the same value, and a monitor held here would pin virtual threads
         if (this.defaultTransactionMode == null) {
             this.defaultTransactionMode = ses.getTransactionMode().toString();
         }
@@ -142,10 +137,7 @@ public class LazySessionContentSourceProxy extends DelegatingContentSource {
      */
     @Override
     public Session newSession() {
-        return (Session) Proxy.newProxyInstance(
-                SessionProxy.class.getClassLoader(),
-                new Class<?>[] {SessionProxy.class},
-                new LazySessionInvocationHandler());
+        return new LazySession();
     }
 
     /**
@@ -160,104 +152,105 @@ public class LazySessionContentSourceProxy extends DelegatingContentSource {
      */
     @Override
     public Session newSession(String username, String password) {
-        return (Session) Proxy.newProxyInstance(
-                SessionProxy.class.getClassLoader(),
-                new Class<?>[] {SessionProxy.class},
-                new LazySessionInvocationHandler(username, password));
+        return new LazySession(username, password);
     }
 
 
     /**
-     * Invocation handler that defers fetching an actual XDBC Session
+     * Session handle that defers fetching an actual XDBC Session
      * until first creation of a Statement.
      */
-    private class LazySessionInvocationHandler implements InvocationHandler {
+    private class LazySession extends DelegatingSession {
 
         private String username;
 
         private String password;
 
-        private String transactionMode;
+        private Session.TransactionMode transactionMode;
 
         private boolean closed = false;
 
         private Session target;
 
-        public LazySessionInvocationHandler() {
-            this.transactionMode = defaultTransactionMode();
+        public LazySession() {
+            String mode = defaultTransactionMode();
+            this.transactionMode = (mode != null) ? Session.TransactionMode.valueOf(mode) : null;
         }
 
-        public LazySessionInvocationHandler(String username, String password) {
+        public LazySession(String username, String password) {
             this();
             this.username = username;
             this.password = password;
         }
 
         @Override
-        @Nullable
-        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            // Invocation on SessionProxy interface coming in...
-
-            switch (method.getName()) {
-                case "equals":
-                    // We must avoid fetching a target Session for "equals".
-                    // Only consider equal when proxies are identical.
-                    return (proxy == args[0]);
-                case "hashCode":
-                    // We must avoid fetching a target Session for "hashCode",
-                    // and we must return the same hash code even when the target
-                    // Session has been fetched: use hashCode of Session proxy.
-                    return System.identityHashCode(proxy);
-                case "getTargetSession":
-                    // Handle getTargetSession method: return underlying session.
-                    return getTargetSession(method);
+        public Session getTargetSession() {
+            // Handle getTargetSession method: return underlying session.
+            return obtainTargetSession("getTargetSession");
+        }
+
+        // No physical target Session kept yet ->
+        // resolve transaction demarcation methods without fetching
+        // a physical XDBC Session until absolutely necessary.
+
+        @Override
+        public String toString() {
+            if (hasTargetSession()) {
+                return this.target.toString();
             }
+            return "Lazy Session proxy for target ContentSource [" + getTargetContentSource() + "]";
+        }
 
-            if (!hasTargetSession()) {
-                // No physical target Session kept yet ->
-                // resolve transaction demarcation methods without fetching
-                // a physical XDBC Session until absolutely necessary.
+        @Override
+        public Session.TransactionMode getTransactionMode() {
+            if (!hasTargetSession() && this.transactionMode != null) {
+                return this.transactionMode;
+            }
+            // Else fetch actual Session and check there,
+            // because we didn't have a default specified.
+            return super.getTransactionMode();
+        }
 
-                if (method.getName().equals("toString")) {
-                    return "Lazy Session proxy for target ContentSource [" + getTargetContentSource() + "]";
-                } else if (method.getName().equals("getTransactionMode")) {
-                    if (this.transactionMode != null) {
-                        return this.transactionMode;
-                    }
-                    // Else fetch actual Session and check there,
-                    // because we didn't have a default specified.
-                } else if (method.getName().equals("setTransactionMode")) {
-                    this.transactionMode = Session.TransactionMode.AUTO.toString();
-                    return null;
-                } else if (method.getName().equals("commit")) {
-                    // Ignore: no statements created yet.
-                    return null;
-                } else if (method.getName().equals("rollback")) {
-                    // Ignore: no statements created yet.
-                    return null;
-                } else if (method.getName().equals("close")) {
-                    // Ignore: no target session yet.
-                    this.closed = true;
-                    return null;
-                } else if (method.getName().equals("isClosed")) {
-                    return this.closed;
-                } else if (this.closed) {
-                    // Session proxy closed, without ever having fetched a
-                    // physical XDBC Session: throw corresponding SQLException.
-                    throw new SessionClosedException();
-                }
+        @Override
+        public void setTransactionMode(Session.TransactionMode mode) {
+            if (hasTargetSession()) {
+                super.setTransactionMode(mode);
+            } else {
+                this.transactionMode = mode;
+            }
+        }
+
+        @Override
+        public void commit() throws RequestException {
+            // Ignore if no statements created yet.
+            if (hasTargetSession()) {
+                super.commit();
             }
+        }
 
-            // Target Session already fetched,
-            // or target Session necessary for current operation ->
-            // invoke method on target session.
-            try {
-                return method.invoke(getTargetSession(method), args);
-            } catch (InvocationTargetException ex) {
-                throw ex.getTargetException();
+        @Override
+        public void rollback() throws RequestException {
+            // Ignore if no statements created yet.
+            if (hasTargetSession()) {
+                super.rollback();
             }
         }
 
+        @Override
+        public void close() {
+            if (hasTargetSession()) {
+                super.close();
+            } else {
+                // Ignore: no target session yet.
+                this.closed = true;
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return hasTargetSession() ? super.isClosed() : this.closed;
+        }
+
         /**
          * Return whether the proxy currently holds a target Session.
          */
@@ -268,11 +261,18 @@ public class LazySessionContentSourceProxy extends DelegatingContentSource {
         /**
          * Return the target Session, fetching it and initializing it if necessary.
          */
-        private Session getTargetSession(Method operation) {
+        @Override
+        protected Session obtainTargetSession(String operation) {
             if (this.target == null) {
+                if (this.closed) {
+                    // Session proxy closed, without ever having fetched a
+                    // physical XDBC Session.
+                    throw new IllegalStateException("Session handle already closed");
+                }
+
                 // No target Session held -> fetch one.
                 if (logger.isDebugEnabled()) {
-                    logger.debug("Connecting to database for operation '" + operation.getName() + "'");
+                    logger.debug("Connecting to database for operation '" + operation + "'");
                 }
 
                 // Fetch physical Session from ContentSource.
@@ -286,7 +286,7 @@ public class LazySessionContentSourceProxy extends DelegatingContentSource {
                 // Apply kept transaction settings, if any.
                 if (this.transactionMode != null) {
                     try {
-                        this.target.setTransactionMode(Session.TransactionMode.valueOf(this.transactionMode));
+                        this.target.setTransactionMode(this.transactionMode);
                     } catch (Exception ex) {
                         logger.debug("Could not set XDBC Session transactionMode", ex);
                     }
@@ -294,18 +294,13 @@ public class LazySessionContentSourceProxy extends DelegatingContentSource {
             } else {
                 // Target Session already held -> return it.
                 if (logger.isDebugEnabled()) {
-                    logger.debug("Using existing database session for operation '" + operation.getName() + "'");
+                    logger.debug("Using existing database session for operation '" + operation + "'");
                 }
             }
 
             return this.target;
         }
 
-        public class SessionClosedException extends XccException {
-            public SessionClosedException() {
-                super("Session handle already closed");
-            }
-        }
     }
 
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import com.marklogic.xcc.ContentSource;
+import org.aopalliance.aop.Advice;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.AbstractPointcutAdvisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.core.Ordered;
+
+/**
+ * Advisor applying the {@link MarklogicSessionScopeInterceptor} to {@link MarklogicSessionScope} annotated classes
+ * and methods. Its default order is higher than the transaction and {@link RetryableMarklogicTransactionAdvisor}
+ * ones, so that the scope encloses them.
+ *
+ * <pre class="code">
+ * &#64;Bean
+ * &#64;Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+ * public MarklogicSessionScopeAdvisor marklogicSessionScopeAdvisor(ContentSource contentSource) {
+ *     return new MarklogicSessionScopeAdvisor(contentSource);
+ * }</pre>
+ *
+ * @author Stéphane Toussaint
+ */
+@SuppressWarnings("serial")
+public class MarklogicSessionScopeAdvisor extends AbstractPointcutAdvisor {
+
+    private final MarklogicSessionScopeInterceptor interceptor;
+
+    private final Pointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(MarklogicSessionScope.class, true))
+            .union(AnnotationMatchingPointcut.forMethodAnnotation(MarklogicSessionScope.class));
+
+    public MarklogicSessionScopeAdvisor(ContentSource contentSource) {
+        this.interceptor = new MarklogicSessionScopeInterceptor(contentSource);
+        setOrder(Ordered.LOWEST_PRECEDENCE - 2);
+    }
+
+    @Override
+    public Pointcut getPointcut() {
+        return pointcut;
+    }
+
+    @Override
+    public Advice getAdvice() {
+        return interceptor;
+    }
+
+}
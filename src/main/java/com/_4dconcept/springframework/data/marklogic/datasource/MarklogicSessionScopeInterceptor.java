@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import com.marklogic.xcc.ContentSource;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Interceptor running the invocation within a session scope of the given ContentSource.
+ * Nested invocations, or invocations within a transaction, use the Session already bound to the thread.
+ *
+ * @author Stéphane Toussaint
+ * @see ContentSourceUtils#openSessionScope
+ */
+public class MarklogicSessionScopeInterceptor implements MethodInterceptor {
+
+    private final ContentSource contentSource;
+
+    public MarklogicSessionScopeInterceptor(ContentSource contentSource) {
+        Assert.notNull(contentSource, "ContentSource must not be null");
+        this.contentSource = contentSource;
+    }
+
+    @Override
+    @Nullable
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        SessionHolder sesHolder = ContentSourceUtils.openSessionScope(contentSource);
+        try {
+            return invocation.proceed();
+        } finally {
+            ContentSourceUtils.closeSessionScope(contentSource, sesHolder);
+        }
+    }
+
+}
@@ -0,0 +1,554 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.RequestOptions;
+import com.marklogic.xcc.ResultSequence;
+import com.marklogic.xcc.Session;
+import com.marklogic.xcc.exceptions.RequestException;
+import com.marklogic.xcc.exceptions.XccException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ContentSource} keeping a bounded pool of reusable XDBC Sessions of the target ContentSource.
+ *
+ * <p>Only Sessions obtained through {@link #newSession()} are pooled, Sessions with
+ * explicit credentials or content base are delegated to the target ContentSource.
+ * Closing a pooled Session gives it back to the pool : its transaction mode,
+ * auto-commit and update settings, transaction timeout and default request
+ * options are reset and an open transaction is rolled back. Sessions failing to be reset are discarded.
+ *
+ * <p>Idle Sessions are evicted after {@link #setIdleTimeout idleTimeout}, and
+ * optionally validated with a {@link #setValidationQuery validation query} when
+ * they have been idle longer than {@link #setValidationInterval validationInterval}.
+ * Sessions held longer than {@link #setLeakDetectionThreshold leakDetectionThreshold}
+ * are reported with the stack trace of the borrowing code.
+ *
+ * @author Stéphane Toussaint
+ * @see ContentSourceUtils#doCloseSession
+ */
+@ManagedResource(description = "Pool of Marklogic XDBC Sessions")
+public class PooledContentSource extends DelegatingContentSource implements SmartContentSource, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(PooledContentSource.class);
+
+    private int maxTotal = 8;
+
+    private long maxWait = 30000;
+
+    private long idleTimeout = 600000;
+
+    private long evictionInterval = 30000;
+
+    private long leakDetectionThreshold;
+
+    @Nullable
+    private String validationQuery;
+
+    private long validationInterval = 30000;
+
+    private Semaphore permits;
+
+    private final Deque<PooledSession> idleSessions = new ConcurrentLinkedDeque<>();
+
+    private final Map<PooledSessionHandle, Boolean> borrowedSessions = new ConcurrentHashMap<>();
+
+    @Nullable
+    private ScheduledExecutorService evictor;
+
+    private volatile boolean closed;
+
+    private final AtomicLong createdCount = new AtomicLong();
+
+    private final AtomicLong destroyedCount = new AtomicLong();
+
+    private final AtomicLong borrowedCount = new AtomicLong();
+
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    private final AtomicLong leakCount = new AtomicLong();
+
+    /**
+     * Create a new PooledContentSource.
+     * @see #setTargetContentSource
+     */
+    public PooledContentSource() {
+    }
+
+    /**
+     * Create a new PooledContentSource.
+     * @param targetContentSource the target ContentSource
+     */
+    public PooledContentSource(ContentSource targetContentSource) {
+        setTargetContentSource(targetContentSource);
+        afterPropertiesSet();
+    }
+
+    /**
+     * @param maxTotal the maximum number of Sessions borrowed at the same time, 8 by default
+     */
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    /**
+     * @param maxWait the maximum time in milliseconds to wait for a Session when the pool is exhausted, 30s by default
+     */
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * @param idleTimeout the time in milliseconds after which an idle Session is evicted, 10 minutes by default
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * @param evictionInterval the interval in milliseconds between two eviction runs, 30s by default. 0 disables both
+     *                         eviction and leak detection.
+     */
+    public void setEvictionInterval(long evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    /**
+     * @param leakDetectionThreshold the time in milliseconds after which a borrowed Session is reported as a possible
+     *                               leak, 0 (disabled) by default
+     */
+    public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+        this.leakDetectionThreshold = leakDetectionThreshold;
+    }
+
+    /**
+     * @param validationQuery the query used to validate idle Sessions before lending them, none by default
+     */
+    public void setValidationQuery(@Nullable String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+
+    /**
+     * @param validationInterval the idle time in milliseconds after which a Session is validated before being lent,
+     *                           30s by default
+     */
+    public void setValidationInterval(long validationInterval) {
+        this.validationInterval = validationInterval;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        Assert.isTrue(maxTotal > 0, "Property 'maxTotal' must be greater than 0");
+
+        this.permits = new Semaphore(maxTotal, true);
+
+        if (evictionInterval > 0) {
+            this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "marklogic-session-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.evictor.scheduleWithFixedDelay(this::evict, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Session newSession() {
+        Assert.state(!closed, "Session pool has been closed");
+
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CannotGetXdbcSessionException("Interrupted while waiting for a pooled XDBC Session");
+        }
+
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new CannotGetXdbcSessionException(String.format("Timeout waiting %d ms for a pooled XDBC Session (%d borrowed)", maxWait, maxTotal));
+        }
+
+        try {
+            PooledSession pooledSession = obtainPooledSession();
+            PooledSessionHandle handle = new PooledSessionHandle(pooledSession);
+            borrowedSessions.put(handle, Boolean.TRUE);
+            borrowedCount.incrementAndGet();
+            return handle;
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Pooled Sessions give themselves back to the pool when closed.
+     * @param ses the Session to check
+     * @return always {@code true}
+     */
+    @Override
+    public boolean shouldClose(Session ses) {
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        this.closed = true;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+
+        PooledSession pooledSession;
+        while ((pooledSession = idleSessions.pollFirst()) != null) {
+            destroySession(pooledSession);
+        }
+    }
+
+    @ManagedAttribute(description = "Maximum number of borrowed Sessions")
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    @ManagedAttribute(description = "Number of currently borrowed Sessions")
+    public int getActiveCount() {
+        return borrowedSessions.size();
+    }
+
+    @ManagedAttribute(description = "Number of idle Sessions")
+    public int getIdleCount() {
+        return idleSessions.size();
+    }
+
+    @ManagedAttribute(description = "Number of threads waiting for a Session")
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    @ManagedAttribute(description = "Total number of Sessions created")
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    @ManagedAttribute(description = "Total number of Sessions destroyed")
+    public long getDestroyedCount() {
+        return destroyedCount.get();
+    }
+
+    @ManagedAttribute(description = "Total number of Sessions borrowed")
+    public long getBorrowedCount() {
+        return borrowedCount.get();
+    }
+
+    @ManagedAttribute(description = "Total number of Session requests that timed out")
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    @ManagedAttribute(description = "Total number of Sessions reported as leaked")
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    private PooledSession obtainPooledSession() {
+        PooledSession pooledSession;
+        while ((pooledSession = idleSessions.pollFirst()) != null) {
+            if (isValid(pooledSession)) {
+                return pooledSession;
+            }
+            destroySession(pooledSession);
+        }
+
+        pooledSession = new PooledSession(getTargetContentSource().newSession());
+        createdCount.incrementAndGet();
+        return pooledSession;
+    }
+
+    private boolean isValid(PooledSession pooledSession) {
+        if (pooledSession.target.isClosed()) {
+            return false;
+        }
+
+        if (StringUtils.hasText(validationQuery) && System.currentTimeMillis() - pooledSession.lastUsed > validationInterval) {
+            try {
+                ResultSequence resultSequence = pooledSession.target.submitRequest(pooledSession.target.newAdhocQuery(validationQuery));
+                if (resultSequence != null && !resultSequence.isClosed()) {
+                    resultSequence.close();
+                }
+            } catch (XccException ex) {
+                logger.debug("Discarding pooled XDBC Session failing validation", ex);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void giveBack(PooledSessionHandle handle) {
+        if (borrowedSessions.remove(handle) == null) {
+            return;
+        }
+
+        try {
+            PooledSession pooledSession = handle.pooledSession;
+            if (!closed && reset(handle)) {
+                pooledSession.lastUsed = System.currentTimeMillis();
+                idleSessions.offerFirst(pooledSession);
+            } else {
+                destroySession(pooledSession);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean reset(PooledSessionHandle handle) {
+        Session target = handle.pooledSession.target;
+        if (target.isClosed()) {
+            return false;
+        }
+
+        try {
+            if (handle.transactionSettingsModified) {
+                if (target.getTransactionMode() != Session.TransactionMode.AUTO || !target.getAutoCommit()) {
+                    target.rollback();
+                }
+                if (handle.originalTransactionMode != null) {
+                    target.setTransactionMode(handle.originalTransactionMode);
+                }
+                target.setAutoCommit(handle.originalAutoCommit);
+                if (handle.originalUpdate != null) {
+                    target.setUpdate(handle.originalUpdate);
+                }
+            }
+            if (handle.originalTransactionTimeout != null) {
+                target.setTransactionTimeout(handle.originalTransactionTimeout);
+            }
+            // The default request options may have been modified in place, always restore the borrow time snapshot
+            target.setDefaultRequestOptions(handle.originalDefaultRequestOptions);
+            return true;
+        } catch (XccException | RuntimeException ex) {
+            logger.debug("Discarding pooled XDBC Session that could not be reset", ex);
+            return false;
+        }
+    }
+
+    private void destroySession(PooledSession pooledSession) {
+        destroyedCount.incrementAndGet();
+        try {
+            pooledSession.target.close();
+        } catch (RuntimeException ex) {
+            logger.debug("Could not close pooled XDBC Session", ex);
+        }
+    }
+
+    /**
+     * Evict the expired idle Sessions and report the possible leaks. Run periodically unless the
+     * {@link #setEvictionInterval eviction interval} is 0, in which case the owner of the pool is in charge of it.
+     */
+    public void evict() {
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledSession> iterator = idleSessions.descendingIterator();
+        while (iterator.hasNext()) {
+            PooledSession pooledSession = iterator.next();
+            if (now - pooledSession.lastUsed > idleTimeout && idleSessions.remove(pooledSession)) {
+                destroySession(pooledSession);
+            }
+        }
+
+        if (leakDetectionThreshold > 0) {
+            for (PooledSessionHandle handle : borrowedSessions.keySet()) {
+                if (!handle.leakReported && now - handle.borrowedAt > leakDetectionThreshold) {
+                    handle.leakReported = true;
+                    leakCount.incrementAndGet();
+                    logger.warn("Pooled XDBC Session borrowed " + (now - handle.borrowedAt) + " ms ago has not been closed, possible leak",
+                            handle.borrowStackTrace);
+                }
+            }
+        }
+    }
+
+    /**
+     * A physical Session kept by the pool.
+     */
+    private static final class PooledSession {
+
+        private final Session target;
+
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private PooledSession(Session target) {
+            this.target = target;
+        }
+    }
+
+    /**
+     * Copy the given request options, so that later changes made in place are not seen by the copy.
+     */
+    @Nullable
+    private static RequestOptions copyOf(@Nullable RequestOptions options) {
+        if (options == null) {
+            return null;
+        }
+
+        RequestOptions copy = new RequestOptions();
+        copy.setAutoRetryDelayMillis(options.getAutoRetryDelayMillis());
+        copy.setCacheResult(options.getCacheResult());
+        copy.setDefaultXQueryVersion(options.getDefaultXQueryVersion());
+        copy.setEffectivePointInTime(options.getEffectivePointInTime());
+        copy.setLocale(options.getLocale());
+        copy.setMaxAutoRetry(options.getMaxAutoRetry());
+        copy.setQueryLanguage(options.getQueryLanguage());
+        copy.setRequestName(options.getRequestName());
+        copy.setRequestTimeLimit(options.getRequestTimeLimit());
+        copy.setResultBufferSize(options.getResultBufferSize());
+        copy.setTimeoutMillis(options.getTimeoutMillis());
+        copy.setTimeZone(options.getTimeZone());
+        return copy;
+    }
+
+    /**
+     * Handle of a borrowed Session, giving the target Session back to the
+     * pool on close and recording the settings to reset.
+     */
+    private class PooledSessionHandle extends DelegatingSession {
+
+        private final PooledSession pooledSession;
+
+        private final long borrowedAt = System.currentTimeMillis();
+
+        @Nullable
+        private final Throwable borrowStackTrace;
+
+        private volatile boolean leakReported;
+
+        private boolean released;
+
+        private boolean transactionSettingsModified;
+
+        @Nullable
+        private Session.TransactionMode originalTransactionMode;
+
+        private boolean originalAutoCommit;
+
+        @Nullable
+        private Session.Update originalUpdate;
+
+        @Nullable
+        private Integer originalTransactionTimeout;
+
+        @Nullable
+        private final RequestOptions originalDefaultRequestOptions;
+
+        PooledSessionHandle(PooledSession pooledSession) {
+            this.pooledSession = pooledSession;
+            this.borrowStackTrace = leakDetectionThreshold > 0 ? new Throwable("Session borrowed here") : null;
+            this.originalDefaultRequestOptions = copyOf(pooledSession.target.getDefaultRequestOptions());
+        }
+
+        @Override
+        protected Session obtainTargetSession(String operation) {
+            if (released) {
+                throw new IllegalStateException("Pooled Session has already been closed");
+            }
+            return pooledSession.target;
+        }
+
+        @Override
+        public Session getTargetSession() {
+            return pooledSession.target;
+        }
+
+        @Override
+        public String toString() {
+            return "Pooled Session proxy for target Session [" + pooledSession.target + "]";
+        }
+
+        @Override
+        public boolean isClosed() {
+            return released;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                giveBack(this);
+            }
+        }
+
+        @Override
+        public void setTransactionMode(Session.TransactionMode mode) {
+            recordTransactionSettings();
+            super.setTransactionMode(mode);
+        }
+
+        @Override
+        public void setAutoCommit(boolean autoCommit) {
+            recordTransactionSettings();
+            super.setAutoCommit(autoCommit);
+        }
+
+        @Override
+        public void setUpdate(Session.Update update) {
+            recordTransactionSettings();
+            super.setUpdate(update);
+        }
+
+        @Override
+        public void setTransactionTimeout(int seconds) throws RequestException {
+            Session target = obtainTargetSession("setTransactionTimeout");
+            if (originalTransactionTimeout == null) {
+                originalTransactionTimeout = target.getTransactionTimeout();
+            }
+            target.setTransactionTimeout(seconds);
+        }
+
+        /**
+         * The three settings depend on each other, record them together before the first change.
+         */
+        private void recordTransactionSettings() {
+            Session target = obtainTargetSession("recordTransactionSettings");
+            if (!transactionSettingsModified) {
+                transactionSettingsModified = true;
+                originalTransactionMode = target.getTransactionMode();
+                originalAutoCommit = target.getAutoCommit();
+                originalUpdate = target.getUpdate();
+            }
+        }
+    }
+
+}
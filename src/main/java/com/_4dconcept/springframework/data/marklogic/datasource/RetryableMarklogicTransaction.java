@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a transactional method, or all the transactional methods of a class, to be executed again when its
+ * Marklogic transaction fails because of a deadlock.
+ *
+ * <p>The annotated method is the unit of work : it must start the transaction itself
+ * (for instance with {@code @Transactional}) and should not have side effects outside of it.
+ * Methods invoked within an already running transaction are never retried.
+ *
+ * @author Stéphane Toussaint
+ * @see RetryableMarklogicTransactionAdvisor
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface RetryableMarklogicTransaction {
+
+    /**
+     * @return the maximum number of attempts, including the first one
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * @return the maximum delay in milliseconds before the first retry
+     */
+    long backoff() default 50;
+
+    /**
+     * @return the upper bound in milliseconds of the delay between two attempts
+     */
+    long maxBackoff() default 1000;
+
+}
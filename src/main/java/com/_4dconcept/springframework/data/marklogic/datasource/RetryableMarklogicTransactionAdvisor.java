@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import org.aopalliance.aop.Advice;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.AbstractPointcutAdvisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.core.Ordered;
+
+/**
+ * Advisor applying the {@link RetryableMarklogicTransactionInterceptor} to {@link RetryableMarklogicTransaction}
+ * annotated classes and methods. Its default order is higher than the transaction advisor one, so that each attempt
+ * runs in its own transaction.
+ *
+ * <pre class="code">
+ * &#64;Bean
+ * &#64;Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+ * public RetryableMarklogicTransactionAdvisor retryableMarklogicTransactionAdvisor() {
+ *     return new RetryableMarklogicTransactionAdvisor();
+ * }</pre>
+ *
+ * @author Stéphane Toussaint
+ */
+@SuppressWarnings("serial")
+public class RetryableMarklogicTransactionAdvisor extends AbstractPointcutAdvisor {
+
+    private final RetryableMarklogicTransactionInterceptor interceptor;
+
+    private final Pointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(RetryableMarklogicTransaction.class, true))
+            .union(AnnotationMatchingPointcut.forMethodAnnotation(RetryableMarklogicTransaction.class));
+
+    public RetryableMarklogicTransactionAdvisor() {
+        this(new RetryableMarklogicTransactionInterceptor());
+    }
+
+    public RetryableMarklogicTransactionAdvisor(RetryableMarklogicTransactionInterceptor interceptor) {
+        this.interceptor = interceptor;
+        setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+    }
+
+    @Override
+    public Pointcut getPointcut() {
+        return pointcut;
+    }
+
+    @Override
+    public Advice getAdvice() {
+        return interceptor;
+    }
+
+}
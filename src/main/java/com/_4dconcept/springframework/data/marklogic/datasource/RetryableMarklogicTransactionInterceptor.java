@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import com.marklogic.xcc.exceptions.RetryableXQueryException;
+import com.marklogic.xcc.exceptions.XQueryException;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Interceptor executing again {@link RetryableMarklogicTransaction} annotated methods whose
+ * transaction failed with a deadlock or another retryable contention error, either mid-transaction or on commit.
+ *
+ * <p>It must wrap the transaction interceptor, so that the failed transaction is already
+ * rolled back and its {@link SessionHolder} released when a new attempt starts.
+ *
+ * @author Stéphane Toussaint
+ */
+public class RetryableMarklogicTransactionInterceptor implements MethodInterceptor {
+
+    private static final Log logger = LogFactory.getLog(RetryableMarklogicTransactionInterceptor.class);
+
+    private Set<String> retryableErrorCodes = new HashSet<>(Collections.singletonList("XDMP-DEADLOCK"));
+
+    /**
+     * @param retryableErrorCodes the XQuery error codes considered as contention failures, {@code XDMP-DEADLOCK} by default
+     */
+    public void setRetryableErrorCodes(Set<String> retryableErrorCodes) {
+        this.retryableErrorCodes = new HashSet<>(retryableErrorCodes);
+    }
+
+    @Override
+    @Nullable
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        RetryableMarklogicTransaction retryable = findAnnotation(invocation);
+        if (retryable == null || TransactionSynchronizationManager.isActualTransactionActive()
+                || !(invocation instanceof ProxyMethodInvocation)) {
+            return invocation.proceed();
+        }
+
+        long backoff = retryable.backoff();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+            } catch (Throwable ex) {
+                if (attempt >= retryable.maxAttempts() || !isContentionFailure(ex) || TransactionSynchronizationManager.isActualTransactionActive()) {
+                    throw ex;
+                }
+
+                long delay = backoff > 0 ? ThreadLocalRandom.current().nextLong(backoff + 1) : 0;
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Retrying transaction of " + invocation.getMethod() + " in " + delay + " ms after contention failure (attempt "
+                            + attempt + "/" + retryable.maxAttempts() + ")", ex);
+                }
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+                backoff = Math.min(retryable.maxBackoff(), backoff * 2);
+            }
+        }
+    }
+
+    /**
+     * @param ex the failure to check
+     * @return whether the failure, or one of its causes, is a deadlock or another contention failure
+     */
+    protected boolean isContentionFailure(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetryableXQueryException) {
+                return true;
+            }
+            if (cause instanceof XQueryException && retryableErrorCodes.contains(((XQueryException) cause).getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private static RetryableMarklogicTransaction findAnnotation(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        Class<?> targetClass = invocation.getThis() != null ? AopUtils.getTargetClass(invocation.getThis()) : method.getDeclaringClass();
+        Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+
+        RetryableMarklogicTransaction retryable = AnnotatedElementUtils.findMergedAnnotation(specificMethod, RetryableMarklogicTransaction.class);
+        if (retryable == null) {
+            retryable = AnnotatedElementUtils.findMergedAnnotation(targetClass, RetryableMarklogicTransaction.class);
+        }
+        return retryable;
+    }
+
+}
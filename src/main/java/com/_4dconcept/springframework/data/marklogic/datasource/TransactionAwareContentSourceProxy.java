@@ -17,15 +17,9 @@ package com._4dconcept.springframework.data.marklogic.datasource;
 
 import com.marklogic.xcc.ContentSource;
 import com.marklogic.xcc.Session;
-import com.marklogic.xcc.exceptions.XccException;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
-
 /**
  * Proxy for a target XDBC {@link ContentSource}, adding awareness of
  * Spring-managed transactions. Similar to a transactional JNDI ContentSource
@@ -129,10 +123,7 @@ public class TransactionAwareContentSourceProxy extends DelegatingContentSource
      * @see ContentSourceUtils#doReleaseSession
      */
     protected Session getTransactionAwareSessionProxy(ContentSource targetContentSource) {
-        return (Session) Proxy.newProxyInstance(
-                SessionProxy.class.getClassLoader(),
-                new Class<?>[]{SessionProxy.class},
-                new TransactionAwareInvocationHandler(targetContentSource));
+        return new TransactionAwareSession(targetContentSource);
     }
 
     /**
@@ -154,10 +145,10 @@ public class TransactionAwareContentSourceProxy extends DelegatingContentSource
 
 
     /**
-     * Invocation handler that delegates close calls on XDBC Sessions
+     * Session handle that delegates close calls on XDBC Sessions
      * to ContentSourceUtils for being aware of thread-bound transactions.
      */
-    private class TransactionAwareInvocationHandler implements InvocationHandler {
+    private class TransactionAwareSession extends DelegatingSession {
 
         private final ContentSource targetContentSource;
 
@@ -165,82 +156,63 @@ public class TransactionAwareContentSourceProxy extends DelegatingContentSource
 
         private boolean closed = false;
 
-        public TransactionAwareInvocationHandler(ContentSource targetContentSource) {
+        public TransactionAwareSession(ContentSource targetContentSource) {
             this.targetContentSource = targetContentSource;
         }
 
         @Override
-        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            // Invocation on SessionProxy interface coming in...
-
-            if (method.getName().equals("equals")) {
-                // Only considered as equal when proxies are identical.
-                return (proxy == args[0]);
-            } else if (method.getName().equals("hashCode")) {
-                // Use hashCode of Session proxy.
-                return System.identityHashCode(proxy);
-            } else if (method.getName().equals("toString")) {
-                // Allow for differentiating between the proxy and the raw Session.
-                StringBuilder sb = new StringBuilder("Transaction-aware proxy for target Session ");
-                if (this.target != null) {
-                    sb.append("[").append(this.target.toString()).append("]");
-                } else {
-                    sb.append(" from ContentSource [").append(this.targetContentSource).append("]");
-                }
-                return sb.toString();
-            } else if (method.getName().equals("close")) {
-                // Handle close method: only close if not within a transaction.
-                ContentSourceUtils.doReleaseSession(this.target, this.targetContentSource);
-                this.closed = true;
-                return null;
-            } else if (method.getName().equals("isClosed")) {
-                return this.closed;
+        public String toString() {
+            // Allow for differentiating between the proxy and the raw Session.
+            StringBuilder sb = new StringBuilder("Transaction-aware proxy for target Session ");
+            if (this.target != null) {
+                sb.append("[").append(this.target.toString()).append("]");
+            } else {
+                sb.append(" from ContentSource [").append(this.targetContentSource).append("]");
             }
+            return sb.toString();
+        }
+
+        @Override
+        public void close() {
+            // Handle close method: only close if not within a transaction.
+            ContentSourceUtils.releaseSession(this.target, this.targetContentSource);
+            this.closed = true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return this.closed;
+        }
+
+        @Override
+        public Session getTargetSession() {
+            // Handle getTargetSession method: return underlying Session,
+            // releasing it right away unless it is the fixed target Session.
+            Session target = obtainTargetSession("getTargetSession");
+            releaseTargetSession(target);
+            return target;
+        }
 
+        @Override
+        protected Session obtainTargetSession(String operation) {
             if (this.target == null) {
                 if (this.closed) {
-                    throw new SessionClosedException();
+                    throw new IllegalStateException("Session handle already closed");
                 }
                 if (shouldObtainFixedSession(this.targetContentSource)) {
-                    this.target = ContentSourceUtils.doGetSession(this.targetContentSource);
-                }
-            }
-            Session actualTarget = this.target;
-            if (actualTarget == null) {
-                actualTarget = ContentSourceUtils.doGetSession(this.targetContentSource);
-            }
-
-            if (method.getName().equals("getTargetSession")) {
-                // Handle getTargetSession method: return underlying Session.
-                return actualTarget;
-            }
-
-            // Invoke method on target Session.
-            try {
-                Object retVal = method.invoke(actualTarget, args);
-
-//				// If return value is a Statement, apply transaction timeout.
-//				// Applies to createStatement, prepareStatement, prepareCall.
-//				if (retVal instanceof Statement) {
-//					ContentSourceUtils.applyTransactionTimeout((Statement) retVal, this.targetContentSource);
-//				}
-
-                return retVal;
-            } catch (InvocationTargetException ex) {
-                throw ex.getTargetException();
-            } finally {
-                if (actualTarget != this.target) {
-                    ContentSourceUtils.doReleaseSession(actualTarget, this.targetContentSource);
+                    this.target = ContentSourceUtils.getSession(this.targetContentSource);
                 }
             }
+            return (this.target != null) ? this.target : ContentSourceUtils.getSession(this.targetContentSource);
         }
 
-        public class SessionClosedException extends XccException {
-            public SessionClosedException() {
-                super("Session handle already closed");
+        @Override
+        protected void releaseTargetSession(Session target) {
+            if (target != this.target) {
+                ContentSourceUtils.releaseSession(target, this.targetContentSource);
             }
         }
-    }
 
+    }
 
 }
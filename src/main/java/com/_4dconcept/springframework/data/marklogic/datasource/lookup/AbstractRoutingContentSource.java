@@ -22,8 +22,11 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Abstract {@link ContentSource} implementation that routes {@link #newSession()}
@@ -49,6 +52,8 @@ public abstract class AbstractRoutingContentSource extends AbstractContentSource
 
     private ContentSource resolvedDefaultContentSource;
 
+    private final ThreadLocal<Object> boundLookupKey = new ThreadLocal<>();
+
 
     /**
      * Specify the map of target ContentSources, with the lookup key as key.
@@ -112,6 +117,17 @@ public abstract class AbstractRoutingContentSource extends AbstractContentSource
         }
     }
 
+    /**
+     * Return the resolved target ContentSources that this router manages.
+     * @return an unmodifiable map of resolved lookup keys and ContentSources
+     * @throws IllegalStateException if the target ContentSources are not resolved yet
+     * @see #setTargetContentSources
+     */
+    protected Map<Object, ContentSource> getResolvedContentSources() {
+        Assert.state(this.resolvedContentSources != null, "ContentSources not resolved yet - call afterPropertiesSet");
+        return Collections.unmodifiableMap(this.resolvedContentSources);
+    }
+
     /**
      * Resolve the given lookup key object, as specified in the
      * {@link #setTargetContentSources targetContentSources} map, into
@@ -174,6 +190,52 @@ public abstract class AbstractRoutingContentSource extends AbstractContentSource
         return determineTargetContentSource().newSession(userName, password, contentbaseId);
     }
 
+    /**
+     * Run the given action with the Sessions fetched on the target ContentSource of the given lookup key, whatever
+     * the {@link #determineCurrentLookupKey() current lookup key}.
+     * @param lookupKey a resolved lookup key
+     * @param action the action to run
+     * @param <T> the action result type
+     * @return the action result
+     */
+    public <T> T doWithLookupKey(Object lookupKey, Supplier<T> action) {
+        Assert.isTrue(getResolvedContentSources().containsKey(lookupKey), "Unknown lookup key [" + lookupKey + "]");
+        Object previous = boundLookupKey.get();
+        boundLookupKey.set(lookupKey);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                boundLookupKey.set(previous);
+            } else {
+                boundLookupKey.remove();
+            }
+        }
+    }
+
+    /**
+     * Return the lookup key bound to the current thread by {@link #doWithLookupKey(Object, Supplier)}, if any.
+     * @return the bound lookup key
+     */
+    @Nullable
+    protected Object getBoundLookupKey() {
+        return boundLookupKey.get();
+    }
+
+    /**
+     * Return the lookup keys the current work could be routed to, the {@link #determineCurrentLookupKey() current
+     * lookup key} first. Used to send a duplicate of a slow read to another target : only the current lookup key by
+     * default, subclasses routing to equivalent targets return these targets as well.
+     * @return the candidate lookup keys
+     */
+    public List<Object> getCandidateLookupKeys() {
+        Object currentLookupKey = determineCurrentLookupKey();
+        if (currentLookupKey == null || !getResolvedContentSources().containsKey(currentLookupKey)) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(currentLookupKey);
+    }
+
     /**
      * Retrieve the current target ContentSource. Determines the
      * {@link #determineCurrentLookupKey() current lookup key}, performs
@@ -183,8 +245,12 @@ public abstract class AbstractRoutingContentSource extends AbstractContentSource
      * @see #determineCurrentLookupKey()
      * @return the current target ContentSource
      */
-    private ContentSource determineTargetContentSource() {
+    protected ContentSource determineTargetContentSource() {
         Assert.notNull(this.resolvedContentSources, "ContentSource router not initialized");
+        Object boundKey = boundLookupKey.get();
+        if (boundKey != null) {
+            return this.resolvedContentSources.get(boundKey);
+        }
         Object lookupKey = determineCurrentLookupKey();
         ContentSource contentSource = this.resolvedContentSources.get(lookupKey);
         if (contentSource == null && (this.lenientFallback || lookupKey == null)) {
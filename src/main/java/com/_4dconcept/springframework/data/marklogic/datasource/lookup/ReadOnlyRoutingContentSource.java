@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource.lookup;
+
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Session;
+import com.marklogic.xcc.exceptions.XccException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ContentSource that routes read-only transactions to a replica ContentSource and
+ * everything else to the primary ContentSource. The replica can be a reader app server
+ * of the same cluster or a replica cluster; a pool of readers can be used through a
+ * {@link LoadBalancingContentSource}.
+ *
+ * <p>The read-only flag is only known once the transaction synchronization is prepared.
+ * With {@link com._4dconcept.springframework.data.marklogic.datasource.ContentSourceTransactionManager},
+ * which fetches the transaction Session before, wrap this router in a
+ * {@link com._4dconcept.springframework.data.marklogic.datasource.LazySessionContentSourceProxy}
+ * so that the actual Session is fetched on first use.
+ *
+ * <p>When a {@link #setMaxReplicaLag maximum replica lag} is configured, the wallclock
+ * time of the last commit seen by the replica is periodically compared to the primary's
+ * one. Read-only work is routed to the primary while the replica is lagging further
+ * behind, or when the lag can not be measured.
+ *
+ * @author Stéphane Toussaint
+ * @see TransactionSynchronizationManager#isCurrentTransactionReadOnly()
+ */
+public class ReadOnlyRoutingContentSource extends AbstractRoutingContentSource implements DisposableBean {
+
+    private static final String PRIMARY_KEY = "primary";
+
+    private static final String REPLICA_KEY = "replica";
+
+    private static final String TIMESTAMP_QUERY = "(xdmp:timestamp-to-wallclock(xdmp:request-timestamp()) - xs:dateTime('1970-01-01T00:00:00Z'))" +
+            " div xs:dayTimeDuration('PT0.001S')";
+
+    @Nullable
+    private ContentSource primaryContentSource;
+
+    @Nullable
+    private ContentSource replicaContentSource;
+
+    private long maxReplicaLag;
+
+    private long replicaLagCheckInterval = 5000;
+
+    private volatile boolean replicaUsable = true;
+
+    private volatile long replicaLag;
+
+    @Nullable
+    private ScheduledExecutorService lagChecker;
+
+    /**
+     * @param primaryContentSource the ContentSource used for read-write work
+     */
+    public void setPrimaryContentSource(ContentSource primaryContentSource) {
+        this.primaryContentSource = primaryContentSource;
+    }
+
+    /**
+     * @param replicaContentSource the ContentSource used for read-only transactions
+     */
+    public void setReplicaContentSource(ContentSource replicaContentSource) {
+        this.replicaContentSource = replicaContentSource;
+    }
+
+    /**
+     * @param maxReplicaLag the maximum replica lag in milliseconds, 0 (no lag check) by default
+     */
+    public void setMaxReplicaLag(long maxReplicaLag) {
+        this.maxReplicaLag = maxReplicaLag;
+    }
+
+    /**
+     * @param replicaLagCheckInterval the interval in milliseconds between two replica lag checks, 5s by default
+     */
+    public void setReplicaLagCheckInterval(long replicaLagCheckInterval) {
+        this.replicaLagCheckInterval = replicaLagCheckInterval;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(primaryContentSource, "Property 'primaryContentSource' is required");
+        Assert.notNull(replicaContentSource, "Property 'replicaContentSource' is required");
+
+        Map<Object, Object> targetContentSources = new HashMap<>();
+        targetContentSources.put(PRIMARY_KEY, primaryContentSource);
+        targetContentSources.put(REPLICA_KEY, replicaContentSource);
+        setTargetContentSources(targetContentSources);
+        setDefaultTargetContentSource(primaryContentSource);
+        super.afterPropertiesSet();
+
+        if (maxReplicaLag > 0) {
+            this.lagChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "marklogic-replica-lag-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.lagChecker.scheduleWithFixedDelay(this::checkReplicaLag, 0, replicaLagCheckInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaUsable) {
+            return REPLICA_KEY;
+        }
+        return PRIMARY_KEY;
+    }
+
+    /**
+     * @return whether read-only work is currently routed to the replica
+     */
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * @return the last measured replica lag in milliseconds
+     */
+    public long getReplicaLag() {
+        return replicaLag;
+    }
+
+    /**
+     * Measure the replica lag, routing read-only work to the primary if it exceeds the
+     * {@link #setMaxReplicaLag maximum replica lag}.
+     */
+    public void checkReplicaLag() {
+        boolean usable;
+        try {
+            replicaLag = Math.max(0, lastCommitTime(getResolvedContentSources().get(PRIMARY_KEY)) - lastCommitTime(getResolvedContentSources().get(REPLICA_KEY)));
+            usable = replicaLag <= maxReplicaLag;
+        } catch (XccException | RuntimeException ex) {
+            logger.debug("Unable to measure replica lag", ex);
+            usable = false;
+        }
+
+        if (usable != replicaUsable) {
+            logger.info(usable ? "Routing read-only work to the replica again" : "Routing read-only work to the primary, replica lag is " + replicaLag + " ms");
+            replicaUsable = usable;
+        }
+    }
+
+    private static long lastCommitTime(ContentSource contentSource) throws XccException {
+        try (Session session = contentSource.newSession()) {
+            return (long) Double.parseDouble(session.submitRequest(session.newAdhocQuery(TIMESTAMP_QUERY)).asString());
+        }
+    }
+
+}
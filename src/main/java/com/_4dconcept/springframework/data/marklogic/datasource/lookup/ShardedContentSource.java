@@ -0,0 +1,276 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource.lookup;
+
+import com._4dconcept.springframework.data.marklogic.datasource.DelegatingSession;
+import com._4dconcept.springframework.data.marklogic.datasource.SessionProxy;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Session;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * ContentSource that spreads the data over several shards, each one being a database reached through its own target
+ * ContentSource. The shard of a key is chosen on a consistent hash ring, so that adding a shard only moves the keys
+ * of a fraction of the ring.
+ *
+ * <p>The shard of new Sessions is bound to the current thread with {@link #doWithShardKey(Supplier, Supplier)},
+ * evaluated when the Session is fetched, or {@link #doWithShard(String, Supplier)}. Fetching a Session without any
+ * bound shard fails. A transaction, or a session scope, uses the shard of its first Session for its whole duration :
+ * the shard of a Session is given by {@link #getShard(Session)}.
+ *
+ * @author Stéphane Toussaint
+ * @see com._4dconcept.springframework.data.marklogic.core.ShardedMarklogicTemplate
+ */
+public class ShardedContentSource extends AbstractRoutingContentSource {
+
+    private final ThreadLocal<Supplier<String>> currentShard = new ThreadLocal<>();
+
+    private Map<String, ContentSource> shards = Collections.emptyMap();
+
+    private int virtualNodes = 128;
+
+    private final SortedMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * @param shards the target ContentSource of each shard, by shard name. The name is part of the hash ring and
+     *               should not change once data has been stored.
+     */
+    public void setShards(Map<String, ContentSource> shards) {
+        this.shards = new LinkedHashMap<>(shards);
+    }
+
+    /**
+     * @param virtualNodes the number of points of each shard on the hash ring, 128 by default
+     */
+    public void setVirtualNodes(int virtualNodes) {
+        Assert.isTrue(virtualNodes > 0, "virtualNodes must be positive");
+        this.virtualNodes = virtualNodes;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notEmpty(shards, "Property 'shards' is required");
+
+        setTargetContentSources(new LinkedHashMap<>(shards));
+        setLenientFallback(false);
+        super.afterPropertiesSet();
+
+        ring.clear();
+        for (String shard : shards.keySet()) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(shard + "#" + i), shard);
+            }
+        }
+    }
+
+    /**
+     * @return the shard names
+     */
+    public Set<String> getShardNames() {
+        return Collections.unmodifiableSet(shards.keySet());
+    }
+
+    /**
+     * @return whether a shard is bound to the current thread
+     */
+    public boolean isShardBound() {
+        return currentShard.get() != null;
+    }
+
+    /**
+     * Return the shard of the given key, the first shard following the key hash on the ring.
+     *
+     * @param key the shard key, typically an entity identifier
+     * @return the shard name
+     */
+    public String shardFor(Object key) {
+        Assert.state(!ring.isEmpty(), "ShardedContentSource not initialized");
+        SortedMap<Long, String> tail = ring.tailMap(hash(String.valueOf(key)));
+        return tail.isEmpty() ? ring.get(ring.firstKey()) : tail.get(tail.firstKey());
+    }
+
+    /**
+     * Return the shard the given Session, or the Session it proxies, has been fetched on.
+     *
+     * @param session a Session fetched from this ContentSource
+     * @return the shard name, {@code null} if the Session does not come from this ContentSource
+     */
+    @Nullable
+    public String getShard(Session session) {
+        Session current = session;
+        while (!(current instanceof ShardSession) && current instanceof SessionProxy) {
+            current = ((SessionProxy) current).getTargetSession();
+        }
+        return current instanceof ShardSession ? ((ShardSession) current).shard : null;
+    }
+
+    /**
+     * Run the given action with the Sessions fetched on the given shard.
+     *
+     * @param shard the shard name
+     * @param action the action to run
+     * @param <T> the action result type
+     * @return the action result
+     */
+    public <T> T doWithShard(String shard, Supplier<T> action) {
+        Assert.isTrue(shards.containsKey(shard), "Unknown shard " + shard);
+        return doWithShardSupplier(() -> shard, action);
+    }
+
+    /**
+     * Run the given action with the Sessions fetched on the shard of the given key. The key is only resolved when a
+     * Session is fetched, for instance once the identifier of a new entity has been generated.
+     *
+     * @param keySupplier the supplier of the shard key
+     * @param action the action to run
+     * @param <T> the action result type
+     * @return the action result
+     */
+    public <T> T doWithShardKey(Supplier<?> keySupplier, Supplier<T> action) {
+        return doWithShardSupplier(() -> {
+            Object key = keySupplier.get();
+            Assert.state(key != null, "Unable to route to a shard without shard key");
+            return shardFor(key);
+        }, action);
+    }
+
+    private <T> T doWithShardSupplier(Supplier<String> shardSupplier, Supplier<T> action) {
+        Supplier<String> previous = currentShard.get();
+        currentShard.set(shardSupplier);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                currentShard.set(previous);
+            } else {
+                currentShard.remove();
+            }
+        }
+    }
+
+    @Override
+    public Session newSession() {
+        String shard = currentShardName();
+        return new ShardSession(shard, shardContentSource(shard).newSession());
+    }
+
+    @Override
+    public Session newSession(String contentbaseId) {
+        String shard = currentShardName();
+        return new ShardSession(shard, shardContentSource(shard).newSession(contentbaseId));
+    }
+
+    @Override
+    @Deprecated
+    public Session newSession(String username, String password, String contentbaseId) {
+        String shard = currentShardName();
+        return new ShardSession(shard, shardContentSource(shard).newSession(username, password, contentbaseId));
+    }
+
+    @Override
+    @Deprecated
+    public Session newSession(String username, String password) {
+        String shard = currentShardName();
+        return new ShardSession(shard, shardContentSource(shard).newSession(username, password));
+    }
+
+    @Override
+    public Session newSession(String username, char[] password) {
+        String shard = currentShardName();
+        return new ShardSession(shard, shardContentSource(shard).newSession(username, password));
+    }
+
+    @Override
+    public Session newSession(String username, char[] password, String contentbaseId) {
+        String shard = currentShardName();
+        return new ShardSession(shard, shardContentSource(shard).newSession(username, password, contentbaseId));
+    }
+
+    private String currentShardName() {
+        Object boundKey = getBoundLookupKey();
+        return (String) (boundKey != null ? boundKey : determineCurrentLookupKey());
+    }
+
+    private ContentSource shardContentSource(String shard) {
+        ContentSource contentSource = getResolvedContentSources().get(shard);
+        Assert.state(contentSource != null, "Unknown shard " + shard);
+        return contentSource;
+    }
+
+    @Override
+    @Nullable
+    protected Object determineCurrentLookupKey() {
+        Supplier<String> shardSupplier = currentShard.get();
+        Assert.state(shardSupplier != null, "No shard bound to the current thread, see ShardedContentSource#doWithShard");
+        return shardSupplier.get();
+    }
+
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException("MD5 is not available", nsae);
+        }
+    }
+
+    /**
+     * Session fetched on a shard, remembering its shard name.
+     */
+    private static final class ShardSession extends DelegatingSession {
+
+        private final String shard;
+
+        private final Session target;
+
+        private ShardSession(String shard, Session target) {
+            this.shard = shard;
+            this.target = target;
+        }
+
+        @Override
+        protected Session obtainTargetSession(String operation) {
+            return target;
+        }
+
+        @Override
+        public Session getTargetSession() {
+            return target;
+        }
+
+        @Override
+        public String toString() {
+            return "Session of shard [" + shard + "] for target Session [" + target + "]";
+        }
+    }
+
+}
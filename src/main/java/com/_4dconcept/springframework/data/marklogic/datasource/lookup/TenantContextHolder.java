@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource.lookup;
+
+import org.springframework.lang.Nullable;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound tenant, resolved by default by {@link TenantRoutingContentSource}.
+ *
+ * @author Stéphane Toussaint
+ */
+public final class TenantContextHolder {
+
+    private static final ThreadLocal<String> CURRENT_TENANT = new ThreadLocal<>();
+
+    private TenantContextHolder() {
+    }
+
+    /**
+     * @return the tenant bound to the current thread, if any
+     */
+    @Nullable
+    public static String getTenant() {
+        return CURRENT_TENANT.get();
+    }
+
+    /**
+     * @param tenant the tenant to bind to the current thread, {@literal null} to unbind it
+     */
+    public static void setTenant(@Nullable String tenant) {
+        if (tenant == null) {
+            CURRENT_TENANT.remove();
+        } else {
+            CURRENT_TENANT.set(tenant);
+        }
+    }
+
+    /**
+     * Run the given action with the given tenant bound to the current thread, restoring the previous one afterwards.
+     *
+     * @param tenant the tenant
+     * @param action the action to run
+     * @param <T> the action result type
+     * @return the action result
+     */
+    public static <T> T doWithTenant(String tenant, Supplier<T> action) {
+        String previous = getTenant();
+        setTenant(tenant);
+        try {
+            return action.get();
+        } finally {
+            setTenant(previous);
+        }
+    }
+
+}
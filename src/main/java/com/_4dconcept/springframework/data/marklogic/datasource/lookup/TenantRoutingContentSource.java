@@ -0,0 +1,398 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource.lookup;
+
+import com._4dconcept.springframework.data.marklogic.datasource.PooledContentSource;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * ContentSource routing each tenant to its own database. The tenant is resolved by a pluggable
+ * {@link TenantResolver}, the thread-bound {@link TenantContextHolder} one by default.
+ *
+ * <p>The ContentSource of a tenant is created on first use by the
+ * {@link #setTargetContentSourceFactory target ContentSource factory} and wrapped in a dedicated
+ * {@link PooledContentSource}: each tenant has its own limit of borrowed Sessions, so that a busy tenant can not
+ * starve the others, and its own pool gauges (see {@link #getTenantPool(String)}).
+ *
+ * <p>Tenants without borrowed Sessions are evicted once idle for {@link #setTenantIdleTimeout tenantIdleTimeout},
+ * or as the least recently used ones when more than {@link #setMaxTenants maxTenants} tenants are active. The limit is
+ * a soft one : tenants with borrowed Sessions are never evicted, so it may be exceeded while they are busy. Work without
+ * tenant is routed to the {@link #setDefaultTargetContentSource default target ContentSource}, if any.
+ *
+ * @author Stéphane Toussaint
+ */
+@ManagedResource(description = "Per tenant Marklogic ContentSource router")
+public class TenantRoutingContentSource extends AbstractRoutingContentSource implements DisposableBean {
+
+    private TenantResolver tenantResolver = TenantContextHolder::getTenant;
+
+    @Nullable
+    private Function<String, ContentSource> targetContentSourceFactory;
+
+    private int tenantMaxSessions = 8;
+
+    private long tenantMaxWait = 30000;
+
+    private long sessionIdleTimeout = 600000;
+
+    private int maxTenants = 100;
+
+    private long tenantIdleTimeout = 1800000;
+
+    private long maintenanceInterval = 30000;
+
+    private final Map<String, TenantPool> tenantPools = new ConcurrentHashMap<>();
+
+    private final AtomicLong evictedTenantCount = new AtomicLong();
+
+    @Nullable
+    private ScheduledExecutorService maintenance;
+
+    /**
+     * @param tenantResolver the strategy resolving the current tenant, {@link TenantContextHolder} by default
+     */
+    public void setTenantResolver(TenantResolver tenantResolver) {
+        this.tenantResolver = tenantResolver;
+    }
+
+    /**
+     * @param targetContentSourceFactory the factory creating the target ContentSource of a tenant, typically on its
+     *                                   own database
+     */
+    public void setTargetContentSourceFactory(Function<String, ContentSource> targetContentSourceFactory) {
+        this.targetContentSourceFactory = targetContentSourceFactory;
+    }
+
+    /**
+     * @param tenantMaxSessions the maximum number of Sessions borrowed at the same time by a tenant, 8 by default
+     */
+    public void setTenantMaxSessions(int tenantMaxSessions) {
+        this.tenantMaxSessions = tenantMaxSessions;
+    }
+
+    /**
+     * @param tenantMaxWait the maximum time in milliseconds to wait for a Session of an exhausted tenant, 30s by default
+     */
+    public void setTenantMaxWait(long tenantMaxWait) {
+        this.tenantMaxWait = tenantMaxWait;
+    }
+
+    /**
+     * @param sessionIdleTimeout the time in milliseconds after which an idle Session is evicted, 10 minutes by default
+     */
+    public void setSessionIdleTimeout(long sessionIdleTimeout) {
+        this.sessionIdleTimeout = sessionIdleTimeout;
+    }
+
+    /**
+     * @param maxTenants the maximum number of tenants with a Session pool, 100 by default. Exceeded while more tenants
+     *                   have borrowed Sessions.
+     */
+    public void setMaxTenants(int maxTenants) {
+        this.maxTenants = maxTenants;
+    }
+
+    /**
+     * @param tenantIdleTimeout the time in milliseconds after which the pool of an unused tenant is closed, 30 minutes
+     *                          by default
+     */
+    public void setTenantIdleTimeout(long tenantIdleTimeout) {
+        this.tenantIdleTimeout = tenantIdleTimeout;
+    }
+
+    /**
+     * @param maintenanceInterval the interval in milliseconds between two evictions of idle Sessions and tenants, 30s
+     *                            by default. 0 disables the background eviction.
+     */
+    public void setMaintenanceInterval(long maintenanceInterval) {
+        this.maintenanceInterval = maintenanceInterval;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(targetContentSourceFactory, "Property 'targetContentSourceFactory' is required");
+        Assert.isTrue(maxTenants > 0, "Property 'maxTenants' must be greater than 0");
+
+        setTargetContentSources(Collections.emptyMap());
+        super.afterPropertiesSet();
+
+        if (maintenanceInterval > 0) {
+            this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "marklogic-tenant-pool-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.maintenance.scheduleWithFixedDelay(this::evictIdle, maintenanceInterval, maintenanceInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+
+        tenantPools.keySet().forEach(tenant -> {
+            TenantPool tenantPool = tenantPools.remove(tenant);
+            if (tenantPool != null) {
+                tenantPool.pool.destroy();
+            }
+        });
+    }
+
+    @Override
+    @Nullable
+    protected Object determineCurrentLookupKey() {
+        return tenantResolver.resolveTenant();
+    }
+
+    /**
+     * Return the pool of the current tenant. Unlike {@link #newSession()}, the returned pool is not reserved and may
+     * be evicted once idle.
+     */
+    @Override
+    protected ContentSource determineTargetContentSource() {
+        String tenant = (String) determineCurrentLookupKey();
+        if (tenant == null) {
+            return super.determineTargetContentSource();
+        }
+
+        TenantPool tenantPool = reserveTenantPool(tenant);
+        tenantPool.reservations.decrementAndGet();
+        return tenantPool.pool;
+    }
+
+    @Override
+    public Session newSession() {
+        return newTenantSession(ContentSource::newSession);
+    }
+
+    @Override
+    public Session newSession(String contentbaseId) {
+        return newTenantSession(target -> target.newSession(contentbaseId));
+    }
+
+    @Override
+    @Deprecated
+    public Session newSession(String username, String password, String contentbaseId) {
+        return newTenantSession(target -> target.newSession(username, password, contentbaseId));
+    }
+
+    @Override
+    @Deprecated
+    public Session newSession(String username, String password) {
+        return newTenantSession(target -> target.newSession(username, password));
+    }
+
+    @Override
+    public Session newSession(String userName, char[] password) {
+        return newTenantSession(target -> target.newSession(userName, password));
+    }
+
+    @Override
+    public Session newSession(String userName, char[] password, String contentbaseId) {
+        return newTenantSession(target -> target.newSession(userName, password, contentbaseId));
+    }
+
+    /**
+     * Fetch a Session on the pool of the current tenant, keeping the pool reserved until the Session is borrowed
+     * so that it can not be evicted in between.
+     */
+    private Session newTenantSession(Function<ContentSource, Session> sessionFactory) {
+        String tenant = (String) determineCurrentLookupKey();
+        if (tenant == null) {
+            return sessionFactory.apply(super.determineTargetContentSource());
+        }
+
+        TenantPool tenantPool = reserveTenantPool(tenant);
+        try {
+            return sessionFactory.apply(tenantPool.pool);
+        } finally {
+            tenantPool.reservations.decrementAndGet();
+        }
+    }
+
+    private TenantPool reserveTenantPool(String tenant) {
+        TenantPool tenantPool;
+        do {
+            // Reserved within computeIfPresent, so that evictTenant sees the reservation
+            tenantPool = tenantPools.computeIfPresent(tenant, (key, existing) -> {
+                existing.reservations.incrementAndGet();
+                existing.lastUsed = System.currentTimeMillis();
+                return existing;
+            });
+
+            if (tenantPool == null) {
+                // Created outside of the map, whose bin lock must not be held while the factory runs
+                TenantPool created = createTenantPool(tenant);
+                created.reservations.incrementAndGet();
+                if (tenantPools.putIfAbsent(tenant, created) == null) {
+                    tenantPool = created;
+                } else {
+                    created.pool.destroy();
+                }
+            }
+        } while (tenantPool == null);
+
+        if (tenantPools.size() > maxTenants) {
+            evictLeastRecentlyUsedTenants(tenant);
+        }
+
+        return tenantPool;
+    }
+
+    /**
+     * @param tenant the tenant
+     * @return the Session pool of the given tenant, if active
+     */
+    @Nullable
+    public PooledContentSource getTenantPool(String tenant) {
+        TenantPool tenantPool = tenantPools.get(tenant);
+        return tenantPool == null ? null : tenantPool.pool;
+    }
+
+    /**
+     * @return the tenants with a Session pool
+     */
+    public Set<String> getTenants() {
+        return Collections.unmodifiableSet(tenantPools.keySet());
+    }
+
+    @ManagedAttribute(description = "Number of tenants with a Session pool")
+    public int getTenantCount() {
+        return tenantPools.size();
+    }
+
+    @ManagedAttribute(description = "Total number of evicted tenants")
+    public long getEvictedTenantCount() {
+        return evictedTenantCount.get();
+    }
+
+    @ManagedOperation(description = "Number of Sessions currently borrowed by a tenant")
+    public int getTenantActiveCount(String tenant) {
+        PooledContentSource pool = getTenantPool(tenant);
+        return pool == null ? 0 : pool.getActiveCount();
+    }
+
+    @ManagedOperation(description = "Number of threads waiting for a Session of a tenant")
+    public int getTenantWaitingCount(String tenant) {
+        PooledContentSource pool = getTenantPool(tenant);
+        return pool == null ? 0 : pool.getWaitingCount();
+    }
+
+    /**
+     * Evict the expired idle Sessions of every tenant, and the pools of the tenants unused for
+     * {@link #setTenantIdleTimeout tenantIdleTimeout}.
+     */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        tenantPools.forEach((tenant, tenantPool) -> {
+            if (now - tenantPool.lastUsed > tenantIdleTimeout) {
+                evictTenant(tenant, tenantPool);
+            } else {
+                tenantPool.pool.evict();
+            }
+        });
+    }
+
+    private TenantPool createTenantPool(String tenant) {
+        logger.debug("Creating Session pool of tenant " + tenant);
+        ContentSource targetContentSource = targetContentSourceFactory.apply(tenant);
+        Assert.state(targetContentSource != null, "No target ContentSource for tenant " + tenant);
+
+        PooledContentSource pool = new PooledContentSource();
+        pool.setTargetContentSource(targetContentSource);
+        pool.setMaxTotal(tenantMaxSessions);
+        pool.setMaxWait(tenantMaxWait);
+        pool.setIdleTimeout(sessionIdleTimeout);
+        // Idle Sessions are evicted by the maintenance of the router, not by a thread per tenant
+        pool.setEvictionInterval(0);
+        pool.afterPropertiesSet();
+        return new TenantPool(pool);
+    }
+
+    private void evictLeastRecentlyUsedTenants(String currentTenant) {
+        while (tenantPools.size() > maxTenants) {
+            Optional<Map.Entry<String, TenantPool>> leastRecentlyUsed = tenantPools.entrySet().stream()
+                    .filter(entry -> !entry.getKey().equals(currentTenant) && entry.getValue().isIdle())
+                    .min(Comparator.comparingLong(entry -> entry.getValue().lastUsed));
+
+            if (!leastRecentlyUsed.isPresent()) {
+                // Every other tenant is busy, the limit is exceeded until they give their Sessions back
+                return;
+            }
+            evictTenant(leastRecentlyUsed.get().getKey(), leastRecentlyUsed.get().getValue());
+        }
+    }
+
+    private void evictTenant(String tenant, TenantPool tenantPool) {
+        // Tenants with borrowed or reserved Sessions are kept until they give them back
+        AtomicBoolean evicted = new AtomicBoolean();
+        tenantPools.computeIfPresent(tenant, (key, current) -> {
+            if (current != tenantPool || !current.isIdle()) {
+                return current;
+            }
+            evicted.set(true);
+            return null;
+        });
+
+        if (evicted.get()) {
+            logger.debug("Evicting Session pool of tenant " + tenant);
+            evictedTenantCount.incrementAndGet();
+            tenantPool.pool.destroy();
+        }
+    }
+
+    private static final class TenantPool {
+
+        private final PooledContentSource pool;
+
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private final AtomicInteger reservations = new AtomicInteger();
+
+        private TenantPool(PooledContentSource pool) {
+            this.pool = pool;
+        }
+
+        private boolean isIdle() {
+            return reservations.get() == 0 && pool.getActiveCount() == 0 && pool.getWaitingCount() == 0;
+        }
+
+    }
+
+}
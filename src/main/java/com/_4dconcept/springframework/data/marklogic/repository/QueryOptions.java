@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.repository;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Tune the XCC request options of a repository query method.
+ *
+ * @author Stéphane Toussaint
+ * @see com.marklogic.xcc.RequestOptions
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface QueryOptions {
+
+    /**
+     * @return the size in bytes of the buffer used to read the result, 0 (default) for the XCC default
+     */
+    int resultBufferSize() default 0;
+
+    /**
+     * @return the number of times XCC automatically retries the request, -1 (default) for the XCC default
+     */
+    int maxAutoRetry() default -1;
+
+    /**
+     * @return true to fetch the whole result before returning, false (default) to stream it from the server
+     */
+    boolean cacheResult() default false;
+
+    /**
+     * @return the XQuery version of the request when not declared in the query prolog, empty (default) for the server
+     * default
+     */
+    String defaultXQueryVersion() default "";
+
+}
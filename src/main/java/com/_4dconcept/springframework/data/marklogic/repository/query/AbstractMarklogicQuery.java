@@ -17,11 +17,13 @@ package com._4dconcept.springframework.data.marklogic.repository.query;
 
 import com._4dconcept.springframework.data.marklogic.core.MarklogicOperations;
 import com._4dconcept.springframework.data.marklogic.core.query.Query;
+import com._4dconcept.springframework.data.marklogic.repository.QueryOptions;
 import org.springframework.data.repository.query.ParameterAccessor;
 import org.springframework.data.repository.query.ParametersParameterAccessor;
 import org.springframework.data.repository.query.RepositoryQuery;
 import org.springframework.data.repository.query.ResultProcessor;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
 /**
  * Base class for {@link RepositoryQuery} implementations for Marklogic.
@@ -55,6 +57,18 @@ public abstract class AbstractMarklogicQuery implements RepositoryQuery {
         ParameterAccessor accessor = new ParametersParameterAccessor(method.getParameters(), parameters);
         Query query = createQuery(accessor);
 
+        if (method.getTimeout() != null) {
+            query.setTimeout(method.getTimeout());
+        }
+
+        QueryOptions queryOptions = method.getQueryOptions();
+        if (queryOptions != null) {
+            query.setResultBufferSize(queryOptions.resultBufferSize());
+            query.setMaxAutoRetry(queryOptions.maxAutoRetry());
+            query.setCacheResult(queryOptions.cacheResult());
+            query.setDefaultXQueryVersion(StringUtils.hasText(queryOptions.defaultXQueryVersion()) ? queryOptions.defaultXQueryVersion() : null);
+        }
+
         ResultProcessor processor = method.getResultProcessor().withDynamicProjection(accessor);
 
         if (isDeleteQuery()) {
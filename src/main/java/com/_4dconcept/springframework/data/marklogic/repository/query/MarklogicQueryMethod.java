@@ -15,11 +15,16 @@
  */
 package com._4dconcept.springframework.data.marklogic.repository.query;
 
+import com._4dconcept.springframework.data.marklogic.repository.QueryOptions;
+import com._4dconcept.springframework.data.marklogic.repository.QueryTimeout;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.data.projection.ProjectionFactory;
 import org.springframework.data.repository.core.RepositoryMetadata;
 import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.lang.Nullable;
 
 import java.lang.reflect.Method;
+import java.time.Duration;
 
 /**
  * Marklogic specific implementation of {@link QueryMethod}.
@@ -28,6 +33,12 @@ import java.lang.reflect.Method;
  */
 public class MarklogicQueryMethod extends QueryMethod {
 
+    @Nullable
+    private final Duration timeout;
+
+    @Nullable
+    private final QueryOptions queryOptions;
+
     /**
      * Creates a new {@link MarklogicQueryMethod} from the given {@link Method}.
      *
@@ -37,6 +48,26 @@ public class MarklogicQueryMethod extends QueryMethod {
      */
     public MarklogicQueryMethod(Method method, RepositoryMetadata metadata, ProjectionFactory projectionFactory) {
         super(method, metadata, projectionFactory);
+
+        QueryTimeout queryTimeout = AnnotatedElementUtils.findMergedAnnotation(method, QueryTimeout.class);
+        this.timeout = queryTimeout == null ? null : Duration.ofMillis(queryTimeout.unit().toMillis(queryTimeout.value()));
+        this.queryOptions = AnnotatedElementUtils.findMergedAnnotation(method, QueryOptions.class);
+    }
+
+    /**
+     * @return the timeout declared with {@link QueryTimeout}, if any
+     */
+    @Nullable
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return the request options declared with {@link QueryOptions}, if any
+     */
+    @Nullable
+    public QueryOptions getQueryOptions() {
+        return queryOptions;
     }
 
 }
@@ -6,6 +6,9 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Method;
+import java.util.Optional;
+
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -19,11 +22,47 @@ public class MarklogicCollectionUtilsTest {
         assertThat(marklogicCollectionUtils.extractCollections(new ComposedSampleEntity(new SampleEntity("test1", "test2")), new MarklogicMappingContext()), containsInAnyOrder("test1", "field:test2", "computed:TEST1"));
     }
 
+    @Test
+    public void extractCollections_readsCurrentValuesOfEachEntity() {
+        MarklogicMappingContext mappingContext = new MarklogicMappingContext();
+        assertThat(marklogicCollectionUtils.extractCollections(new SampleEntity("test1", "test2"), mappingContext), containsInAnyOrder("test1", "field:test2", "computed:TEST1"));
+        assertThat(marklogicCollectionUtils.extractCollections(new SampleEntity("other1", "other2"), mappingContext), containsInAnyOrder("other1", "field:other2", "computed:OTHER1"));
+    }
+
+    @Test
+    public void extractCollections_honoursEachInstanceAnnotationLookup() {
+        MarklogicMappingContext mappingContext = new MarklogicMappingContext();
+        MarklogicCollectionUtils propertiesOnlyCollectionUtils = new MarklogicCollectionUtils() {
+            @Override
+            public Optional<Collection> getCollectionAnnotation(Method method) {
+                return Optional.empty();
+            }
+        };
+
+        assertThat(marklogicCollectionUtils.extractCollections(new SampleEntity("test1", "test2"), mappingContext), containsInAnyOrder("test1", "field:test2", "computed:TEST1"));
+        assertThat(propertiesOnlyCollectionUtils.extractCollections(new SampleEntity("test1", "test2"), mappingContext), containsInAnyOrder("test1", "field:test2"));
+        assertThat(marklogicCollectionUtils.extractCollections(new SampleEntity("test1", "test2"), mappingContext), containsInAnyOrder("test1", "field:test2", "computed:TEST1"));
+    }
+
     @Test
     public void extractCollections_fromEntityWithLogger() {
         assertThat(marklogicCollectionUtils.extractCollections(new SampleWithLoggerEntity("test1", "test2"), new MarklogicMappingContext()), containsInAnyOrder("test1", "field:test2", "computed:TEST1"));
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void extractCollections_rethrowsUncheckedExceptionOfCollectionMethod() {
+        marklogicCollectionUtils.extractCollections(new FailingSampleEntity(), new MarklogicMappingContext());
+    }
+
+    private class FailingSampleEntity {
+
+        @Collection(prefix = "failing")
+        @SuppressWarnings("unused") // Used by reflexion for test
+        public String getFailing() {
+            throw new IllegalStateException("Not computable");
+        }
+    }
+
     private class SampleEntity extends BaseSampleEntity {
 
         SampleEntity(String field1, String field2) {
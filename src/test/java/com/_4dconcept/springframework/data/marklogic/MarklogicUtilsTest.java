@@ -3,7 +3,10 @@ package com._4dconcept.springframework.data.marklogic;
 import com._4dconcept.springframework.data.marklogic.repository.Person;
 import org.junit.Test;
 
+import java.math.BigInteger;
+
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 public class MarklogicUtilsTest {
@@ -24,4 +27,21 @@ public class MarklogicUtilsTest {
         assertThat(MarklogicUtils.expandsExpression("/content/#{entityClass.getSimpleName()}/#{entity.lastname}/#{id}.xml", Person.class, person, () -> "1"), is("/content/Person/Test/1.xml"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void checkIdOnlyUriExpansion() {
+        assertThat(MarklogicUtils.expandsExpression("/content/person/#{id}.xml", Person.class, null, () -> "1"), is("/content/person/1.xml"));
+        assertThat(MarklogicUtils.expandsExpression("/content/person/#{id}.xml", Person.class, null, () -> BigInteger.TEN), is("/content/person/10.xml"));
+        assertThat(MarklogicUtils.expandsExpression("/content/person/#{id}.xml", Person.class, null, null), is("/content/person/.xml"));
+        assertThat(MarklogicUtils.expandsExpression("#{id}", null, null, null), nullValue());
+    }
+
+    @Test
+    public void checkCachedExpressionExpansion() {
+        Person person = new Person();
+        for (int i = 0; i < 500; i++) {
+            person.setLastname("Test" + i);
+            assertThat(MarklogicUtils.expandsExpression("/#{entity.lastname}/#{id}.xml", Person.class, person, () -> "1"), is("/Test" + i + "/1.xml"));
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package com._4dconcept.springframework.data.marklogic.config;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assume.assumeThat;
+
+public class MarklogicEntityIndexProcessorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void process_IndexesConcreteTopLevelAndStaticNestedEntities() throws Exception {
+        File sources = temporaryFolder.newFolder("sources");
+        File classes = temporaryFolder.newFolder("classes");
+
+        File person = writeSource(sources, "com/acme/model/Person.java",
+                "package com.acme.model;",
+                "import com._4dconcept.springframework.data.marklogic.core.mapping.Document;",
+                "@Document public class Person {",
+                "    @Document public static class Address {}",
+                "    @Document public class Note {}",
+                "}");
+        File base = writeSource(sources, "com/acme/model/Base.java",
+                "package com.acme.model;",
+                "import com._4dconcept.springframework.data.marklogic.core.mapping.Document;",
+                "@Document abstract class Base {}");
+        File plain = writeSource(sources, "com/acme/model/Plain.java",
+                "package com.acme.model;",
+                "public class Plain {}");
+
+        compile(classes, person, base, plain);
+
+        File index = new File(classes, MarklogicEntityIndex.INDEX_LOCATION);
+        assertThat(index.isFile(), is(true));
+        assertThat(Files.readAllLines(index.toPath(), StandardCharsets.UTF_8), contains("com.acme.model.Person", "com.acme.model.Person$Address"));
+    }
+
+    @Test
+    public void process_WithoutEntities_WritesNoIndex() throws Exception {
+        File sources = temporaryFolder.newFolder("sources");
+        File classes = temporaryFolder.newFolder("classes");
+
+        File plain = writeSource(sources, "com/acme/model/Plain.java",
+                "package com.acme.model;",
+                "public class Plain {}");
+
+        compile(classes, plain);
+
+        assertThat(new File(classes, MarklogicEntityIndex.INDEX_LOCATION).exists(), is(false));
+    }
+
+    private File writeSource(File sources, String path, String... lines) throws Exception {
+        File source = new File(sources, path);
+        source.getParentFile().mkdirs();
+        Files.write(source.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        return source;
+    }
+
+    private void compile(File classes, File... sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeThat(compiler, notNullValue());
+
+        List<String> arguments = Arrays.asList(
+                "-proc:only",
+                "-processor", MarklogicEntityIndexProcessor.class.getName(),
+                "-classpath", System.getProperty("java.class.path"),
+                "-d", classes.getAbsolutePath());
+
+        String[] commandLine = new String[arguments.size() + sources.length];
+        arguments.toArray(commandLine);
+        for (int i = 0; i < sources.length; i++) {
+            commandLine[arguments.size() + i] = sources[i].getAbsolutePath();
+        }
+
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        int result = compiler.run(null, null, errors, commandLine);
+        assertThat(new String(errors.toByteArray(), StandardCharsets.UTF_8), result, is(0));
+    }
+}
@@ -0,0 +1,45 @@
+package com._4dconcept.springframework.data.marklogic.config;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class MarklogicEntityIndexTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void load_WithoutIndex_ReturnsNull() throws Exception {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {temporaryFolder.getRoot().toURI().toURL()}, null)) {
+            assertThat(MarklogicEntityIndex.load(classLoader), nullValue());
+        }
+    }
+
+    @Test
+    public void load_WithIndex_FiltersEntitiesByBasePackage() throws Exception {
+        File index = new File(temporaryFolder.getRoot(), MarklogicEntityIndex.INDEX_LOCATION);
+        index.getParentFile().mkdirs();
+        Files.write(index.toPath(), Arrays.asList("# entities", "com.acme.model.Person", "com.acme.model.sub.Address", "com.other.Order"), StandardCharsets.UTF_8);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {temporaryFolder.getRoot().toURI().toURL()}, null)) {
+            MarklogicEntityIndex entityIndex = MarklogicEntityIndex.load(classLoader);
+
+            assertThat(entityIndex, notNullValue());
+            assertThat(entityIndex.getEntityClassNames("com.acme"), contains("com.acme.model.Person", "com.acme.model.sub.Address"));
+            assertThat(entityIndex.getEntityClassNames("com.acme.model.sub"), contains("com.acme.model.sub.Address"));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com._4dconcept.springframework.data.marklogic.config;
+
+import com._4dconcept.springframework.data.marklogic.core.MarklogicOperations;
+import com._4dconcept.springframework.data.marklogic.core.MarklogicSessionCallback;
+import com.marklogic.xcc.AdhocQuery;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.ResultSequence;
+import com.marklogic.xcc.Session;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MarklogicWarmupTest {
+
+    private ContentSource contentSource;
+    private Session session;
+    private MarklogicOperations operations;
+
+    @Before
+    public void setUp() throws Exception {
+        contentSource = mock(ContentSource.class);
+        session = mock(Session.class);
+        operations = mock(MarklogicOperations.class);
+
+        when(contentSource.newSession()).thenReturn(session);
+        when(session.newAdhocQuery("fn:true()")).thenReturn(mock(AdhocQuery.class));
+        when(session.submitRequest(any())).thenReturn(mock(ResultSequence.class));
+    }
+
+    @Test
+    public void start_OpensAndValidatesSessions_ThenReportsReady() {
+        MarklogicWarmup warmup = new MarklogicWarmup(contentSource, operations, Collections.emptySet());
+        warmup.setSessionCount(3);
+
+        assertThat(warmup.isReady(), is(false));
+        warmup.start();
+
+        verify(contentSource, times(3)).newSession();
+        verify(session, times(3)).close();
+        assertThat(warmup.isReady(), is(true));
+        assertThat(warmup.isRunning(), is(true));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void start_RunsRegisteredReadsForEachIteration() {
+        MarklogicSessionCallback<Object> read = mock(MarklogicSessionCallback.class);
+        MarklogicWarmup warmup = new MarklogicWarmup(contentSource, operations, Collections.emptySet());
+        warmup.setIterations(5);
+        warmup.addRead(read);
+
+        warmup.start();
+
+        verify(operations, times(5)).executeInSession(read);
+    }
+
+    @Test
+    public void start_ValidatesSessionsConcurrently() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        when(session.submitRequest(any())).thenAnswer(invocation -> {
+            barrier.await(5, TimeUnit.SECONDS);
+            return mock(ResultSequence.class);
+        });
+        MarklogicWarmup warmup = new MarklogicWarmup(contentSource, operations, Collections.emptySet());
+        warmup.setSessionCount(3);
+        warmup.setFailOnError(true);
+
+        warmup.start();
+
+        verify(session, times(3)).submitRequest(any());
+        verify(session, times(3)).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void start_WithFailingRead_RunsTheOtherReads() {
+        MarklogicSessionCallback<Object> failingRead = mock(MarklogicSessionCallback.class);
+        MarklogicSessionCallback<Object> read = mock(MarklogicSessionCallback.class);
+        when(operations.executeInSession(failingRead)).thenThrow(new IllegalStateException("failure"));
+        MarklogicWarmup warmup = new MarklogicWarmup(contentSource, operations, Collections.emptySet());
+        warmup.setIterations(5);
+        warmup.addRead(failingRead);
+        warmup.addRead(read);
+
+        warmup.start();
+
+        verify(operations, times(5)).executeInSession(failingRead);
+        verify(operations, times(5)).executeInSession(read);
+        assertThat(warmup.isReady(), is(true));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    @SuppressWarnings("unchecked")
+    public void start_WithFailingReadAndFailOnError_Throws() {
+        MarklogicSessionCallback<Object> failingRead = mock(MarklogicSessionCallback.class);
+        when(operations.executeInSession(failingRead)).thenThrow(new IllegalStateException("failure"));
+        MarklogicWarmup warmup = new MarklogicWarmup(contentSource, operations, Collections.emptySet());
+        warmup.setFailOnError(true);
+        warmup.addRead(failingRead);
+
+        warmup.start();
+    }
+
+    @Test
+    public void start_WithSessionFailure_StillReportsReady() throws Exception {
+        when(contentSource.newSession()).thenThrow(new IllegalStateException("unreachable"));
+        MarklogicWarmup warmup = new MarklogicWarmup(contentSource, operations, Collections.emptySet());
+
+        warmup.start();
+
+        assertThat(warmup.isReady(), is(true));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void start_WithSessionFailureAndFailOnError_Throws() throws Exception {
+        when(contentSource.newSession()).thenThrow(new IllegalStateException("unreachable"));
+        MarklogicWarmup warmup = new MarklogicWarmup(contentSource, operations, Collections.emptySet());
+        warmup.setFailOnError(true);
+
+        warmup.start();
+    }
+
+    @Test
+    public void start_WhenDisabled_DoesNotTouchTheContentSource() {
+        MarklogicWarmup warmup = new MarklogicWarmup(contentSource, operations, Collections.emptySet());
+        warmup.setEnabled(false);
+
+        warmup.start();
+
+        verify(contentSource, never()).newSession();
+        assertThat(warmup.isReady(), is(true));
+    }
+
+}
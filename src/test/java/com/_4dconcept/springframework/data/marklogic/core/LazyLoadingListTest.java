@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+/**
+ * Unit test for {@link LazyLoadingList}.
+ *
+ * @author Stéphane Toussaint
+ */
+public class LazyLoadingListTest {
+
+    @Test
+    public void nothingIsLoadedBeforeFirstAccess() {
+        CountingLoader loader = new CountingLoader(10);
+        new LazyLoadingList<>(loader, 0);
+
+        assertThat(loader.calls, is(0));
+    }
+
+    @Test
+    public void loadAllElementsOnFirstAccessWithoutPageSize() {
+        CountingLoader loader = new CountingLoader(10);
+        LazyLoadingList<String> list = new LazyLoadingList<>(loader, 0);
+
+        assertThat(list.size(), is(10));
+        assertThat(list.get(9), is("item9"));
+        assertThat(list.isLoaded(), is(true));
+        assertThat(loader.calls, is(1));
+    }
+
+    @Test
+    public void loadRequestedPageOnly() {
+        CountingLoader loader = new CountingLoader(10);
+        LazyLoadingList<String> list = new LazyLoadingList<>(loader, 4);
+
+        assertThat(list.get(5), is("item5"));
+        assertThat(list.get(6), is("item6"));
+        assertThat(list.isLoaded(), is(false));
+        assertThat(loader.requests, contains("count", "load(4,4)"));
+    }
+
+    @Test
+    public void iterateThroughAllPages() {
+        CountingLoader loader = new CountingLoader(5);
+        LazyLoadingList<String> list = new LazyLoadingList<>(loader, 2);
+
+        assertThat(new ArrayList<>(list), contains("item0", "item1", "item2", "item3", "item4"));
+        assertThat(loader.requests, contains("count", "load(0,2)", "load(2,2)", "load(4,2)"));
+    }
+
+    @Test
+    public void modificationLoadsWholeList() {
+        CountingLoader loader = new CountingLoader(3);
+        LazyLoadingList<String> list = new LazyLoadingList<>(loader, 2);
+
+        list.add("added");
+
+        assertThat(list.isLoaded(), is(true));
+        assertThat(list, contains("item0", "item1", "item2", "added"));
+        assertThat(loader.requests, contains("loadAll"));
+    }
+
+    private static class CountingLoader implements LazyLoadingList.Loader<String> {
+
+        private final List<String> elements;
+        private final List<String> requests = new ArrayList<>();
+        private int calls;
+
+        CountingLoader(int size) {
+            this.elements = IntStream.range(0, size).mapToObj(i -> "item" + i).collect(Collectors.toList());
+        }
+
+        @Override
+        public int count() {
+            record("count");
+            return elements.size();
+        }
+
+        @Override
+        public List<String> load(int offset, int length) {
+            record(String.format("load(%d,%d)", offset, length));
+            return elements.subList(offset, Math.min(offset + length, elements.size()));
+        }
+
+        @Override
+        public List<String> loadAll() {
+            record("loadAll");
+            return Arrays.asList(elements.toArray(new String[0]));
+        }
+
+        private void record(String request) {
+            calls++;
+            requests.add(request);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core;
+
+import com.marklogic.xcc.SecurityOptions;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the TLS connection setup with the security options of {@link MarklogicFactoryBean}, comparing full
+ * handshakes with resumed sessions. Not part of the test suite, run it through its main method against an
+ * {@code xccs} server :
+ * <pre>
+ * java -cp build/classes/java/test:build/classes/java/main:... com._4dconcept.springframework.data.marklogic.core.MarklogicFactoryBeanTlsBenchmark host port [trustAll]
+ * </pre>
+ *
+ * @author Stéphane Toussaint
+ */
+public class MarklogicFactoryBeanTlsBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 200;
+
+    private final String host;
+    private final int port;
+    private final SSLSocketFactory socketFactory;
+
+    private MarklogicFactoryBeanTlsBenchmark(String host, int port, SecurityOptions securityOptions) {
+        this.host = host;
+        this.port = port;
+        this.socketFactory = securityOptions.getSslContext().getSocketFactory();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage : MarklogicFactoryBeanTlsBenchmark host port [trustAll]");
+            return;
+        }
+
+        MarklogicFactoryBean factoryBean = new MarklogicFactoryBean();
+        factoryBean.setTrustAll(args.length > 2 && Boolean.parseBoolean(args[2]));
+        MarklogicFactoryBeanTlsBenchmark benchmark = new MarklogicFactoryBeanTlsBenchmark(args[0], Integer.parseInt(args[1]),
+                factoryBean.createSecurityOptions());
+
+        benchmark.measure("Full handshake", false);
+        benchmark.measure("Resumed session", true);
+    }
+
+    private void measure(String name, boolean resume) throws IOException {
+        run(WARMUP_ITERATIONS, resume);
+        long start = System.nanoTime();
+        int checksum = run(MEASURED_ITERATIONS, resume);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%s : %d connections in %d ms (%d us/connection, checksum %d)%n", name, MEASURED_ITERATIONS,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), TimeUnit.NANOSECONDS.toMicros(elapsed / MEASURED_ITERATIONS), checksum);
+    }
+
+    private int run(int iterations, boolean resume) throws IOException {
+        int checksum = 0;
+        for (int i = 0; i < iterations; i++) {
+            try (SSLSocket socket = (SSLSocket) socketFactory.createSocket(host, port)) {
+                socket.startHandshake();
+                checksum += socket.getSession().getCipherSuite().length();
+                if (!resume) {
+                    // An invalidated session is not offered for resumption by the next connection
+                    socket.getSession().invalidate();
+                }
+            }
+        }
+        return checksum;
+    }
+}
@@ -20,6 +20,9 @@ import com._4dconcept.springframework.data.marklogic.core.convert.MappingMarklog
 import com._4dconcept.springframework.data.marklogic.core.convert.MarklogicContentHolder;
 import com._4dconcept.springframework.data.marklogic.core.convert.MarklogicConverter;
 import com._4dconcept.springframework.data.marklogic.core.mapping.BasicMarklogicPersistentEntity;
+import com._4dconcept.springframework.data.marklogic.core.mapping.ContentFormat;
+import com._4dconcept.springframework.data.marklogic.core.mapping.Document;
+import com._4dconcept.springframework.data.marklogic.core.mapping.LazyLoading;
 import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicMappingContext;
 import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentProperty;
 import com._4dconcept.springframework.data.marklogic.core.mapping.event.AfterDeleteEvent;
@@ -27,7 +30,10 @@ import com._4dconcept.springframework.data.marklogic.core.mapping.event.AfterRet
 import com._4dconcept.springframework.data.marklogic.core.mapping.event.BeforeDeleteEvent;
 import com._4dconcept.springframework.data.marklogic.core.query.Criteria;
 import com._4dconcept.springframework.data.marklogic.core.query.Query;
+import com._4dconcept.springframework.data.marklogic.datasource.ContentSourceUtils;
+import com._4dconcept.springframework.data.marklogic.datasource.SessionHolder;
 import com.marklogic.xcc.*;
+import com.marklogic.xcc.exceptions.RequestException;
 import com.marklogic.xcc.impl.AdhocImpl;
 import com.marklogic.xcc.impl.ResultItemImpl;
 import com.marklogic.xcc.types.impl.XsStringImpl;
@@ -44,15 +50,23 @@ import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.convert.ConverterNotFoundException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.lang.Nullable;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.xml.namespace.QName;
 import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.Is.is;
@@ -197,6 +211,112 @@ public class MarklogicTemplateTest {
         assertThat(toString(contentArgumentCaptor.getValue().openDataStream()), CoreMatchers.equalTo(SAMPLE_CONTENT));
     }
 
+    @Test
+    public void saveAllChunkedCommitsEachChunkInItsOwnTransaction() throws Exception {
+        when(conversionService.convert(any(UUID.class), eq(String.class))).thenReturn("generatedId");
+        doAnswer(invocationOnMock -> {
+            MarklogicContentHolder holder = invocationOnMock.getArgument(1);
+            holder.setContent("<simpleEntity/>");
+            return null;
+        }).when(marklogicConverter).write(Mockito.any(SimpleEntity.class), Mockito.any(MarklogicContentHolder.class));
+
+        List<MarklogicChunkOutcome> notifiedOutcomes = new ArrayList<>();
+        MarklogicTemplate template = new MarklogicTemplate(contentSource, marklogicConverter);
+        template.setMarklogicCollectionUtils(marklogicCollectionUtils);
+        MarklogicChunkedResult result = template.saveAllChunked(simpleEntities(5), 2, new MarklogicCommitPolicy() {
+            @Override
+            public void onChunk(MarklogicChunkOutcome outcome) {
+                notifiedOutcomes.add(outcome);
+            }
+        });
+
+        assertThat(result.isSuccessful(), is(true));
+        assertThat(result.getOutcomes().size(), is(3));
+        assertThat(result.getCheckpoint(), is(5L));
+        assertThat(notifiedOutcomes, is(result.getOutcomes()));
+        verify(session, times(3)).setTransactionMode(Session.TransactionMode.UPDATE);
+        verify(session, times(5)).insertContent(any(Content.class));
+        verify(session, times(3)).commit();
+        verify(session, times(3)).close();
+    }
+
+    @Test
+    public void saveAllChunkedSuspendsOngoingTransaction() throws Exception {
+        when(conversionService.convert(any(UUID.class), eq(String.class))).thenReturn("generatedId");
+        List<Boolean> readOnlyFlags = new ArrayList<>();
+        doAnswer(invocationOnMock -> {
+            readOnlyFlags.add(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            MarklogicContentHolder holder = invocationOnMock.getArgument(1);
+            holder.setContent("<simpleEntity/>");
+            return null;
+        }).when(marklogicConverter).write(Mockito.any(SimpleEntity.class), Mockito.any(MarklogicContentHolder.class));
+
+        Session outerSession = mock(Session.class);
+        SessionHolder outerHolder = new SessionHolder(outerSession, true);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        TransactionSynchronizationManager.bindResource(contentSource, outerHolder);
+        try {
+            MarklogicTemplate template = new MarklogicTemplate(contentSource, marklogicConverter);
+            template.setMarklogicCollectionUtils(marklogicCollectionUtils);
+            MarklogicChunkedResult result = template.saveAllChunked(simpleEntities(3), 2, new MarklogicCommitPolicy() {});
+
+            assertThat(result.isSuccessful(), is(true));
+            assertThat(readOnlyFlags, is(Arrays.asList(false, false, false)));
+            assertThat(TransactionSynchronizationManager.getResource(contentSource), is(outerHolder));
+            assertThat(TransactionSynchronizationManager.isCurrentTransactionReadOnly(), is(true));
+            assertThat(TransactionSynchronizationManager.isActualTransactionActive(), is(true));
+        } finally {
+            TransactionSynchronizationManager.unbindResource(contentSource);
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+
+        verify(session, times(3)).insertContent(any(Content.class));
+        verify(session, times(2)).commit();
+        verify(outerSession, never()).insertContent(any(Content.class));
+        verify(outerSession, never()).commit();
+    }
+
+    @Test
+    public void saveAllChunkedStopsAtFailedChunkAndResumesFromCheckpoint() throws Exception {
+        when(conversionService.convert(any(UUID.class), eq(String.class))).thenReturn("generatedId");
+        doAnswer(invocationOnMock -> {
+            MarklogicContentHolder holder = invocationOnMock.getArgument(1);
+            holder.setContent("<simpleEntity/>");
+            return null;
+        }).when(marklogicConverter).write(Mockito.any(SimpleEntity.class), Mockito.any(MarklogicContentHolder.class));
+        doNothing().doNothing().doThrow(new RequestException("Insertion failure", null))
+                .when(session).insertContent(any(Content.class));
+
+        MarklogicTemplate template = new MarklogicTemplate(contentSource, marklogicConverter);
+        template.setMarklogicCollectionUtils(marklogicCollectionUtils);
+        MarklogicChunkedResult result = template.saveAllChunked(simpleEntities(5), 2, new MarklogicCommitPolicy() {});
+
+        assertThat(result.isSuccessful(), is(false));
+        assertThat(result.getOutcomes().size(), is(2));
+        assertThat(result.getCommittedCount(), is(2L));
+        assertThat(result.getCheckpoint(), is(2L));
+        verify(session, times(1)).commit();
+        verify(session, times(1)).rollback();
+
+        reset(session);
+        when(contentSource.newSession()).thenReturn(session);
+        MarklogicChunkedResult resumed = template.saveAllChunked(simpleEntities(5), 2, new MarklogicCommitPolicy() {
+            @Override
+            public long resumeFrom() {
+                return result.getCheckpoint();
+            }
+        });
+
+        assertThat(resumed.isSuccessful(), is(true));
+        assertThat(resumed.getCommittedCount(), is(3L));
+        assertThat(resumed.getCheckpoint(), is(5L));
+        verify(session, times(3)).insertContent(any(Content.class));
+    }
+
     @Test
     public void removeEntity() {
         final String contentUri = "/test/entity/1.xml";
@@ -251,6 +371,220 @@ public class MarklogicTemplateTest {
         assertThat(queryArgumentCaptor.getValue(), is("cts:search(fn:collection(), cts:element-value-query(fn:QName('', 'name'), 'test'), ())"));
     }
 
+    @Test
+    public void findByQueryAppliesTimeoutToRequestOptions() {
+        AdhocImpl request = new AdhocImpl(null, null, new RequestOptions());
+        when(session.newAdhocQuery(anyString())).thenReturn(request);
+
+        MarklogicTemplate template = new MarklogicTemplate(contentSource);
+        Query query = new Query();
+        query.setTimeout(Duration.ofSeconds(5));
+
+        template.find(query, SimpleEntity.class);
+
+        assertThat(request.getOptions().getRequestTimeLimit(), is(5));
+        assertTrue(request.getOptions().getTimeoutMillis() > 0 && request.getOptions().getTimeoutMillis() <= 5000);
+    }
+
+    @Test
+    public void findByQueryAppliesRequestTuningOptions() {
+        AdhocImpl request = new AdhocImpl(null, null, new RequestOptions());
+        when(session.newAdhocQuery(anyString())).thenReturn(request);
+
+        MarklogicTemplate template = new MarklogicTemplate(contentSource);
+        Query query = new Query();
+        query.setResultBufferSize(1 << 20);
+        query.setMaxAutoRetry(0);
+        query.setEffectivePointInTime(BigInteger.TEN);
+
+        template.find(query, SimpleEntity.class);
+
+        assertThat(request.getOptions().getResultBufferSize(), is(1 << 20));
+        assertThat(request.getOptions().getMaxAutoRetry(), is(0));
+        assertThat(request.getOptions().getEffectivePointInTime(), is(BigInteger.TEN));
+        assertThat(request.getOptions().getCacheResult(), is(false));
+    }
+
+    @Test
+    public void findByQueryAppliesCacheResultAndXQueryVersion() {
+        AdhocImpl request = new AdhocImpl(null, null, new RequestOptions());
+        when(session.newAdhocQuery(anyString())).thenReturn(request);
+
+        MarklogicTemplate template = new MarklogicTemplate(contentSource);
+        Query query = new Query();
+        query.setCacheResult(true);
+        query.setDefaultXQueryVersion("1.0-ml");
+
+        template.find(query, SimpleEntity.class);
+
+        assertThat(request.getOptions().getCacheResult(), is(true));
+        assertThat(request.getOptions().getDefaultXQueryVersion(), is("1.0-ml"));
+    }
+
+    @Test
+    public void invokeAdhocQueryAppliesDefaultXQueryVersion() {
+        AdhocImpl request = new AdhocImpl(null, null, new RequestOptions());
+        when(session.newAdhocQuery(anyString())).thenReturn(request);
+
+        MarklogicTemplate template = new MarklogicTemplate(contentSource);
+        template.invokeAdhocQuery("1", new MarklogicInvokeOperationOptions() {
+            @Override
+            public String defaultXQueryVersion() {
+                return "1.0-ml";
+            }
+        });
+
+        assertThat(request.getOptions().getDefaultXQueryVersion(), is("1.0-ml"));
+    }
+
+    @Test
+    public void executeAsyncRunsOperationsWithinOneSessionOnTheExecutor() throws Exception {
+        when(session.newAdhocQuery(anyString())).thenAnswer(invocation -> new AdhocImpl(session, null, new RequestOptions()));
+        List<Runnable> tasks = new ArrayList<>();
+
+        MarklogicTemplate template = new MarklogicTemplate(contentSource);
+        template.setAsyncExecutor(tasks::add);
+
+        CompletableFuture<Integer> future = template.executeAsync(operations -> {
+            operations.find(new Query(), SimpleEntity.class);
+            return operations.find(new Query(), SimpleEntity.class).size();
+        });
+
+        assertThat(tasks.size(), is(1));
+        tasks.get(0).run();
+
+        assertThat(future.get(), is(0));
+        verify(contentSource, times(1)).newSession();
+        verify(session, times(1)).close();
+    }
+
+    @Test(expected = QueryTimeoutException.class)
+    public void findByQueryWithExpiredDeadlineIsNotSubmitted() throws Exception {
+        when(session.newAdhocQuery(anyString())).thenReturn(new AdhocImpl(null, null, new RequestOptions()));
+
+        MarklogicTemplate template = new MarklogicTemplate(contentSource);
+        template.setDefaultTimeout(Duration.ZERO);
+
+        try {
+            template.find(new Query(), SimpleEntity.class);
+        } finally {
+            verify(session, never()).submitRequest(any(Request.class));
+        }
+    }
+
+    @Test
+    public void insertionAppliesTimeoutToSessionRequestOptions() throws Exception {
+        doAnswer(invocationOnMock -> {
+            MarklogicContentHolder holder = invocationOnMock.getArgument(1);
+            holder.setContent("<simpleEntity><id>1</id><name>entity</name></simpleEntity>");
+            return null;
+        }).when(marklogicConverter).write(Mockito.any(SimpleEntity.class), Mockito.any(MarklogicContentHolder.class));
+
+        RequestOptions defaultOptions = new RequestOptions();
+        int previousTimeoutMillis = defaultOptions.getTimeoutMillis();
+        when(session.getDefaultRequestOptions()).thenReturn(defaultOptions);
+        List<Integer> insertionTimeouts = new ArrayList<>();
+        doAnswer(invocationOnMock -> {
+            insertionTimeouts.add(defaultOptions.getTimeoutMillis());
+            return null;
+        }).when(session).insertContent(any(Content.class));
+
+        MarklogicTemplate template = new MarklogicTemplate(contentSource, marklogicConverter);
+        template.setMarklogicCollectionUtils(marklogicCollectionUtils);
+        template.insert(new SimpleEntity(null, "entity"), new MarklogicCreateOperationOptions() {
+            @Override
+            public String uri() {
+                return "/test/entity/1.xml";
+            }
+
+            @Override
+            public String[] extraCollections() {
+                return null;
+            }
+
+            @Override
+            public Duration timeout() {
+                return Duration.ofSeconds(5);
+            }
+        });
+
+        assertThat(insertionTimeouts.size(), is(1));
+        assertTrue(insertionTimeouts.get(0) > 0 && insertionTimeouts.get(0) <= 5000);
+        assertThat(defaultOptions.getTimeoutMillis(), is(previousTimeoutMillis));
+        verify(session, times(2)).setDefaultRequestOptions(defaultOptions);
+    }
+
+    @Test
+    public void removeAllAppliesTimeoutToRequestOptions() {
+        AdhocImpl request = new AdhocImpl(null, null, new RequestOptions());
+        when(session.newAdhocQuery(anyString())).thenReturn(request);
+
+        MarklogicTemplate template = new MarklogicTemplate(contentSource);
+        template.removeAll(SimpleEntity.class, new MarklogicOperationOptions() {
+            @Override
+            public String defaultCollection() {
+                return "test";
+            }
+
+            @Override
+            public Duration timeout() {
+                return Duration.ofSeconds(5);
+            }
+        });
+
+        assertThat(request.getOptions().getRequestTimeLimit(), is(5));
+    }
+
+    @Test
+    public void removeByIdLooksUpTheEntityWithinTheRemovalDeadline() throws Exception {
+        MarklogicTemplate template = spy(new MarklogicTemplate(contentSource));
+        doReturn(null).when(template).findById(eq("1"), eq(SimpleEntity.class), any(MarklogicOperationOptions.class));
+
+        template.remove("1", SimpleEntity.class, new MarklogicOperationOptions() {
+            @Override
+            public Duration timeout() {
+                return Duration.ofSeconds(5);
+            }
+        });
+
+        ArgumentCaptor<MarklogicOperationOptions> optionsCaptor = ArgumentCaptor.forClass(MarklogicOperationOptions.class);
+        verify(template).findById(eq("1"), eq(SimpleEntity.class), optionsCaptor.capture());
+        Thread.sleep(20);
+        assertTrue(optionsCaptor.getValue().timeout().compareTo(Duration.ofSeconds(5)) < 0);
+    }
+
+    @Test
+    public void removeAllIsSubmittedAsWrite() throws Exception {
+        AdhocImpl request = new AdhocImpl(null, null, new RequestOptions());
+        when(session.newAdhocQuery(anyString())).thenReturn(request);
+        List<Boolean> writeRequested = new ArrayList<>();
+        when(session.submitRequest(any(Request.class))).thenAnswer(invocationOnMock -> {
+            writeRequested.add(ContentSourceUtils.isWriteRequested());
+            return resultSequence;
+        });
+
+        MarklogicTemplate template = new MarklogicTemplate(contentSource);
+        template.removeAll(SimpleEntity.class, new MarklogicOperationOptions() {
+            @Override
+            public String defaultCollection() {
+                return "test";
+            }
+        });
+
+        assertThat(writeRequested, is(Arrays.asList(true)));
+        assertThat(ContentSourceUtils.isWriteRequested(), is(false));
+    }
+
+    @Test(expected = QueryTimeoutException.class)
+    public void requestTimeoutIsTranslatedToQueryTimeoutException() throws Exception {
+        AdhocImpl request = new AdhocImpl(null, null, new RequestOptions());
+        when(session.newAdhocQuery(anyString())).thenReturn(request);
+        when(session.submitRequest(any(Request.class))).thenThrow(new RequestException("Read timed out", request, new SocketTimeoutException()));
+
+        MarklogicTemplate template = new MarklogicTemplate(contentSource);
+        template.find(new Query(), SimpleEntity.class);
+    }
+
     @Test
     public void findById_EnsureExactMatch() {
         when(session.newAdhocQuery(anyString())).thenReturn(new AdhocImpl(null, null, new RequestOptions()));
@@ -262,6 +596,67 @@ public class MarklogicTemplateTest {
         assertThat(queryArgumentCaptor.getValue(), is("cts:search(fn:collection(), cts:element-value-query(fn:QName('', 'id'), '1', ('exact')), ())"));
     }
 
+    @Test
+    public void insertionOfBinaryEntityUsesBinaryFormat() throws Exception {
+        doAnswer(invocationOnMock -> {
+            MarklogicContentHolder holder = invocationOnMock.getArgument(1);
+            holder.setContent(new byte[] {1, 2, 3});
+            return null;
+        }).when(marklogicConverter).write(Mockito.any(BinaryEntity.class), Mockito.any(MarklogicContentHolder.class));
+
+        MarklogicTemplate template = new MarklogicTemplate(contentSource, marklogicConverter);
+        template.setMarklogicCollectionUtils(marklogicCollectionUtils);
+        template.insert(new BinaryEntity("1"));
+        verify(session).insertContent(contentArgumentCaptor.capture());
+
+        assertThat(contentArgumentCaptor.getValue().getUri(), CoreMatchers.equalTo("/content/binaryentity/1.bin"));
+        assertThat(contentArgumentCaptor.getValue().getCreateOptions().getFormat(), CoreMatchers.equalTo(DocumentFormat.BINARY));
+    }
+
+    @Test
+    public void findById_OfBinaryEntityFetchesDocumentByUri() {
+        AdhocImpl request = new AdhocImpl(null, null, new RequestOptions());
+        when(session.newAdhocQuery(anyString())).thenReturn(request);
+        MarklogicTemplate template = new MarklogicTemplate(contentSource);
+
+        template.findById("1", BinaryEntity.class);
+
+        verify(session).newAdhocQuery(queryArgumentCaptor.capture());
+        assertThat(queryArgumentCaptor.getValue(), is("declare variable $uri as xs:string external; fn:doc($uri)"));
+        assertThat(request.getVariables().length, is(1));
+        assertThat(request.getVariables()[0].getName().getLocalname(), is("uri"));
+        assertThat(request.getVariables()[0].getValue().asString(), is("/content/binaryentity/1.bin"));
+    }
+
+    @Test
+    public void findById_OfEntityWithLazyPropertyExcludesLazySubtree() {
+        when(session.newAdhocQuery(anyString())).thenReturn(new AdhocImpl(null, null, new RequestOptions()));
+        MarklogicTemplate template = new MarklogicTemplate(contentSource);
+
+        template.findById("1", LazyEntity.class);
+
+        verify(session).newAdhocQuery(queryArgumentCaptor.capture());
+        assertThat(queryArgumentCaptor.getValue(), is("for $d in cts:search(fn:collection(), cts:element-value-query(fn:QName('', 'id'), '1', ('exact')), ()) " +
+                "return (xdmp:node-uri($d), element { fn:node-name($d/*) } { $d/*/@*, $d/*/node()[fn:not(fn:node-name(.) = (fn:QName('', 'lines')))] })"));
+    }
+
+    @Test
+    public void findById_OfTargetEntityWithLazyPropertyExcludesLazySubtree() {
+        when(session.newAdhocQuery(anyString())).thenReturn(new AdhocImpl(null, null, new RequestOptions()));
+        MarklogicTemplate template = new MarklogicTemplate(contentSource);
+
+        template.findById("1", Object.class, new MarklogicOperationOptions() {
+            @Override
+            public Class<?> entityClass() {
+                return LazyEntity.class;
+            }
+        });
+
+        verify(session).newAdhocQuery(queryArgumentCaptor.capture());
+        assertThat(queryArgumentCaptor.getValue(), is("for $d in cts:search(fn:collection(), cts:element-value-query(fn:QName('', 'id'), '1', ('exact')), ()) " +
+                "return (xdmp:node-uri($d), element { fn:node-name($d/*) } { $d/*/@*, $d/*/node()[fn:not(fn:node-name(.) = (fn:QName('', 'lines')))] })"));
+    }
+
     static class SimpleEntity {
 
         @Nullable String id;
@@ -288,6 +683,24 @@ public class MarklogicTemplateTest {
         }
     }
 
+    @Document(format = ContentFormat.BINARY)
+    static class BinaryEntity {
+
+        String id;
+
+        BinaryEntity(String id) {
+            this.id = id;
+        }
+    }
+
+    static class LazyEntity {
+
+        String id;
+
+        @LazyLoading
+        List<String> lines;
+    }
+
     static class NonAnnotatedEntity {
         String id;
         String name;
@@ -302,6 +715,14 @@ public class MarklogicTemplateTest {
         return new Scanner(input).useDelimiter("\\Z").next();
     }
 
+    private List<SimpleEntity> simpleEntities(int count) {
+        List<SimpleEntity> entities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entities.add(new SimpleEntity(null, "entity" + i));
+        }
+        return entities;
+    }
+
     private MarklogicCreateOperationOptions buildCreateOperationOptions() {
         return new MarklogicCreateOperationOptions() {
             @Override
@@ -0,0 +1,214 @@
+package com._4dconcept.springframework.data.marklogic.core;
+
+import com._4dconcept.springframework.data.marklogic.core.MarklogicTemplateTest.SimpleEntity;
+import com._4dconcept.springframework.data.marklogic.core.convert.MarklogicContentHolder;
+import com._4dconcept.springframework.data.marklogic.core.convert.MarklogicConverter;
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicMappingContext;
+import com._4dconcept.springframework.data.marklogic.core.query.Query;
+import com._4dconcept.springframework.data.marklogic.core.query.SortCriteria;
+import com._4dconcept.springframework.data.marklogic.datasource.SessionHolder;
+import com._4dconcept.springframework.data.marklogic.datasource.lookup.ShardedContentSource;
+import com.marklogic.xcc.Content;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Request;
+import com.marklogic.xcc.RequestOptions;
+import com.marklogic.xcc.ResultItem;
+import com.marklogic.xcc.ResultSequence;
+import com.marklogic.xcc.Session;
+import com.marklogic.xcc.impl.AdhocImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.xml.namespace.QName;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ShardedMarklogicTemplateTest {
+
+    private final Map<String, Session> sessions = new LinkedHashMap<>();
+    private final Map<ResultItem, SimpleEntity> storedEntities = new HashMap<>();
+    private ShardedContentSource contentSource;
+    private ShardedMarklogicTemplate template;
+
+    @Before
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void setUp() throws Exception {
+        Map<String, ContentSource> shards = new LinkedHashMap<>();
+        for (String shard : new String[] { "shard-1", "shard-2" }) {
+            Session session = mock(Session.class);
+            when(session.newAdhocQuery(anyString())).thenAnswer(invocation -> new AdhocImpl(session, invocation.getArgument(0), new RequestOptions()));
+            ContentSource shardContentSource = mock(ContentSource.class);
+            when(shardContentSource.newSession()).thenReturn(session);
+            sessions.put(shard, session);
+            shards.put(shard, shardContentSource);
+        }
+
+        contentSource = new ShardedContentSource();
+        contentSource.setShards(shards);
+        contentSource.afterPropertiesSet();
+
+        MarklogicConverter converter = mock(MarklogicConverter.class);
+        when(converter.getMappingContext()).thenReturn((MappingContext) new MarklogicMappingContext());
+        when(converter.read(eq(SimpleEntity.class), any(MarklogicContentHolder.class)))
+                .thenAnswer(invocation -> storedEntities.get(((MarklogicContentHolder) invocation.getArgument(1)).getContent()));
+        doAnswer(invocation -> {
+            MarklogicContentHolder holder = invocation.getArgument(1);
+            holder.setContent("<simpleEntity/>");
+            return null;
+        }).when(converter).write(any(SimpleEntity.class), any(MarklogicContentHolder.class));
+
+        template = new ShardedMarklogicTemplate(contentSource, converter);
+        template.setScatterExecutor(Runnable::run);
+    }
+
+    @Test
+    public void insertIsRoutedToTheShardOfTheIdentifier() throws Exception {
+        template.insert(new SimpleEntity("42", "entity"));
+
+        String shard = contentSource.shardFor("42");
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (entry.getKey().equals(shard)) {
+                verify(entry.getValue()).insertContent(any(Content.class));
+            } else {
+                verify(entry.getValue(), never()).insertContent(any(Content.class));
+            }
+        }
+    }
+
+    @Test
+    public void insertWithinTransactionUsesTheSessionOfItsShard() throws Exception {
+        String shard = contentSource.shardFor("42");
+        Session boundSession = contentSource.doWithShard(shard, contentSource::newSession);
+
+        TransactionSynchronizationManager.bindResource(contentSource, new SessionHolder(boundSession));
+        try {
+            template.insert(new SimpleEntity("42", "entity"));
+        } finally {
+            TransactionSynchronizationManager.unbindResource(contentSource);
+        }
+
+        verify(sessions.get(shard)).insertContent(any(Content.class));
+    }
+
+    @Test
+    public void insertWithinTransactionOfAnotherShardIsRejected() throws Exception {
+        String shard = contentSource.shardFor("42");
+        String otherShard = contentSource.getShardNames().stream().filter(name -> !name.equals(shard)).findFirst().orElseThrow(IllegalStateException::new);
+        Session boundSession = contentSource.doWithShard(otherShard, contentSource::newSession);
+
+        TransactionSynchronizationManager.bindResource(contentSource, new SessionHolder(boundSession));
+        try {
+            template.insert(new SimpleEntity("42", "entity"));
+            fail("Should have thrown InvalidDataAccessApiUsageException");
+        } catch (InvalidDataAccessApiUsageException ex) {
+            // expected
+        } finally {
+            TransactionSynchronizationManager.unbindResource(contentSource);
+        }
+
+        for (Session session : sessions.values()) {
+            verify(session, never()).insertContent(any(Content.class));
+        }
+    }
+
+    @Test(expected = InvalidDataAccessApiUsageException.class)
+    public void operationOnEveryShardIsRejectedWithinTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            template.count(new Query());
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    @Test
+    public void findMergesSortedShardResultsBeforePaginating() throws Exception {
+        givenShardResults("shard-1", "a", "c", "e");
+        givenShardResults("shard-2", "b", "d");
+
+        Query query = new Query();
+        query.setSortCriteria(Collections.singletonList(new SortCriteria(new QName("", "name"))));
+        query.setSkip(1);
+        query.setLimit(3);
+
+        List<SimpleEntity> result = template.find(query, SimpleEntity.class);
+
+        assertThat(result.stream().map(entity -> entity.name).collect(Collectors.toList()), contains("b", "c", "d"));
+    }
+
+    @Test
+    public void findMergesDescendingShardResults() throws Exception {
+        givenShardResults("shard-1", "e", "c", "a");
+        givenShardResults("shard-2", "d", "b");
+
+        Query query = new Query();
+        query.setSortCriteria(Collections.singletonList(new SortCriteria(new QName("", "name"), true)));
+
+        List<SimpleEntity> result = template.find(query, SimpleEntity.class);
+
+        assertThat(result.stream().map(entity -> entity.name).collect(Collectors.toList()), contains("e", "d", "c", "b", "a"));
+    }
+
+    @Test
+    public void findMergesStringsInCollationOrder() throws Exception {
+        givenShardResults("shard-1", "a", "C");
+        givenShardResults("shard-2", "B", "d");
+
+        Query query = new Query();
+        query.setSortCriteria(Collections.singletonList(new SortCriteria(new QName("", "name"))));
+
+        List<SimpleEntity> result = template.find(query, SimpleEntity.class);
+
+        assertThat(result.stream().map(entity -> entity.name).collect(Collectors.toList()), contains("a", "B", "C", "d"));
+    }
+
+    @Test
+    public void findMergesStringsInCodepointOrder() throws Exception {
+        template.setStringCollation(ShardedMarklogicTemplate.CODEPOINT_COLLATION);
+        givenShardResults("shard-1", "B", "a");
+        givenShardResults("shard-2", "C", "d");
+
+        Query query = new Query();
+        query.setSortCriteria(Collections.singletonList(new SortCriteria(new QName("", "name"))));
+
+        List<SimpleEntity> result = template.find(query, SimpleEntity.class);
+
+        assertThat(result.stream().map(entity -> entity.name).collect(Collectors.toList()), contains("B", "C", "a", "d"));
+    }
+
+    private void givenShardResults(String shard, String... names) throws Exception {
+        List<ResultItem> items = Arrays.stream(names).map(name -> {
+            ResultItem item = mock(ResultItem.class);
+            storedEntities.put(item, new SimpleEntity(name, name));
+            return item;
+        }).collect(Collectors.toList());
+
+        ResultSequence resultSequence = mock(ResultSequence.class);
+        Iterator<ResultItem> iterator = items.iterator();
+        when(resultSequence.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(resultSequence.next()).thenAnswer(invocation -> iterator.next());
+        when(sessions.get(shard).submitRequest(any(Request.class))).thenReturn(resultSequence);
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.core;
+
+import com._4dconcept.springframework.data.marklogic.datasource.ConcurrencyLimitingContentSource;
+import com._4dconcept.springframework.data.marklogic.datasource.LazySessionContentSourceProxy;
+import com._4dconcept.springframework.data.marklogic.datasource.PooledContentSource;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.RequestOptions;
+import com.marklogic.xcc.ResultSequence;
+import com.marklogic.xcc.Session;
+import com.marklogic.xcc.impl.AdhocImpl;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Runs template operations on virtual threads, blocking in the target Sessions, and checks that no virtual thread
+ * gets pinned to its carrier thread. Needs Java 21 and the {@code jdk.tracePinnedThreads} system property set by the
+ * test task, skipped otherwise.
+ *
+ * @author Stéphane Toussaint
+ */
+public class VirtualThreadPinningTest {
+
+    private static final int TASKS = 200;
+
+    @Test
+    public void templateOperationsDoNotPinVirtualThreads() throws Exception {
+        Assume.assumeTrue("Virtual threads need Java 21", javaFeatureVersion() >= 21);
+        Assume.assumeTrue("Pinned threads are only traced with -Djdk.tracePinnedThreads",
+                System.getProperty("jdk.tracePinnedThreads") != null);
+
+        MarklogicTemplate template = new MarklogicTemplate(limitedContentSource(blockingContentSource()));
+
+        PrintStream standardOut = System.out;
+        ByteArrayOutputStream traces = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(traces, true));
+        try {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            try {
+                List<Future<?>> tasks = new ArrayList<>();
+                for (int i = 0; i < TASKS; i++) {
+                    tasks.add(executor.submit(() -> template.executeInSession(operations -> {
+                        operations.invokeAdhocQuery("fn:true()", new MarklogicInvokeOperationOptions() {});
+                        operations.invokeAdhocQuery("fn:false()", new MarklogicInvokeOperationOptions() {});
+                        return null;
+                    })));
+                }
+                for (Future<?> task : tasks) {
+                    task.get(30, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            System.setOut(standardOut);
+        }
+
+        // A pinned virtual thread prints its stack, flagging the frames holding a monitor
+        assertThat(traces.toString(), not(containsString("monitors:")));
+    }
+
+    private static ContentSource limitedContentSource(ContentSource targetContentSource) {
+        PooledContentSource pooledContentSource = new PooledContentSource();
+        pooledContentSource.setTargetContentSource(targetContentSource);
+        pooledContentSource.setMaxTotal(8);
+        pooledContentSource.setMaxWait(30000);
+        pooledContentSource.setEvictionInterval(0);
+        pooledContentSource.afterPropertiesSet();
+
+        LazySessionContentSourceProxy lazySessionContentSource = new LazySessionContentSourceProxy();
+        lazySessionContentSource.setTargetContentSource(pooledContentSource);
+        lazySessionContentSource.setDefaultTransactionMode(Session.TransactionMode.AUTO.toString());
+        lazySessionContentSource.afterPropertiesSet();
+
+        ConcurrencyLimitingContentSource concurrencyLimitingContentSource = new ConcurrencyLimitingContentSource(lazySessionContentSource);
+        concurrencyLimitingContentSource.setInitialReadLimit(16);
+        concurrencyLimitingContentSource.setMaxQueueSize(TASKS);
+        concurrencyLimitingContentSource.setMaxWait(30000);
+        concurrencyLimitingContentSource.afterPropertiesSet();
+        return concurrencyLimitingContentSource;
+    }
+
+    /**
+     * ContentSource of Sessions blocking for a while on each request. JDK proxies rather than mocks, so that no
+     * monitor of the mocking library is held while blocking.
+     */
+    private static ContentSource blockingContentSource() {
+        return (ContentSource) Proxy.newProxyInstance(ContentSource.class.getClassLoader(), new Class<?>[] {ContentSource.class},
+                (proxy, method, args) -> method.getName().startsWith("newSession") ? blockingSession() : defaultValue(method));
+    }
+
+    private static Session blockingSession() {
+        ResultSequence resultSequence = (ResultSequence) Proxy.newProxyInstance(ResultSequence.class.getClassLoader(),
+                new Class<?>[] {ResultSequence.class},
+                (proxy, method, args) -> closedResultValue(method));
+
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] {Session.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "submitRequest":
+                            Thread.sleep(5);
+                            return resultSequence;
+                        case "newAdhocQuery":
+                            return new AdhocImpl((Session) proxy, (String) args[0], new RequestOptions());
+                        case "getDefaultRequestOptions":
+                        case "getEffectiveRequestOptions":
+                            return new RequestOptions();
+                        case "getTransactionMode":
+                            return Session.TransactionMode.AUTO;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Blocking Session";
+                        default:
+                            return defaultValue(method);
+                    }
+                });
+    }
+
+    /**
+     * Values of a closed and cached ResultSequence, answering true to {@code isClosed} and {@code isCached}.
+     */
+    private static Object closedResultValue(Method method) {
+        return method.getReturnType() == boolean.class ? Boolean.TRUE : defaultValue(method);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (returnType == boolean.class) {
+            return Boolean.FALSE;
+        } else if (returnType == int.class) {
+            return 0;
+        } else if (returnType == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static int javaFeatureVersion() {
+        try {
+            // Runtime.version() only exists since Java 9
+            Object version = Runtime.class.getMethod("version").invoke(null);
+            return (Integer) version.getClass().getMethod("feature").invoke(version);
+        } catch (ReflectiveOperationException ex) {
+            return 8;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() throws ReflectiveOperationException {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+
+}
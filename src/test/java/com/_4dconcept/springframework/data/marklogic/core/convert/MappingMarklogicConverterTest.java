@@ -18,6 +18,8 @@ package com._4dconcept.springframework.data.marklogic.core.convert;
 import com._4dconcept.springframework.data.marklogic.core.mapping.Collection;
 import com._4dconcept.springframework.data.marklogic.core.mapping.Document;
 import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicMappingContext;
+import com.marklogic.xcc.types.XdmSequence;
+import com.marklogic.xcc.types.XdmValue;
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
 import org.springframework.core.convert.ConverterNotFoundException;
@@ -60,6 +62,26 @@ public class MappingMarklogicConverterTest {
         assertThat(contentHolder.getContent(), CoreMatchers.is("<person><id>1</id></person>"));
     }
 
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void collectionParameterConvertedToSequence() {
+        MappingMarklogicConverter mappingMarklogicConverter = createConverterWithDelegates();
+
+        XdmValue value = mappingMarklogicConverter.getConversionService().convert(Arrays.asList("test1", null, "test2"), XdmValue.class);
+        assertThat(value, CoreMatchers.instanceOf(XdmSequence.class));
+        assertThat(((XdmSequence) value).size(), CoreMatchers.is(2));
+    }
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void emptyCollectionParameterConvertedToEmptySequence() {
+        MappingMarklogicConverter mappingMarklogicConverter = createConverterWithDelegates();
+
+        XdmValue value = mappingMarklogicConverter.getConversionService().convert(Collections.emptyList(), XdmValue.class);
+        assertThat(value, CoreMatchers.instanceOf(XdmSequence.class));
+        assertThat(((XdmSequence) value).isEmpty(), CoreMatchers.is(true));
+    }
+
     static class UnConvertibleObject {}
 
     static class ConvertibleObject {}
@@ -0,0 +1,171 @@
+package com._4dconcept.springframework.data.marklogic.core.hedge;
+
+import com._4dconcept.springframework.data.marklogic.datasource.ContentSourceUtils;
+import com._4dconcept.springframework.data.marklogic.datasource.DelegatingContentSource;
+import com._4dconcept.springframework.data.marklogic.datasource.LazySessionContentSourceProxy;
+import com._4dconcept.springframework.data.marklogic.datasource.PooledContentSource;
+import com._4dconcept.springframework.data.marklogic.datasource.lookup.LoadBalancingContentSource;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MarklogicHedgingPolicyTest {
+
+    private Session session1;
+    private Session session2;
+    private ContentSource host2;
+    private LoadBalancingContentSource contentSource;
+    private MarklogicHedgingPolicy hedgingPolicy;
+
+    @Before
+    public void setUp() {
+        session1 = mock(Session.class);
+        session2 = mock(Session.class);
+        ContentSource host1 = mock(ContentSource.class);
+        host2 = mock(ContentSource.class);
+        when(host1.newSession()).thenReturn(session1);
+        when(host2.newSession()).thenReturn(session2);
+
+        contentSource = new LoadBalancingContentSource();
+        contentSource.setHosts(Arrays.asList(host1, host2));
+        contentSource.setHealthCheckInterval(0);
+        contentSource.afterPropertiesSet();
+
+        hedgingPolicy = new MarklogicHedgingPolicy(contentSource);
+        hedgingPolicy.setMinDelay(10);
+        hedgingPolicy.setMaxDelay(10);
+    }
+
+    @After
+    public void tearDown() {
+        hedgingPolicy.destroy();
+        contentSource.destroy();
+    }
+
+    @Test
+    public void slowReadIsHedgedOnAnotherHost() {
+        String result = hedgingPolicy.execute(slowOnFirstHost(5000));
+
+        assertThat(result, is("host-1"));
+        assertThat(hedgingPolicy.getHedgeCount(), is(1L));
+        assertThat(hedgingPolicy.getHedgeWinCount(), is(1L));
+        verify(session1, timeout(1000)).close();
+        verify(session2, timeout(1000)).close();
+    }
+
+    @Test
+    public void fastReadIsNotHedged() {
+        hedgingPolicy.setMaxDelay(1000);
+
+        String result = hedgingPolicy.execute(slowOnFirstHost(0));
+
+        assertThat(result, is("host-0"));
+        assertThat(hedgingPolicy.getHedgeCount(), is(0L));
+        verify(host2, never()).newSession();
+    }
+
+    @Test
+    public void readRunsOnCallingThreadThroughTheGivenContentSource() {
+        hedgingPolicy.setMaxDelay(1000);
+        AtomicInteger wrapperSessions = new AtomicInteger();
+        ContentSource wrapper = new DelegatingContentSource(contentSource) {
+            @Override
+            public Session newSession() {
+                wrapperSessions.incrementAndGet();
+                return super.newSession();
+            }
+        };
+        Thread caller = Thread.currentThread();
+
+        Thread readThread = hedgingPolicy.execute(wrapper, session -> Thread.currentThread());
+
+        assertThat(readThread, is(caller));
+        assertThat(wrapperSessions.get(), is(1));
+        verify(session1, timeout(1000)).close();
+    }
+
+    @Test
+    public void lazySessionsAreRoutedToTheirTarget() {
+        LazySessionContentSourceProxy lazyContentSource = new LazySessionContentSourceProxy();
+        lazyContentSource.setTargetContentSource(contentSource);
+        lazyContentSource.setDefaultTransactionMode(Session.TransactionMode.AUTO.toString());
+        lazyContentSource.afterPropertiesSet();
+
+        String result = hedgingPolicy.execute(lazyContentSource, slowOnFirstHost(5000));
+
+        assertThat(result, is("host-1"));
+        assertThat(hedgingPolicy.getHedgeWinCount(), is(1L));
+        verify(session1, timeout(1000)).close();
+        verify(session2, timeout(1000)).close();
+    }
+
+    @Test
+    public void cancelledReadReleasesItsSessionOnItsOwnThread() {
+        Thread caller = Thread.currentThread();
+        AtomicReference<Thread> closingThread = new AtomicReference<>();
+        doAnswer(invocation -> {
+            closingThread.set(Thread.currentThread());
+            return null;
+        }).when(session1).close();
+
+        hedgingPolicy.execute(slowOnFirstHost(5000));
+
+        verify(session1, timeout(1000)).close();
+        assertThat(closingThread.get(), is(caller));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sessionPoolAboveRoutingContentSourceIsRejected() {
+        hedgingPolicy.checkContentSource(new PooledContentSource(contentSource));
+    }
+
+    @Test
+    public void contentSourceWrappingRoutingContentSourceIsAccepted() {
+        hedgingPolicy.checkContentSource(new DelegatingContentSource(contentSource) {});
+    }
+
+    @Test
+    public void hedgesAreBoundedByHedgeBudget() {
+        hedgingPolicy.setHedgeBudgetCapacity(0);
+
+        String result = hedgingPolicy.execute(slowOnFirstHost(100));
+
+        assertThat(result, is("host-0"));
+        assertThat(hedgingPolicy.getHedgeCount(), is(0L));
+        assertThat(hedgingPolicy.getBudgetRejectionCount(), is(1L));
+        verify(host2, never()).newSession();
+    }
+
+    private Function<Session, String> slowOnFirstHost(long latency) {
+        return session -> {
+            if (ContentSourceUtils.getTargetSession(session) == session2) {
+                return "host-1";
+            }
+
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Cancelled", ie);
+            }
+            return "host-0";
+        };
+    }
+
+}
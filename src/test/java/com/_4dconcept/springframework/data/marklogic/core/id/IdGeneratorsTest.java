@@ -0,0 +1,67 @@
+package com._4dconcept.springframework.data.marklogic.core.id;
+
+import com._4dconcept.springframework.data.marklogic.core.mapping.MarklogicPersistentEntity;
+import com.marklogic.xcc.ContentSource;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IdGeneratorsTest {
+
+    @Test
+    public void threadLocalRandomUuidIsVersion4() {
+        UUID uuid = (UUID) new ThreadLocalRandomUuidIdGenerator().generate(entityOf(Object.class));
+
+        assertThat(uuid.version(), is(4));
+        assertThat(uuid.variant(), is(2));
+    }
+
+    @Test
+    public void timeOrderedUuidIsVersion7AndSortedByTimestamp() {
+        TimeOrderedUuidIdGenerator generator = new TimeOrderedUuidIdGenerator();
+        UUID first = generator.generate(1500000000000L);
+        UUID second = generator.generate(1500000000001L);
+
+        assertThat(first.version(), is(7));
+        assertThat(first.variant(), is(2));
+        assertThat(first.getMostSignificantBits() >>> 16, is(1500000000000L));
+        assertThat(first.toString().compareTo(second.toString()), lessThan(0));
+    }
+
+    @Test
+    public void blockSequenceReservesOneBlockPerBlockSize() {
+        List<String> reservations = new ArrayList<>();
+        BlockSequenceIdGenerator generator = new BlockSequenceIdGenerator(mock(ContentSource.class), 3) {
+            @Override
+            protected long reserveBlock(String counterUri) {
+                reservations.add(counterUri);
+                return reservations.size() * 3L;
+            }
+        };
+
+        MarklogicPersistentEntity<?> entity = entityOf(String.class);
+        List<Object> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(generator.generate(entity));
+        }
+
+        assertThat(ids, contains(1L, 2L, 3L, 4L));
+        assertThat(reservations, contains("/spring-data-marklogic/sequences/java.lang.String.xml", "/spring-data-marklogic/sequences/java.lang.String.xml"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MarklogicPersistentEntity<?> entityOf(Class<?> type) {
+        MarklogicPersistentEntity entity = mock(MarklogicPersistentEntity.class);
+        when(entity.getType()).thenReturn(type);
+        return entity;
+    }
+}
@@ -18,6 +18,7 @@ package com._4dconcept.springframework.data.marklogic.core.mapping;
 import com._4dconcept.springframework.data.marklogic.core.mapping.namespaceaware.SuperType;
 import org.junit.Test;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mapping.MappingException;
 import org.springframework.data.mapping.model.Property;
 import org.springframework.data.mapping.model.SimpleTypeHolder;
 import org.springframework.data.util.ClassTypeInformation;
@@ -28,8 +29,11 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.namespace.QName;
 import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Set;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 /**
@@ -55,6 +59,37 @@ public class BasicMarklogicPersistentPropertyTest {
         checkPropertyQName("surname", "/test/classtype");
     }
 
+    @Test
+    public void qNameIsResolvedOnce() {
+        MarklogicPersistentProperty property = getPropertyFor(ImplType.class, "name");
+        assertThat(property.getQName(), sameInstance(property.getQName()));
+    }
+
+    @Test
+    public void lazyPropertyInformation() {
+        MarklogicPersistentProperty lines = getPropertyFor(Order.class, "lines");
+        assertThat(lines.isLazy(), is(true));
+        assertThat(lines.getLazyPageSize(), is(50));
+        assertThat(getPropertyFor(Order.class, "id").isLazy(), is(false));
+    }
+
+    @Test(expected = MappingException.class)
+    public void rejectsLazyPropertyNotAssignableFromList() {
+        getPropertyFor(InvalidOrder.class, "lines");
+    }
+
+    class Order {
+        String id;
+
+        @LazyLoading(pageSize = 50)
+        List<String> lines;
+    }
+
+    class InvalidOrder {
+        @LazyLoading
+        Set<String> lines;
+    }
+
     class Person {
         @Id
         String id;
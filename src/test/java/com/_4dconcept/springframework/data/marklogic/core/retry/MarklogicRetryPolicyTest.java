@@ -0,0 +1,118 @@
+package com._4dconcept.springframework.data.marklogic.core.retry;
+
+import com.marklogic.xcc.exceptions.ServerConnectionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataRetrievalFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+public class MarklogicRetryPolicyTest {
+
+    private MarklogicRetryPolicy retryPolicy;
+
+    @Before
+    public void setUp() {
+        retryPolicy = new MarklogicRetryPolicy();
+        retryPolicy.setInitialBackoff(0);
+    }
+
+    @Test
+    public void transientFailureIsRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retryPolicy.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw transientFailure();
+            }
+            return "done";
+        });
+
+        assertThat(result, is("done"));
+        assertThat(attempts.get(), is(3));
+        assertThat(retryPolicy.getRetryCount(), is(2L));
+        assertThat(retryPolicy.getRecoveryCount(), is(1L));
+    }
+
+    @Test
+    public void nonTransientFailureIsNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            retryPolicy.execute(() -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("boom");
+            });
+            fail("Should have thrown IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertThat(attempts.get(), is(1));
+        }
+    }
+
+    @Test
+    public void retriesAreBoundedByMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            retryPolicy.execute(() -> {
+                attempts.incrementAndGet();
+                throw transientFailure();
+            });
+            fail("Should have thrown DataRetrievalFailureException");
+        } catch (DataRetrievalFailureException ex) {
+            assertThat(attempts.get(), is(3));
+            assertThat(retryPolicy.getExhaustedCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void retriesAreBoundedByRetryBudget() {
+        retryPolicy.setRetryBudgetCapacity(1);
+        retryPolicy.setRetryBudgetRatio(0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            retryPolicy.execute(() -> {
+                attempts.incrementAndGet();
+                throw transientFailure();
+            });
+            fail("Should have thrown DataRetrievalFailureException");
+        } catch (DataRetrievalFailureException ex) {
+            assertThat(attempts.get(), is(2));
+            assertThat(retryPolicy.getBudgetRejectionCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void circuitBreakerOpensAfterConsecutiveFailures() {
+        retryPolicy.setMaxAttempts(1);
+        retryPolicy.setCircuitBreakerThreshold(2);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                retryPolicy.execute(() -> {
+                    throw transientFailure();
+                });
+                fail("Should have thrown DataRetrievalFailureException");
+            } catch (DataRetrievalFailureException ex) {
+                // expected
+            }
+        }
+
+        assertThat(retryPolicy.isCircuitOpen(), is(true));
+        try {
+            retryPolicy.execute(() -> "never");
+            fail("Should have thrown CircuitBreakerOpenException");
+        } catch (CircuitBreakerOpenException ex) {
+            assertThat(retryPolicy.getCircuitRejectionCount(), is(1L));
+        }
+    }
+
+    private static DataRetrievalFailureException transientFailure() {
+        return new DataRetrievalFailureException("Unable to submit request", new ServerConnectionException("down", null));
+    }
+}
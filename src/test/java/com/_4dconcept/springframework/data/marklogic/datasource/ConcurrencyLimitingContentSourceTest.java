@@ -0,0 +1,294 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import com.marklogic.xcc.Content;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Request;
+import com.marklogic.xcc.ResultSequence;
+import com.marklogic.xcc.Session;
+import com.marklogic.xcc.exceptions.RequestException;
+import com.marklogic.xcc.exceptions.ServerConnectionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Stéphane Toussaint
+ */
+public class ConcurrencyLimitingContentSourceTest {
+
+    private Session target;
+    private ConcurrencyLimitingContentSource contentSource;
+
+    @Before
+    public void setUp() {
+        target = mock(Session.class);
+        given(target.getTransactionMode()).willReturn(Session.TransactionMode.AUTO);
+        ContentSource targetContentSource = mock(ContentSource.class);
+        given(targetContentSource.newSession()).willReturn(target);
+
+        contentSource = new ConcurrencyLimitingContentSource(targetContentSource);
+        contentSource.setInitialReadLimit(1);
+        contentSource.setInitialWriteLimit(1);
+    }
+
+    @Test
+    public void requestBeyondLimitIsRejectedWhenQueueIsFull() throws Exception {
+        contentSource.setMaxQueueSize(0);
+        contentSource.afterPropertiesSet();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockRequests(running, release);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> blocked = executor.submit(() -> contentSource.newSession().submitRequest(mock(Request.class)));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            assertEquals(1, contentSource.getReadInFlight());
+
+            try {
+                contentSource.newSession().submitRequest(mock(Request.class));
+                fail("Should have thrown ConcurrencyLimitExceededException");
+            } catch (ConcurrencyLimitExceededException ex) {
+                assertEquals(1, contentSource.getReadRejectedCount());
+            }
+
+            release.countDown();
+            blocked.get(5, TimeUnit.SECONDS);
+            assertEquals(0, contentSource.getReadInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void queuedRequestRunsWhenPermitIsReleased() throws Exception {
+        contentSource.setMaxWait(5000);
+        contentSource.afterPropertiesSet();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockRequests(running, release);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> contentSource.newSession().submitRequest(mock(Request.class)));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            Future<?> second = executor.submit(() -> contentSource.newSession().submitRequest(mock(Request.class)));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (contentSource.getReadQueued() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, contentSource.getReadQueued());
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            assertEquals(0, contentSource.getReadQueued());
+            assertEquals(0, contentSource.getReadRejectedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void writesHaveTheirOwnLimit() throws Exception {
+        contentSource.setMaxQueueSize(0);
+        contentSource.afterPropertiesSet();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockRequests(running, release);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> blocked = executor.submit(() -> contentSource.newSession().submitRequest(mock(Request.class)));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            contentSource.newSession().insertContent(mock(Content.class));
+            assertEquals(0, contentSource.getWriteRejectedCount());
+
+            release.countDown();
+            blocked.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void requestMarkedAsWriteUsesTheWriteLimit() throws Exception {
+        contentSource.afterPropertiesSet();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockRequests(running, release);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> blocked = executor.submit(() -> ContentSourceUtils.doAsWrite(() -> {
+                try {
+                    contentSource.newSession().submitRequest(mock(Request.class));
+                } catch (RequestException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            assertEquals(1, contentSource.getWriteInFlight());
+            assertEquals(0, contentSource.getReadInFlight());
+
+            release.countDown();
+            blocked.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void connectionFailureDecreasesLimit() throws Exception {
+        contentSource.setInitialReadLimit(10);
+        contentSource.afterPropertiesSet();
+        given(target.submitRequest(any(Request.class))).willThrow(new ServerConnectionException("down", null));
+
+        try {
+            contentSource.newSession().submitRequest(mock(Request.class));
+            fail("Should have thrown ServerConnectionException");
+        } catch (ServerConnectionException ex) {
+            assertEquals(9, contentSource.getReadLimit());
+            assertEquals(0, contentSource.getReadInFlight());
+        }
+    }
+
+    @Test
+    public void saturatedLimitGrowsWhileLatencyIsStable() throws Exception {
+        contentSource.setRttTolerance(10);
+        contentSource.afterPropertiesSet();
+
+        for (int i = 0; i < 20; i++) {
+            contentSource.newSession().submitRequest(mock(Request.class));
+        }
+
+        assertTrue(contentSource.getReadLimit() > 1);
+    }
+
+    @Test
+    public void cachedResultReleasesPermitRightAway() throws Exception {
+        contentSource.afterPropertiesSet();
+        ResultSequence resultSequence = mock(ResultSequence.class);
+        given(resultSequence.isCached()).willReturn(true);
+        given(target.submitRequest(any(Request.class))).willReturn(resultSequence);
+
+        ResultSequence result = contentSource.newSession().submitRequest(mock(Request.class));
+
+        assertSame(resultSequence, result);
+        assertEquals(0, contentSource.getReadInFlight());
+    }
+
+    @Test
+    public void streamedResultHoldsPermitUntilClosed() throws Exception {
+        contentSource.setMaxQueueSize(0);
+        contentSource.afterPropertiesSet();
+        ResultSequence resultSequence = mock(ResultSequence.class);
+        given(resultSequence.isCached()).willReturn(false);
+        given(target.submitRequest(any(Request.class))).willReturn(resultSequence);
+
+        ResultSequence result = contentSource.newSession().submitRequest(mock(Request.class));
+        assertEquals(1, contentSource.getReadInFlight());
+
+        try {
+            contentSource.newSession().submitRequest(mock(Request.class));
+            fail("Should have thrown ConcurrencyLimitExceededException");
+        } catch (ConcurrencyLimitExceededException ex) {
+            assertEquals(1, contentSource.getReadRejectedCount());
+        }
+
+        result.close();
+        verify(resultSequence).close();
+        assertEquals(0, contentSource.getReadInFlight());
+
+        result.close();
+        assertEquals(0, contentSource.getReadInFlight());
+    }
+
+    @Test
+    public void streamedResultReleasesPermitOnceFullyRead() throws Exception {
+        contentSource.afterPropertiesSet();
+        ResultSequence resultSequence = mock(ResultSequence.class);
+        given(resultSequence.isCached()).willReturn(false);
+        given(resultSequence.hasNext()).willReturn(true, false);
+        given(target.submitRequest(any(Request.class))).willReturn(resultSequence);
+
+        ResultSequence result = contentSource.newSession().submitRequest(mock(Request.class));
+
+        assertTrue(result.hasNext());
+        assertEquals(1, contentSource.getReadInFlight());
+        assertFalse(result.hasNext());
+        assertEquals(0, contentSource.getReadInFlight());
+    }
+
+    @Test
+    public void streamedResultReleasesPermitOnceReadAsString() throws Exception {
+        contentSource.afterPropertiesSet();
+        ResultSequence resultSequence = mock(ResultSequence.class);
+        given(resultSequence.isCached()).willReturn(false);
+        given(resultSequence.asString()).willReturn("result");
+        given(target.submitRequest(any(Request.class))).willReturn(resultSequence);
+
+        ResultSequence result = contentSource.newSession().submitRequest(mock(Request.class));
+        assertEquals(1, contentSource.getReadInFlight());
+
+        assertEquals("result", result.asString());
+        assertEquals(0, contentSource.getReadInFlight());
+    }
+
+    @Test
+    public void closingSessionReleasesStreamedResultPermit() throws Exception {
+        contentSource.afterPropertiesSet();
+        ResultSequence resultSequence = mock(ResultSequence.class);
+        given(resultSequence.isCached()).willReturn(false);
+        given(target.submitRequest(any(Request.class))).willReturn(resultSequence);
+
+        Session session = contentSource.newSession();
+        session.submitRequest(mock(Request.class));
+        assertEquals(1, contentSource.getReadInFlight());
+
+        session.close();
+        verify(target).close();
+        assertEquals(0, contentSource.getReadInFlight());
+    }
+
+    private void blockRequests(CountDownLatch running, CountDownLatch release) throws Exception {
+        given(target.submitRequest(any(Request.class))).willAnswer(invocation -> {
+            running.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+    }
+
+}
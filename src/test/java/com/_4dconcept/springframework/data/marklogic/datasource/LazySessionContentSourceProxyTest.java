@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import com.marklogic.xcc.AdhocQuery;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Request;
+import com.marklogic.xcc.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Stéphane Toussaint
+ */
+public class LazySessionContentSourceProxyTest {
+
+    private ContentSource targetContentSource;
+    private Session target;
+
+    @Before
+    public void setUp() {
+        target = mock(Session.class);
+        targetContentSource = mock(ContentSource.class);
+        given(targetContentSource.newSession()).willReturn(target);
+    }
+
+    @Test
+    public void transactionDemarcationDoesNotFetchSession() throws Exception {
+        LazySessionContentSourceProxy proxy = new LazySessionContentSourceProxy();
+        proxy.setTargetContentSource(targetContentSource);
+        proxy.setDefaultTransactionMode(Session.TransactionMode.AUTO.toString());
+        proxy.afterPropertiesSet();
+
+        Session session = proxy.newSession();
+        session.setTransactionMode(Session.TransactionMode.UPDATE);
+        assertEquals(Session.TransactionMode.UPDATE, session.getTransactionMode());
+        session.commit();
+        session.rollback();
+        session.close();
+
+        assertTrue(session.isClosed());
+        verify(targetContentSource, never()).newSession();
+    }
+
+    @Test
+    public void firstOperationFetchesSessionAndAppliesTransactionMode() throws Exception {
+        AdhocQuery query = mock(AdhocQuery.class);
+        given(target.newAdhocQuery("1")).willReturn(query);
+
+        LazySessionContentSourceProxy proxy = new LazySessionContentSourceProxy();
+        proxy.setTargetContentSource(targetContentSource);
+        proxy.setDefaultTransactionMode(Session.TransactionMode.AUTO.toString());
+        proxy.afterPropertiesSet();
+
+        Session session = proxy.newSession();
+        session.setTransactionMode(Session.TransactionMode.UPDATE);
+        assertSame(query, session.newAdhocQuery("1"));
+        session.submitRequest(query);
+        session.commit();
+        session.close();
+
+        verify(targetContentSource, times(1)).newSession();
+        verify(target).setTransactionMode(Session.TransactionMode.UPDATE);
+        verify(target).submitRequest(query);
+        verify(target).commit();
+        verify(target).close();
+        assertSame(target, ((SessionProxy) session).getTargetSession());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedHandleWithoutSessionRejectsOperations() {
+        LazySessionContentSourceProxy proxy = new LazySessionContentSourceProxy();
+        proxy.setTargetContentSource(targetContentSource);
+        proxy.setDefaultTransactionMode(Session.TransactionMode.AUTO.toString());
+        proxy.afterPropertiesSet();
+
+        Session session = proxy.newSession();
+        session.close();
+        session.newAdhocQuery("1");
+    }
+
+    @Test
+    public void transactionAwareSessionClosesTargetOutsideOfTransaction() throws Exception {
+        Request request = mock(Request.class);
+        TransactionAwareContentSourceProxy proxy = new TransactionAwareContentSourceProxy(targetContentSource);
+
+        Session session = proxy.newSession();
+        assertFalse(session.isClosed());
+        session.submitRequest(request);
+        session.close();
+
+        assertTrue(session.isClosed());
+        verify(target).submitRequest(request);
+        verify(target).close();
+        assertFalse(session.equals(proxy.newSession()));
+    }
+
+    @Test
+    public void lazySessionKeepsTransactionModeUntilFetched() {
+        given(target.newAdhocQuery("1")).willReturn(mock(AdhocQuery.class));
+
+        LazySessionContentSourceProxy proxy = new LazySessionContentSourceProxy();
+        proxy.setTargetContentSource(targetContentSource);
+        proxy.setDefaultTransactionMode(Session.TransactionMode.AUTO.toString());
+        proxy.afterPropertiesSet();
+
+        Session session = proxy.newSession();
+        session.setTransactionMode(Session.TransactionMode.QUERY);
+        assertEquals(Session.TransactionMode.QUERY, session.getTransactionMode());
+
+        session.newAdhocQuery("1");
+
+        verify(target).setTransactionMode(Session.TransactionMode.QUERY);
+        verify(target, never()).setTransactionMode(Session.TransactionMode.AUTO);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedTransactionAwareHandleWithoutSessionRejectsOperations() {
+        TransactionAwareContentSourceProxy proxy = new TransactionAwareContentSourceProxy(targetContentSource);
+
+        Session session = proxy.newSession();
+        session.close();
+        session.newAdhocQuery("1");
+    }
+
+    @Test
+    public void transactionAwareSessionUsesBoundSessionThroughContentSourceUtils() throws Exception {
+        Request request = mock(Request.class);
+        Session boundSession = mock(Session.class);
+        SessionHolder sessionHolder = new SessionHolder(boundSession);
+        TransactionAwareContentSourceProxy proxy = new TransactionAwareContentSourceProxy(targetContentSource);
+
+        TransactionSynchronizationManager.bindResource(targetContentSource, sessionHolder);
+        try {
+            Session session = proxy.newSession();
+            session.submitRequest(request);
+            assertTrue(sessionHolder.isOpen());
+            session.close();
+
+            verify(boundSession).submitRequest(request);
+            verify(boundSession, never()).close();
+            verify(targetContentSource, never()).newSession();
+            assertFalse(sessionHolder.isOpen());
+        } finally {
+            TransactionSynchronizationManager.unbindResource(targetContentSource);
+        }
+    }
+
+    @Test
+    public void reobtainedTargetSessionIsReleasedRightAway() {
+        Session boundSession = mock(Session.class);
+        SessionHolder sessionHolder = new SessionHolder(boundSession);
+        TransactionAwareContentSourceProxy proxy = new TransactionAwareContentSourceProxy(targetContentSource);
+        proxy.setReobtainTransactionalSessions(true);
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.bindResource(targetContentSource, sessionHolder);
+        try {
+            Session session = proxy.newSession();
+            assertSame(boundSession, ((SessionProxy) session).getTargetSession());
+            assertSame(boundSession, ((SessionProxy) session).getTargetSession());
+
+            assertFalse(sessionHolder.isOpen());
+            verify(targetContentSource, never()).newSession();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(targetContentSource);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+}
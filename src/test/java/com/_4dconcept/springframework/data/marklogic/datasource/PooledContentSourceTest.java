@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import com.marklogic.xcc.AdhocQuery;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.RequestOptions;
+import com.marklogic.xcc.ResultSequence;
+import com.marklogic.xcc.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Stéphane Toussaint
+ */
+public class PooledContentSourceTest {
+
+    private ContentSource targetContentSource;
+    private PooledContentSource pooledContentSource;
+
+    @Before
+    public void setUp() {
+        targetContentSource = mock(ContentSource.class);
+        given(targetContentSource.newSession()).willAnswer(invocation -> mock(Session.class));
+
+        pooledContentSource = new PooledContentSource();
+        pooledContentSource.setTargetContentSource(targetContentSource);
+        pooledContentSource.setMaxTotal(1);
+        pooledContentSource.setMaxWait(10);
+        pooledContentSource.setEvictionInterval(0);
+        pooledContentSource.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() {
+        pooledContentSource.destroy();
+    }
+
+    @Test
+    public void closedSessionIsReused() {
+        Session session = pooledContentSource.newSession();
+        Session target = ((SessionProxy) session).getTargetSession();
+        session.close();
+
+        assertTrue(session.isClosed());
+        verify(target, never()).close();
+
+        Session reused = pooledContentSource.newSession();
+        assertNotSame(session, reused);
+        assertSame(target, ((SessionProxy) reused).getTargetSession());
+        verify(targetContentSource, times(1)).newSession();
+        assertEquals(1, pooledContentSource.getActiveCount());
+        assertEquals(2, pooledContentSource.getBorrowedCount());
+    }
+
+    @Test
+    public void exhaustedPoolTimesOut() {
+        pooledContentSource.newSession();
+
+        try {
+            pooledContentSource.newSession();
+            fail("Should have thrown DataAccessResourceFailureException");
+        } catch (DataAccessResourceFailureException ex) {
+            // expected
+        }
+
+        assertEquals(1, pooledContentSource.getTimeoutCount());
+    }
+
+    @Test
+    public void transactionModeIsResetOnReturn() throws Exception {
+        Session session = pooledContentSource.newSession();
+        Session target = ((SessionProxy) session).getTargetSession();
+        given(target.getTransactionMode()).willReturn(Session.TransactionMode.AUTO, Session.TransactionMode.UPDATE);
+
+        session.setTransactionMode(Session.TransactionMode.UPDATE);
+        session.close();
+
+        verify(target).rollback();
+        verify(target).setTransactionMode(Session.TransactionMode.AUTO);
+        assertEquals(1, pooledContentSource.getIdleCount());
+    }
+
+    @Test
+    public void autoCommitAndUpdateAreResetOnReturn() throws Exception {
+        Session session = pooledContentSource.newSession();
+        Session target = ((SessionProxy) session).getTargetSession();
+        given(target.getTransactionMode()).willReturn(Session.TransactionMode.AUTO);
+        given(target.getAutoCommit()).willReturn(true, false);
+        given(target.getUpdate()).willReturn(Session.Update.AUTO);
+
+        session.setAutoCommit(false);
+        session.setUpdate(Session.Update.TRUE);
+        session.close();
+
+        verify(target).rollback();
+        verify(target).setAutoCommit(true);
+        verify(target).setUpdate(Session.Update.AUTO);
+        assertEquals(1, pooledContentSource.getIdleCount());
+    }
+
+    @Test
+    public void defaultRequestOptionsChangedInPlaceAreRestoredOnReturn() {
+        Session target = mock(Session.class);
+        RequestOptions defaultRequestOptions = new RequestOptions();
+        defaultRequestOptions.setTimeoutMillis(1000);
+        given(target.getDefaultRequestOptions()).willReturn(defaultRequestOptions);
+        given(targetContentSource.newSession()).willReturn(target);
+
+        Session session = pooledContentSource.newSession();
+        session.getDefaultRequestOptions().setTimeoutMillis(5);
+        session.close();
+
+        ArgumentCaptor<RequestOptions> restoredOptions = ArgumentCaptor.forClass(RequestOptions.class);
+        verify(target).setDefaultRequestOptions(restoredOptions.capture());
+        assertEquals(1000, restoredOptions.getValue().getTimeoutMillis());
+        assertEquals(1, pooledContentSource.getIdleCount());
+    }
+
+    @Test
+    public void validationQueryResultIsClosed() throws Exception {
+        pooledContentSource.setValidationQuery("xdmp:host()");
+        pooledContentSource.setValidationInterval(-1);
+
+        Session session = pooledContentSource.newSession();
+        Session target = ((SessionProxy) session).getTargetSession();
+        AdhocQuery validationQuery = mock(AdhocQuery.class);
+        ResultSequence resultSequence = mock(ResultSequence.class);
+        given(target.newAdhocQuery("xdmp:host()")).willReturn(validationQuery);
+        given(target.submitRequest(validationQuery)).willReturn(resultSequence);
+        session.close();
+
+        assertSame(target, ((SessionProxy) pooledContentSource.newSession()).getTargetSession());
+        verify(target).submitRequest(validationQuery);
+        verify(resultSequence).close();
+    }
+
+    @Test
+    public void closedTargetSessionIsDiscarded() {
+        Session session = pooledContentSource.newSession();
+        Session target = ((SessionProxy) session).getTargetSession();
+        given(target.isClosed()).willReturn(true);
+        session.close();
+
+        assertEquals(0, pooledContentSource.getIdleCount());
+        assertEquals(1, pooledContentSource.getDestroyedCount());
+        assertFalse(((SessionProxy) pooledContentSource.newSession()).getTargetSession() == target);
+    }
+
+}
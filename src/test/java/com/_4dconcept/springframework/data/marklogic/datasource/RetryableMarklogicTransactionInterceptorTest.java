@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import com.marklogic.xcc.exceptions.XQueryException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.TransactionSystemException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.mock;
+
+/**
+ * @author Stéphane Toussaint
+ */
+public class RetryableMarklogicTransactionInterceptorTest {
+
+    private UnitOfWork target;
+    private UnitOfWork proxy;
+
+    @Before
+    public void setUp() {
+        target = new UnitOfWork();
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(new RetryableMarklogicTransactionAdvisor());
+        proxy = (UnitOfWork) proxyFactory.getProxy();
+    }
+
+    @Test
+    public void retriesOnDeadlockUntilSuccess() {
+        target.failures = 2;
+        target.failure = xqueryException("XDMP-DEADLOCK");
+
+        assertEquals("done", proxy.retryable());
+        assertEquals(3, target.invocations.get());
+    }
+
+    @Test
+    public void retriesOnCommitFailureCausedByDeadlock() {
+        target.failures = 1;
+        target.failure = new TransactionSystemException("Could not commit XDBC transaction", xqueryException("XDMP-DEADLOCK"));
+
+        assertEquals("done", proxy.retryable());
+        assertEquals(2, target.invocations.get());
+    }
+
+    @Test
+    public void doesNotRetryConflictingUpdates() {
+        target.failures = 1;
+        target.failure = xqueryException("XDMP-CONFLICTINGUPDATES");
+
+        try {
+            proxy.retryable();
+            fail("Expected the conflicting updates to be propagated");
+        } catch (RuntimeException e) {
+            assertEquals(target.failure, e);
+        }
+        assertEquals(1, target.invocations.get());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        target.failures = 5;
+        target.failure = xqueryException("XDMP-DEADLOCK");
+
+        try {
+            proxy.retryableTwice();
+            fail("Expected the deadlock to be propagated");
+        } catch (RuntimeException e) {
+            assertEquals(target.failure, e);
+        }
+        assertEquals(2, target.invocations.get());
+    }
+
+    @Test
+    public void doesNotRetryOtherFailures() {
+        target.failures = 1;
+        target.failure = xqueryException("XDMP-UNDFUN");
+
+        try {
+            proxy.retryable();
+            fail("Expected the failure to be propagated");
+        } catch (RuntimeException e) {
+            assertEquals(target.failure, e);
+        }
+        assertEquals(1, target.invocations.get());
+    }
+
+    @Test
+    public void doesNotRetryUnannotatedMethods() {
+        target.failures = 1;
+        target.failure = xqueryException("XDMP-DEADLOCK");
+
+        try {
+            proxy.notRetryable();
+            fail("Expected the deadlock to be propagated");
+        } catch (RuntimeException e) {
+            assertEquals(target.failure, e);
+        }
+        assertEquals(1, target.invocations.get());
+    }
+
+    private static RuntimeException xqueryException(String code) {
+        XQueryException xQueryException = mock(XQueryException.class);
+        given(xQueryException.getCode()).willReturn(code);
+        return new TransactionSystemException("Marklogic failure", xQueryException);
+    }
+
+    static class UnitOfWork {
+
+        final AtomicInteger invocations = new AtomicInteger();
+        int failures;
+        RuntimeException failure;
+
+        @RetryableMarklogicTransaction(maxAttempts = 2, backoff = 0)
+        public String retryableTwice() {
+            return run();
+        }
+
+        @RetryableMarklogicTransaction(backoff = 0)
+        public String retryable() {
+            return run();
+        }
+
+        public String notRetryable() {
+            return run();
+        }
+
+        private String run() {
+            if (invocations.incrementAndGet() <= failures) {
+                throw failure;
+            }
+            return "done";
+        }
+    }
+
+}
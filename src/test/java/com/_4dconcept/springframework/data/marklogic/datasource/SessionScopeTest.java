@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource;
+
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.mock;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Stéphane Toussaint
+ */
+public class SessionScopeTest {
+
+    private ContentSource contentSource;
+
+    @Before
+    public void setUp() {
+        contentSource = mock(ContentSource.class);
+        given(contentSource.newSession()).willAnswer(invocation -> mock(Session.class));
+    }
+
+    @After
+    public void tearDown() {
+        assertFalse(TransactionSynchronizationManager.hasResource(contentSource));
+    }
+
+    @Test
+    public void sessionIsSharedWithinScope() {
+        SessionHolder sessionHolder = ContentSourceUtils.openSessionScope(contentSource);
+        Session first;
+        try {
+            first = ContentSourceUtils.getSession(contentSource);
+            ContentSourceUtils.releaseSession(first, contentSource);
+            Session second = ContentSourceUtils.getSession(contentSource);
+            ContentSourceUtils.releaseSession(second, contentSource);
+
+            assertSame(first, second);
+            verify(first, never()).close();
+        } finally {
+            ContentSourceUtils.closeSessionScope(contentSource, sessionHolder);
+        }
+
+        verify(contentSource, times(1)).newSession();
+        verify(first).close();
+    }
+
+    @Test
+    public void nestedScopeReusesEnclosingSession() {
+        SessionHolder outer = ContentSourceUtils.openSessionScope(contentSource);
+        try {
+            assertNull(ContentSourceUtils.openSessionScope(contentSource));
+        } finally {
+            ContentSourceUtils.closeSessionScope(contentSource, outer);
+        }
+    }
+
+    @Test
+    public void writeAfterTransactionWithinScopeIsAutoCommitted() throws Exception {
+        Session scopedSession = mock(Session.class);
+        given(scopedSession.getTransactionMode()).willReturn(Session.TransactionMode.AUTO);
+        given(contentSource.newSession()).willReturn(scopedSession);
+        ContentSourceTransactionManager transactionManager = new ContentSourceTransactionManager(contentSource);
+
+        SessionHolder sessionHolder = ContentSourceUtils.openSessionScope(contentSource);
+        try {
+            TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+            ContentSourceUtils.releaseSession(ContentSourceUtils.getSession(contentSource), contentSource);
+            transactionManager.commit(status);
+
+            Session session = ContentSourceUtils.getSession(contentSource);
+            assertSame(scopedSession, session);
+            ContentSourceUtils.releaseSession(session, contentSource);
+        } finally {
+            ContentSourceUtils.closeSessionScope(contentSource, sessionHolder);
+        }
+
+        InOrder inOrder = inOrder(scopedSession);
+        inOrder.verify(scopedSession).setTransactionMode(Session.TransactionMode.UPDATE);
+        inOrder.verify(scopedSession).commit();
+        inOrder.verify(scopedSession).setTransactionMode(Session.TransactionMode.AUTO);
+        inOrder.verify(scopedSession).close();
+    }
+
+    @Test
+    public void annotatedMethodRunsWithinScope() {
+        ProxyFactory proxyFactory = new ProxyFactory(new UnitOfWork(contentSource));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(new MarklogicSessionScopeAdvisor(contentSource));
+        UnitOfWork unitOfWork = (UnitOfWork) proxyFactory.getProxy();
+
+        unitOfWork.twoOperations();
+
+        verify(contentSource, times(1)).newSession();
+    }
+
+    static class UnitOfWork {
+
+        private final ContentSource contentSource;
+
+        UnitOfWork(ContentSource contentSource) {
+            this.contentSource = contentSource;
+        }
+
+        @MarklogicSessionScope
+        public void twoOperations() {
+            for (int i = 0; i < 2; i++) {
+                Session session = ContentSourceUtils.getSession(contentSource);
+                ContentSourceUtils.releaseSession(session, contentSource);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource.lookup;
+
+import com._4dconcept.springframework.data.marklogic.datasource.SessionHolder;
+import com._4dconcept.springframework.data.marklogic.datasource.SessionProxy;
+import com.marklogic.xcc.AdhocQuery;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Request;
+import com.marklogic.xcc.Session;
+import com.marklogic.xcc.exceptions.ServerConnectionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.mock;
+
+/**
+ * @author Stéphane Toussaint
+ */
+public class LoadBalancingContentSourceTest {
+
+    private Session session1;
+    private Session session2;
+    private ContentSource host1;
+    private ContentSource host2;
+    private LoadBalancingContentSource contentSource;
+
+    @Before
+    public void setUp() {
+        session1 = mockSession();
+        session2 = mockSession();
+        host1 = mock(ContentSource.class);
+        host2 = mock(ContentSource.class);
+        given(host1.newSession()).willReturn(session1);
+        given(host2.newSession()).willReturn(session2);
+
+        contentSource = new LoadBalancingContentSource();
+        contentSource.setHosts(Arrays.asList(host1, host2));
+        contentSource.setHealthCheckInterval(0);
+    }
+
+    @After
+    public void tearDown() {
+        contentSource.destroy();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    public void roundRobinAlternatesHosts() {
+        contentSource.afterPropertiesSet();
+
+        assertSame(session1, target(contentSource.newSession()));
+        assertSame(session2, target(contentSource.newSession()));
+        assertSame(session1, target(contentSource.newSession()));
+    }
+
+    @Test
+    public void failingHostIsEjectedAndReadmitted() throws Exception {
+        contentSource.afterPropertiesSet();
+        given(session2.submitRequest(any(Request.class))).willThrow(new ServerConnectionException("down", null));
+
+        contentSource.checkHealth();
+        assertEquals(Collections.singletonList("host-0"), contentSource.getHealthyHosts());
+        assertSame(session1, target(contentSource.newSession()));
+        assertSame(session1, target(contentSource.newSession()));
+
+        given(session2.submitRequest(any(Request.class))).willReturn(null);
+        contentSource.checkHealth();
+        assertEquals(Arrays.asList("host-0", "host-1"), contentSource.getHealthyHosts());
+    }
+
+    @Test
+    public void connectionFailureEjectsHost() throws Exception {
+        contentSource.afterPropertiesSet();
+        given(session1.submitRequest(any(Request.class))).willThrow(new ServerConnectionException("down", null));
+
+        Session session = contentSource.newSession();
+        try {
+            session.submitRequest(session.newAdhocQuery("fn:true()"));
+            fail("Should have thrown ServerConnectionException");
+        } catch (ServerConnectionException ex) {
+            // expected
+        }
+
+        assertEquals(Collections.singletonList("host-1"), contentSource.getHealthyHosts());
+    }
+
+    @Test
+    public void transactionIsPinnedToItsHost() {
+        contentSource.afterPropertiesSet();
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertSame(session1, target(contentSource.newSession()));
+        assertSame(session1, target(contentSource.newSession()));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.afterCompletion(0));
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+
+        assertSame(session2, target(contentSource.newSession()));
+    }
+
+    @Test
+    public void boundSessionKeepsItsHost() {
+        contentSource.afterPropertiesSet();
+        Session boundSession = contentSource.newSession();
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.bindResource(contentSource, new SessionHolder(boundSession));
+
+        try {
+            assertSame(session1, target(contentSource.newSession()));
+            assertSame(session1, target(contentSource.newSession()));
+        } finally {
+            TransactionSynchronizationManager.unbindResource(contentSource);
+        }
+    }
+
+    private static Session mockSession() {
+        Session session = mock(Session.class);
+        given(session.newAdhocQuery(any())).willReturn(mock(AdhocQuery.class));
+        return session;
+    }
+
+    private static Session target(Session session) {
+        return ((SessionProxy) session).getTargetSession();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource.lookup;
+
+import com.marklogic.xcc.AdhocQuery;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Request;
+import com.marklogic.xcc.ResultSequence;
+import com.marklogic.xcc.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.mock;
+
+/**
+ * @author Stéphane Toussaint
+ */
+public class ReadOnlyRoutingContentSourceTest {
+
+    private Session primarySession;
+    private Session replicaSession;
+    private ReadOnlyRoutingContentSource contentSource;
+
+    @Before
+    public void setUp() {
+        primarySession = mockSession();
+        replicaSession = mockSession();
+        ContentSource primary = mock(ContentSource.class);
+        ContentSource replica = mock(ContentSource.class);
+        given(primary.newSession()).willReturn(primarySession);
+        given(replica.newSession()).willReturn(replicaSession);
+
+        contentSource = new ReadOnlyRoutingContentSource();
+        contentSource.setPrimaryContentSource(primary);
+        contentSource.setReplicaContentSource(replica);
+        contentSource.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() {
+        contentSource.destroy();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void readOnlyTransactionIsRoutedToReplica() {
+        assertSame(primarySession, contentSource.newSession());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(replicaSession, contentSource.newSession());
+    }
+
+    @Test
+    public void laggingReplicaIsBypassed() throws Exception {
+        contentSource.setMaxReplicaLag(1000);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        givenLastCommitTime(primarySession, "1500000005000");
+        givenLastCommitTime(replicaSession, "1500000000000");
+        contentSource.checkReplicaLag();
+
+        assertEquals(5000, contentSource.getReplicaLag());
+        assertFalse(contentSource.isReplicaUsable());
+        assertSame(primarySession, contentSource.newSession());
+
+        givenLastCommitTime(replicaSession, "1500000004500");
+        contentSource.checkReplicaLag();
+
+        assertTrue(contentSource.isReplicaUsable());
+        assertSame(replicaSession, contentSource.newSession());
+    }
+
+    private static Session mockSession() {
+        Session session = mock(Session.class);
+        given(session.newAdhocQuery(any())).willReturn(mock(AdhocQuery.class));
+        return session;
+    }
+
+    private static void givenLastCommitTime(Session session, String time) throws Exception {
+        ResultSequence resultSequence = mock(ResultSequence.class);
+        given(resultSequence.asString()).willReturn(time);
+        given(session.submitRequest(any(Request.class))).willReturn(resultSequence);
+    }
+}
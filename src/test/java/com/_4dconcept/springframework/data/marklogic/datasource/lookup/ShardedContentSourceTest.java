@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource.lookup;
+
+import com._4dconcept.springframework.data.marklogic.datasource.ContentSourceUtils;
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Session;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.mock;
+
+/**
+ * @author Stéphane Toussaint
+ */
+public class ShardedContentSourceTest {
+
+    private final Map<String, Session> sessions = new HashMap<>();
+    private ShardedContentSource contentSource;
+
+    @Before
+    public void setUp() {
+        Map<String, ContentSource> shards = new LinkedHashMap<>();
+        for (String shard : new String[] { "shard-1", "shard-2", "shard-3" }) {
+            Session session = mock(Session.class);
+            ContentSource shardContentSource = mock(ContentSource.class);
+            given(shardContentSource.newSession()).willReturn(session);
+            sessions.put(shard, session);
+            shards.put(shard, shardContentSource);
+        }
+
+        contentSource = new ShardedContentSource();
+        contentSource.setShards(shards);
+        contentSource.afterPropertiesSet();
+    }
+
+    @Test
+    public void keysAreSpreadOverEveryShardConsistently() {
+        Set<String> usedShards = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            String shard = contentSource.shardFor("key-" + i);
+            assertEquals(shard, contentSource.shardFor("key-" + i));
+            usedShards.add(shard);
+        }
+
+        assertEquals(contentSource.getShardNames(), usedShards);
+    }
+
+    @Test
+    public void addingAShardOnlyMovesAFractionOfTheKeys() {
+        Map<String, ContentSource> shards = new LinkedHashMap<>();
+        contentSource.getShardNames().forEach(shard -> shards.put(shard, mock(ContentSource.class)));
+        shards.put("shard-4", mock(ContentSource.class));
+        ShardedContentSource extended = new ShardedContentSource();
+        extended.setShards(shards);
+        extended.afterPropertiesSet();
+
+        int moved = 0;
+        for (int i = 0; i < 1000; i++) {
+            String shard = extended.shardFor("key-" + i);
+            if (!shard.equals(contentSource.shardFor("key-" + i))) {
+                assertEquals("shard-4", shard);
+                moved++;
+            }
+        }
+
+        assertTrue("Too many moved keys : " + moved, moved < 400);
+    }
+
+    @Test
+    public void sessionsAreFetchedOnTheBoundShard() {
+        Session session = contentSource.doWithShard("shard-2", contentSource::newSession);
+        assertSame(sessions.get("shard-2"), ContentSourceUtils.getTargetSession(session));
+        assertEquals("shard-2", contentSource.getShard(session));
+
+        String shard = contentSource.shardFor("entity-42");
+        session = contentSource.doWithShardKey(() -> "entity-42", contentSource::newSession);
+        assertSame(sessions.get(shard), ContentSourceUtils.getTargetSession(session));
+        assertEquals(shard, contentSource.getShard(session));
+        assertFalse(contentSource.isShardBound());
+    }
+
+    @Test
+    public void boundShardIsLocalToItsContentSource() {
+        ShardedContentSource other = new ShardedContentSource();
+        other.setShards(Collections.singletonMap("other-shard", mock(ContentSource.class)));
+        other.afterPropertiesSet();
+
+        contentSource.doWithShard("shard-1", () -> {
+            assertTrue(contentSource.isShardBound());
+            assertFalse(other.isShardBound());
+            return null;
+        });
+    }
+
+    @Test
+    public void shardOfForeignSessionIsUnknown() {
+        assertNull(contentSource.getShard(mock(Session.class)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sessionWithoutBoundShardIsRejected() {
+        contentSource.newSession();
+    }
+
+}
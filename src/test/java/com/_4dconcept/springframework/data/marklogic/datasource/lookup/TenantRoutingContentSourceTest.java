@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com._4dconcept.springframework.data.marklogic.datasource.lookup;
+
+import com.marklogic.xcc.ContentSource;
+import com.marklogic.xcc.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Stéphane Toussaint
+ */
+public class TenantRoutingContentSourceTest {
+
+    private final Map<String, ContentSource> tenantContentSources = new HashMap<>();
+    private TenantRoutingContentSource contentSource;
+
+    @Before
+    public void setUp() {
+        contentSource = new TenantRoutingContentSource();
+        contentSource.setTargetContentSourceFactory(tenant -> tenantContentSources.computeIfAbsent(tenant, key -> {
+            ContentSource tenantContentSource = mock(ContentSource.class);
+            given(tenantContentSource.newSession()).willAnswer(invocation -> mock(Session.class));
+            return tenantContentSource;
+        }));
+        contentSource.setTenantMaxSessions(1);
+        contentSource.setTenantMaxWait(10);
+        contentSource.setMaintenanceInterval(0);
+    }
+
+    @After
+    public void tearDown() {
+        contentSource.destroy();
+    }
+
+    @Test
+    public void sessionsAreFetchedOnTheTenantContentSource() {
+        contentSource.afterPropertiesSet();
+
+        TenantContextHolder.doWithTenant("tenant-a", contentSource::newSession).close();
+
+        verify(tenantContentSources.get("tenant-a")).newSession();
+        assertEquals(new HashSet<>(Arrays.asList("tenant-a")), contentSource.getTenants());
+        assertNotNull(contentSource.getTenantPool("tenant-a"));
+    }
+
+    @Test
+    public void busyTenantDoesNotStarveOtherTenants() {
+        contentSource.afterPropertiesSet();
+
+        Session session = TenantContextHolder.doWithTenant("tenant-a", contentSource::newSession);
+        try {
+            TenantContextHolder.doWithTenant("tenant-a", contentSource::newSession);
+            fail("Expected tenant pool exhaustion");
+        } catch (DataAccessResourceFailureException expected) {
+            assertEquals(1, contentSource.getTenantActiveCount("tenant-a"));
+        }
+
+        TenantContextHolder.doWithTenant("tenant-b", contentSource::newSession).close();
+        session.close();
+    }
+
+    @Test
+    public void leastRecentlyUsedIdleTenantIsEvicted() throws Exception {
+        contentSource.setMaxTenants(2);
+        contentSource.afterPropertiesSet();
+
+        for (String tenant : new String[] { "tenant-a", "tenant-b", "tenant-c" }) {
+            TenantContextHolder.doWithTenant(tenant, contentSource::newSession).close();
+            Thread.sleep(5);
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList("tenant-b", "tenant-c")), contentSource.getTenants());
+        assertEquals(1, contentSource.getEvictedTenantCount());
+    }
+
+    @Test
+    public void tenantsAboveTheLimitAreEvictedOnceIdle() throws Exception {
+        contentSource.setMaxTenants(2);
+        contentSource.afterPropertiesSet();
+
+        List<Session> sessions = new ArrayList<>();
+        for (String tenant : new String[] { "tenant-a", "tenant-b", "tenant-c", "tenant-d" }) {
+            sessions.add(TenantContextHolder.doWithTenant(tenant, contentSource::newSession));
+            Thread.sleep(5);
+        }
+        assertEquals(4, contentSource.getTenantCount());
+
+        sessions.forEach(Session::close);
+        TenantContextHolder.doWithTenant("tenant-e", contentSource::newSession).close();
+
+        assertEquals(new HashSet<>(Arrays.asList("tenant-d", "tenant-e")), contentSource.getTenants());
+        assertEquals(3, contentSource.getEvictedTenantCount());
+    }
+
+    @Test
+    public void tenantContentSourceFactoryMayUseTheRouter() {
+        contentSource.setTargetContentSourceFactory(tenant -> {
+            if (tenant.equals("tenant-a")) {
+                // Reaches the tenant map again while the pool of tenant-a is being created
+                TenantContextHolder.doWithTenant("tenant-b", contentSource::newSession).close();
+            }
+            ContentSource tenantContentSource = mock(ContentSource.class);
+            given(tenantContentSource.newSession()).willAnswer(invocation -> mock(Session.class));
+            return tenantContentSource;
+        });
+        contentSource.afterPropertiesSet();
+
+        TenantContextHolder.doWithTenant("tenant-a", contentSource::newSession).close();
+
+        assertEquals(new HashSet<>(Arrays.asList("tenant-a", "tenant-b")), contentSource.getTenants());
+    }
+
+    @Test
+    public void idleTenantsAreEvicted() {
+        contentSource.setTenantIdleTimeout(-1);
+        contentSource.afterPropertiesSet();
+
+        TenantContextHolder.doWithTenant("tenant-a", contentSource::newSession).close();
+        contentSource.evictIdle();
+
+        assertEquals(0, contentSource.getTenantCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void workWithoutTenantNorDefaultContentSourceIsRejected() {
+        contentSource.afterPropertiesSet();
+
+        contentSource.newSession();
+    }
+
+}